@@ -0,0 +1,60 @@
+package com.retailmenot.scaffold.artifacts;
+
+/**
+ * Where an artifact lives in an {@link ArtifactStore}: the segment file it was appended to, and the range of bytes it
+ * occupies in it. References are what the store's index is made of, and are all a report needs to stream an artifact
+ * back out.
+ */
+public class ArtifactRef {
+
+    private final String testName;
+    private final String name;
+    private final String type;
+    private final String segment;
+    private final long offset;
+    private final int length;
+
+    ArtifactRef(String testName, String name, String type, String segment, long offset, int length) {
+        this.testName = testName;
+        this.name = name;
+        this.type = type;
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public String getTestName() {
+        return testName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the type of the artifact, e.g. "png" or "html"
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the file name of the segment the artifact was appended to
+     */
+    public String getSegment() {
+        return segment;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s of %s (%s@%d+%d)", type, name, testName, segment, offset, length);
+    }
+}
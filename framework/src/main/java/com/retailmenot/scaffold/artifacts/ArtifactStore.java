@@ -0,0 +1,531 @@
+package com.retailmenot.scaffold.artifacts;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A run-level, append-only store for test artifacts such as screenshots, page sources and browser logs.
+ *
+ * Artifacts are appended to segment files that are memory-mapped as they are created, so writing an artifact is a copy
+ * into memory the OS flushes to disk on its own, even if the JVM dies. Appending only reserves a range of the current
+ * segment under a lock. The artifact is then written into its range outside of it, so parallel tests append
+ * concurrently. Base64 payloads such as screenshots are decoded straight into the mapped range, and text is encoded
+ * straight into it, without ever building a byte array on the heap.
+ *
+ * Every appended artifact is recorded in an index, kept in memory by test name and appended as one JSON line per
+ * artifact to index.jsonl next to the segments. Reports can stream artifacts back out through {@link #open(ArtifactRef)}
+ * or {@link #transferTo(ArtifactRef, WritableByteChannel)} without loading them into the heap, and another process can
+ * read a store's artifacts through {@link #load(Path)}.
+ *
+ * Segments are sparse files of the full segment size while the store is open; only the bytes that were written take up
+ * disk space. Closing the store truncates them to the bytes that were written.
+ */
+@Slf4j
+public class ArtifactStore implements AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final String INDEX_FILE = "index.jsonl";
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        var alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (var i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path directory;
+    private final int segmentSize;
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+    private final Map<String, List<ArtifactRef>> index = new ConcurrentHashMap<>();
+    private final FileChannel indexChannel;
+    private Segment current;
+    private int nextSegment;
+    // Appends that have reserved a range but not been indexed yet, guarded by the store
+    private int inFlight = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a store with segments of {@link #DEFAULT_SEGMENT_SIZE}.
+     *
+     * @param directory the directory to write segments and the index to
+     */
+    public ArtifactStore(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory   the directory to write segments and the index to
+     * @param segmentSize the size of each segment in bytes. Artifacts larger than that get a segment of their own.
+     */
+    public ArtifactStore(Path directory, int segmentSize) {
+        this(directory, segmentSize, true);
+    }
+
+    private ArtifactStore(Path directory, int segmentSize, boolean writable) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        if (!writable) {
+            indexChannel = null;
+            closed = true;
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            // Never write over the segments of an earlier store in the same directory
+            try (var existing = Files.list(directory)) {
+                nextSegment = existing
+                        .map(path -> path.getFileName().toString())
+                        .filter(name -> name.matches("segment-\\d+\\.dat"))
+                        .mapToInt(name -> Integer.parseInt(name.replaceAll("\\D", "")) + 1)
+                        .max()
+                        .orElse(0);
+            }
+            indexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create artifact store in " + directory, e);
+        }
+    }
+
+    /**
+     * Opens the store in the given directory for reading, e.g. from a reporting process after the run. Every artifact in
+     * the store's index can be read, but nothing can be appended.
+     *
+     * @param directory the directory of the store
+     * @return the {@link ArtifactStore}
+     */
+    public static ArtifactStore load(Path directory) {
+        var store = new ArtifactStore(directory, DEFAULT_SEGMENT_SIZE, false);
+        try (var lines = Files.lines(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8)) {
+            lines.forEach(store::loadEntry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the artifact index in " + directory, e);
+        }
+        return store;
+    }
+
+    private void loadEntry(String line) {
+        if (line.isBlank()) {
+            return;
+        }
+        try {
+            var entry = objectMapper.readValue(line, Map.class);
+            var ref = new ArtifactRef((String) entry.get("test"), (String) entry.get("name"), (String) entry.get("type"),
+                    (String) entry.get("segment"), ((Number) entry.get("offset")).longValue(), ((Number) entry.get("length")).intValue());
+            index.computeIfAbsent(String.valueOf(ref.getTestName()), key -> new ArrayList<>()).add(ref);
+        } catch (IOException | RuntimeException e) {
+            // Most likely the last line, cut short when the writing process died
+            log.warn(String.format("Skipping unreadable artifact index entry in %s: %s", directory, line));
+        }
+    }
+
+    /**
+     * Appends a base64 encoded artifact, e.g. a screenshot as returned by the browser, decoding it straight into the store.
+     *
+     * @param testName the name of the test the artifact belongs to
+     * @param name     the name of the artifact
+     * @param type     the type of the artifact, e.g. "png"
+     * @param base64   the base64 encoded artifact
+     * @return the {@link ArtifactRef} of the appended artifact
+     */
+    public ArtifactRef appendBase64(String testName, String name, String type, CharSequence base64) {
+        // Validates the payload, so a bad one fails before any of the segment is reserved for it
+        var length = decodedLength(base64);
+        var reservation = reserve(length);
+        try {
+            decodeBase64(base64, reservation.buffer);
+            return record(new ArtifactRef(testName, name, type, reservation.segment.name, reservation.offset, length));
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Appends a text artifact, e.g. a page source or a browser log, encoding it as UTF-8 straight into the store.
+     *
+     * @param testName the name of the test the artifact belongs to
+     * @param name     the name of the artifact
+     * @param type     the type of the artifact, e.g. "html"
+     * @param text     the text of the artifact
+     * @return the {@link ArtifactRef} of the appended artifact
+     */
+    public ArtifactRef appendText(String testName, String name, String type, CharSequence text) {
+        var length = utf8Length(text);
+        var reservation = reserve(length);
+        try {
+            StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .encode(CharBuffer.wrap(text), reservation.buffer, true);
+            return record(new ArtifactRef(testName, name, type, reservation.segment.name, reservation.offset, length));
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Appends an artifact that is already in a buffer.
+     *
+     * @param testName the name of the test the artifact belongs to
+     * @param name     the name of the artifact
+     * @param type     the type of the artifact
+     * @param bytes    the artifact, from its position to its limit
+     * @return the {@link ArtifactRef} of the appended artifact
+     */
+    public ArtifactRef append(String testName, String name, String type, ByteBuffer bytes) {
+        var length = bytes.remaining();
+        var reservation = reserve(length);
+        try {
+            reservation.buffer.put(bytes);
+            return record(new ArtifactRef(testName, name, type, reservation.segment.name, reservation.offset, length));
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Returns the artifacts appended for a test, in the order they were appended.
+     *
+     * @param testName the name of the test
+     * @return the {@link ArtifactRef}s of the test
+     */
+    public List<ArtifactRef> getArtifacts(String testName) {
+        var artifacts = index.get(String.valueOf(testName));
+        if (artifacts == null) {
+            return Collections.emptyList();
+        }
+        synchronized (artifacts) {
+            return new ArrayList<>(artifacts);
+        }
+    }
+
+    /**
+     * Returns a read-only view of an artifact's bytes, backed by the mapped segment.
+     *
+     * @param ref the {@link ArtifactRef} of the artifact
+     * @return a {@link ByteBuffer} positioned at the start of the artifact
+     */
+    public ByteBuffer read(ArtifactRef ref) {
+        var segment = segments.computeIfAbsent(ref.getSegment(), this::mapExistingSegment);
+        if (segment == null) {
+            throw new IllegalArgumentException("Artifact is not in this store: " + ref);
+        }
+        return segment.slice((int) ref.getOffset(), ref.getLength()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Opens a stream over an artifact's bytes, read straight from the mapped segment.
+     *
+     * @param ref the {@link ArtifactRef} of the artifact
+     * @return an {@link InputStream} over the artifact
+     */
+    public InputStream open(ArtifactRef ref) {
+        var buffer = read(ref);
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                var count = Math.min(length, buffer.remaining());
+                buffer.get(bytes, offset, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return buffer.remaining();
+            }
+        };
+    }
+
+    /**
+     * Writes an artifact's bytes to a channel, e.g. a report file or an HTTP response.
+     *
+     * @param ref    the {@link ArtifactRef} of the artifact
+     * @param target the channel to write to
+     * @throws IOException if the channel could not be written to
+     */
+    public void transferTo(ArtifactRef ref, WritableByteChannel target) throws IOException {
+        var buffer = read(ref);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Waits for appends in progress to be indexed, then flushes every segment and the index to disk and truncates the
+     * segments to the bytes written. Appending to a closed store fails, but artifacts can still be read.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            while (inFlight > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    log.warn(String.format("Interrupted waiting for %d artifacts to be appended to %s", inFlight, directory));
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        segments.values().stream().filter(segment -> segment.writable).forEach(this::finish);
+        if (indexChannel == null) {
+            return;
+        }
+        try {
+            indexChannel.force(true);
+            indexChannel.close();
+        } catch (IOException e) {
+            log.warn(String.format("Could not flush the artifact index in %s: %s", directory, e.getMessage()));
+        }
+    }
+
+    private synchronized Reservation reserve(int length) {
+        if (closed) {
+            throw new IllegalStateException("Artifact store has been closed: " + directory);
+        }
+        if (current == null || current.capacity - current.position < length) {
+            current = newSegment(Math.max(segmentSize, length));
+        }
+        var offset = current.position;
+        current.position += length;
+        inFlight++;
+        return new Reservation(current, offset, current.slice(offset, length));
+    }
+
+    private synchronized void release() {
+        if (--inFlight == 0 && closed) {
+            notifyAll();
+        }
+    }
+
+    private void finish(Segment segment) {
+        segment.buffer.force();
+        var file = directory.resolve(segment.name);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(segment.position);
+        } catch (IOException e) {
+            log.warn(String.format("Could not truncate artifact segment %s: %s", file, e.getMessage()));
+        }
+    }
+
+    private Segment mapExistingSegment(String name) {
+        var file = directory.resolve(name);
+        if (!name.matches("segment-\\d+\\.dat") || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var size = (int) channel.size();
+            var segment = new Segment(name, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), size, false);
+            segment.position = size;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read artifact segment " + file, e);
+        }
+    }
+
+    private Segment newSegment(int capacity) {
+        var name = String.format("segment-%05d.dat", nextSegment++);
+        var file = directory.resolve(name);
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            var segment = new Segment(name, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), capacity, true);
+            segments.put(name, segment);
+            log.debug(String.format("Created artifact segment %s of %d bytes", file, capacity));
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create artifact segment " + file, e);
+        }
+    }
+
+    private ArtifactRef record(ArtifactRef ref) {
+        var artifacts = index.computeIfAbsent(String.valueOf(ref.getTestName()), key -> new ArrayList<>());
+        synchronized (artifacts) {
+            artifacts.add(ref);
+        }
+        // Only indexed once it is fully written, so the index never points at a partial artifact
+        var entry = new LinkedHashMap<String, Object>();
+        entry.put("test", ref.getTestName());
+        entry.put("name", ref.getName());
+        entry.put("type", ref.getType());
+        entry.put("segment", ref.getSegment());
+        entry.put("offset", ref.getOffset());
+        entry.put("length", ref.getLength());
+        try {
+            var line = ByteBuffer.wrap((objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+            synchronized (indexChannel) {
+                while (line.hasRemaining()) {
+                    indexChannel.write(line);
+                }
+            }
+        } catch (IOException e) {
+            log.warn(String.format("Could not index artifact %s: %s", ref, e.getMessage()));
+        }
+        return ref;
+    }
+
+    /**
+     * Validates base64 and returns the number of bytes it decodes to.
+     *
+     * @throws IllegalArgumentException if the payload is not valid base64
+     */
+    static int decodedLength(CharSequence base64) {
+        var characters = 0;
+        var padding = 0;
+        for (var i = 0; i < base64.length(); i++) {
+            var c = base64.charAt(i);
+            if (c == '=') {
+                padding++;
+                characters++;
+            } else if (Character.isWhitespace(c)) {
+                continue;
+            } else if (c >= DECODE.length || DECODE[c] < 0 || padding > 0) {
+                throw new IllegalArgumentException(String.format("Not a valid base64 character at %d: %s", i, c));
+            } else {
+                characters++;
+            }
+        }
+        if (characters % 4 != 0 || padding > 2) {
+            throw new IllegalArgumentException("Not a valid base64 payload, its length is " + characters);
+        }
+        return characters / 4 * 3 - padding;
+    }
+
+    /**
+     * Decodes base64, already validated by {@link #decodedLength(CharSequence)}, into the target buffer, which must have
+     * exactly that many bytes left.
+     */
+    static void decodeBase64(CharSequence base64, ByteBuffer target) {
+        var bits = 0;
+        var count = 0;
+        for (var i = 0; i < base64.length(); i++) {
+            var c = base64.charAt(i);
+            if (c == '=') {
+                break;
+            }
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (c >= DECODE.length || DECODE[c] < 0) {
+                throw new IllegalArgumentException(String.format("Not a valid base64 character at %d: %s", i, c));
+            }
+            bits = bits << 6 | DECODE[c];
+            if (++count == 4) {
+                target.put((byte) (bits >> 16)).put((byte) (bits >> 8)).put((byte) bits);
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 2) {
+            target.put((byte) (bits >> 4));
+        } else if (count == 3) {
+            target.put((byte) (bits >> 10)).put((byte) (bits >> 2));
+        }
+    }
+
+    /**
+     * @return the number of bytes the given text encodes to in UTF-8, with unpaired surrogates replaced
+     */
+    static int utf8Length(CharSequence text) {
+        var length = 0;
+        for (var i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("artifact store in %s (%d segments, %d tests)", directory, segments.size(), index.size());
+    }
+
+    private static class Segment {
+        private final String name;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        // Whether this store created the segment and appends to it, rather than mapping an existing one to read it
+        private final boolean writable;
+        // Guarded by the store
+        private int position = 0;
+
+        Segment(String name, MappedByteBuffer buffer, int capacity, boolean writable) {
+            this.name = name;
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.writable = writable;
+        }
+
+        /**
+         * Our own view of a range of the segment. The segment's buffer is never moved, so views can be taken
+         * concurrently.
+         */
+        ByteBuffer slice(int offset, int length) {
+            var view = buffer.duplicate();
+            view.position(offset).limit(offset + length);
+            return view.slice();
+        }
+    }
+
+    private static class Reservation {
+        private final Segment segment;
+        private final int offset;
+        private final ByteBuffer buffer;
+
+        Reservation(Segment segment, int offset, ByteBuffer buffer) {
+            this.segment = segment;
+            this.offset = offset;
+            this.buffer = buffer;
+        }
+    }
+}
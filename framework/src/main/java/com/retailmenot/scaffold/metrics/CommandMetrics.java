@@ -0,0 +1,114 @@
+package com.retailmenot.scaffold.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The WebDriver command latencies of a run, tagged by run type, browser and Grid node. Each driver records into the
+ * {@link CommandRecorder} of its tags, and the latencies are exported as a Prometheus text file and as records for the
+ * JSON lines result stream.
+ */
+public class CommandMetrics {
+
+    static final String METRIC = "scaffold_webdriver_command_seconds";
+
+    private final Map<List<String>, CommandRecorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the recorder for the given tags, creating it the first time.
+     *
+     * @param runType the run type, e.g. GRID
+     * @param browser the browser, e.g. Chrome
+     * @param node    the Grid node the session runs on, or null if there is none
+     * @return the {@link CommandRecorder}
+     */
+    public CommandRecorder recorderFor(String runType, String browser, String node) {
+        var tags = List.of(String.valueOf(runType), String.valueOf(browser), node == null ? "" : node);
+        return recorders.computeIfAbsent(tags, key -> new CommandRecorder(key.get(0), key.get(1), key.get(2)));
+    }
+
+    /**
+     * @return the latencies in the Prometheus text exposition format, as a histogram per command and tags
+     */
+    public String toPrometheusText() {
+        var text = new StringBuilder();
+        text.append("# HELP ").append(METRIC).append(" Latency of WebDriver commands.\n");
+        text.append("# TYPE ").append(METRIC).append(" histogram\n");
+        for (var recorder : recorders.values()) {
+            for (var entry : recorder.getHistograms().entrySet()) {
+                var labels = String.format("command=\"%s\",run_type=\"%s\",browser=\"%s\",node=\"%s\"", escape(entry.getKey()),
+                        escape(recorder.getRunType()), escape(recorder.getBrowser()), escape(recorder.getNode()));
+                var histogram = entry.getValue();
+                var bucketCounts = histogram.getBucketCounts();
+                var cumulative = 0L;
+                for (var i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                    cumulative += bucketCounts[i];
+                    text.append(METRIC).append("_bucket{").append(labels).append(",le=\"")
+                            .append(LatencyHistogram.getUpperBoundSeconds(i)).append("\"} ").append(cumulative).append('\n');
+                }
+                cumulative += bucketCounts[LatencyHistogram.BUCKETS];
+                text.append(METRIC).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(cumulative).append('\n');
+                text.append(METRIC).append("_sum{").append(labels).append("} ").append(histogram.getSumNanos() / 1e9).append('\n');
+                text.append(METRIC).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes the latencies to a Prometheus text file, e.g. for the node exporter's textfile collector. The file is
+     * replaced in one step, so a collector never reads half of it.
+     *
+     * @param file the file to write
+     */
+    public void writePrometheus(Path file) {
+        try {
+            var parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            var part = Files.createTempFile(parent, file.getFileName().toString(), ".part");
+            Files.write(part, toPrometheusText().getBytes(StandardCharsets.UTF_8));
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write command metrics to " + file, e);
+        }
+    }
+
+    /**
+     * @return a record per command and tags, for the {@link com.retailmenot.scaffold.results.JsonLinesResultWriter}
+     */
+    public List<Map<String, Object>> toRecords() {
+        var records = new ArrayList<Map<String, Object>>();
+        for (var recorder : recorders.values()) {
+            for (var entry : recorder.getHistograms().entrySet()) {
+                var histogram = entry.getValue();
+                var record = new LinkedHashMap<String, Object>();
+                record.put("type", "commandLatency");
+                record.put("command", entry.getKey());
+                record.put("runType", recorder.getRunType());
+                record.put("browser", recorder.getBrowser());
+                record.put("node", recorder.getNode());
+                record.put("count", histogram.getCount());
+                record.put("sumMillis", histogram.getSumNanos() / 1e6);
+                record.put("p50Millis", histogram.getQuantileNanos(0.5) / 1e6);
+                record.put("p95Millis", histogram.getQuantileNanos(0.95) / 1e6);
+                record.put("p99Millis", histogram.getQuantileNanos(0.99) / 1e6);
+                record.put("maxMillis", histogram.getMaxNanos() / 1e6);
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
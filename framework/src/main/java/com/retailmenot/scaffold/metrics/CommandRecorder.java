@@ -0,0 +1,66 @@
+package com.retailmenot.scaffold.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the latency of WebDriver commands for one combination of run type, browser and Grid node, keeping a
+ * {@link LatencyHistogram} per command. Command names are those of {@link org.openqa.selenium.remote.DriverCommand}.
+ */
+public class CommandRecorder {
+
+    private final String runType;
+    private final String browser;
+    private final String node;
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    CommandRecorder(String runType, String browser, String node) {
+        this.runType = runType;
+        this.browser = browser;
+        this.node = node;
+    }
+
+    /**
+     * Records a command.
+     *
+     * @param command the name of the command, e.g. {@link org.openqa.selenium.remote.DriverCommand#FIND_ELEMENT}
+     * @param nanos   how long the command took, in nanoseconds
+     */
+    public void record(String command, long nanos) {
+        var histogram = histograms.get(command);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(command, key -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Records a command that started at the given time and just finished.
+     *
+     * @param command    the name of the command
+     * @param startNanos when the command started, as returned by {@link System#nanoTime()}
+     */
+    public void recordSince(String command, long startNanos) {
+        record(command, System.nanoTime() - startNanos);
+    }
+
+    public String getRunType() {
+        return runType;
+    }
+
+    public String getBrowser() {
+        return browser;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * @return the histograms recorded so far, by command
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+}
@@ -0,0 +1,105 @@
+package com.retailmenot.scaffold.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram cheap enough to record every WebDriver command into. Latencies are counted in buckets whose upper
+ * bounds double from one microsecond up to about 33 seconds, so recording is a leading-zero count and an uncontended
+ * add, with no locking and no allocation.
+ *
+ * The buckets make quantiles approximate: a quantile is reported as the upper bound of the bucket it falls in, which is
+ * at most twice the real value.
+ */
+public class LatencyHistogram {
+
+    // Bucket i counts latencies of up to 2^i microseconds, the last one everything slower
+    static final int BUCKETS = 26;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (var i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos the latency, in nanoseconds
+     */
+    public void record(long nanos) {
+        var micros = nanos / 1000;
+        var bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+        counts[Math.min(bucket, BUCKETS)].increment();
+        sumNanos.add(nanos);
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * @return the number of latencies recorded in each bucket, the last one being for latencies slower than every bound
+     */
+    public long[] getBucketCounts() {
+        var snapshot = new long[counts.length];
+        for (var i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param bucket the index of a bucket other than the last
+     * @return the upper bound of the bucket, in seconds
+     */
+    public static double getUpperBoundSeconds(int bucket) {
+        return Math.scalb(1.0, bucket) / 1_000_000;
+    }
+
+    public long getCount() {
+        var count = 0L;
+        for (var bucketCount : counts) {
+            count += bucketCount.sum();
+        }
+        return count;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Estimates a quantile of the recorded latencies.
+     *
+     * @param quantile the quantile, e.g. 0.95
+     * @return the upper bound of the bucket the quantile falls in, capped at the slowest latency, in nanoseconds
+     */
+    public long getQuantileNanos(double quantile) {
+        var bucketCounts = getBucketCounts();
+        var total = 0L;
+        for (var bucketCount : bucketCounts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        var rank = (long) Math.ceil(quantile * total);
+        var seen = 0L;
+        var max = getMaxNanos();
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return Math.min((long) (getUpperBoundSeconds(i) * 1_000_000_000), max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,264 @@
+package com.retailmenot.scaffold.results;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailmenot.scaffold.models.TestInformation;
+import com.retailmenot.scaffold.util.AutomationUtils;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting;
+import com.retailmenot.scaffold.webdriver.interfaces.TestInformationConsumer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the results of a run to a JSON lines file, one JSON object per completed test, as the tests complete. Reporting
+ * can tail the file while the run is still going, and a run that crashes still leaves the results of every test that
+ * completed before it did.
+ *
+ * Records are built on the thread completing the test and queued. A single writer thread appends them to the file and
+ * flushes after every batch it drains from the queue, so tests never wait on the disk. The queue is bounded: when the
+ * writer falls behind, queuing a record blocks until there is room again rather than holding every result in memory.
+ * The {@link com.retailmenot.scaffold.webdriver.BaseTestContext} hands records over from a thread of its own, so that
+ * only ever holds up other consumers.
+ *
+ * A test's record has the type "test" and holds:
+ * - test, runId, runHost, status and screenShotUrl
+ * - startTime, endTime and durationMillis, when the test was started with {@link com.retailmenot.scaffold.webdriver.BaseTestContext#startTest(String)}
+ * - waitMillis, the total time spent in waits, when wait profiling is enabled
+ * - exception, with the type, message and stack trace of the test's exception, if it has one
+ * - artifacts, the {@link com.retailmenot.scaffold.artifacts.ArtifactRef}s stored for the test
+ * - steps, the test's steps as recorded by its {@link com.retailmenot.scaffold.steps.StepRecorder}, each with its type,
+ *   target, detail, startTime, durationMillis and whether it completed
+ */
+@Slf4j
+public class JsonLinesResultWriter implements TestInformationConsumer, AutoCloseable {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Path file;
+    private final Writer writer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<Map<String, Object>> queue;
+    private final Thread writerThread;
+    // Guards closing against queuing, so nothing is queued once the writer thread may have stopped draining
+    private final Object lock = new Object();
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a writer appending to the given file, with room for 1024 queued records.
+     *
+     * @param file the JSON lines file, created if it does not exist yet
+     */
+    public JsonLinesResultWriter(Path file) {
+        this(file, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param file          the JSON lines file, created if it does not exist yet
+     * @param queueCapacity the most records waiting to be written before queuing more blocks
+     */
+    public JsonLinesResultWriter(Path file, int queueCapacity) {
+        this.file = file;
+        try {
+            var parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open result file " + file, e);
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::run, "result-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues the record of a completed test.
+     *
+     * @param testName        the name of the test
+     * @param testInformation the {@link TestInformation} of the test
+     */
+    @Override
+    public void accept(String testName, TestInformation testInformation) {
+        write(toRecord(testName, testInformation));
+    }
+
+    /**
+     * Queues a record to be written as its own line. Blocks while the queue is full.
+     *
+     * @param record the record, made of values Jackson can serialize
+     * @throws IllegalStateException if the writer has been closed, including while waiting for room in the queue
+     */
+    public void write(Map<String, Object> record) {
+        synchronized (lock) {
+            try {
+                while (!closed && !queue.offer(record)) {
+                    // Woken up by the writer thread once it takes records off the queue, or by close()
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn(String.format("Interrupted while queuing a result for %s, it was not written", file));
+                return;
+            }
+            // The lock is held from the last check of closed through the offer, so the record was only queued if the
+            // writer thread is still draining
+            if (closed) {
+                throw new IllegalStateException("Result writer for " + file + " has been closed");
+            }
+        }
+    }
+
+    /**
+     * @return the file the results are written to
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Stops accepting records, writes the queued ones and closes the file.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn(String.format("%d results were still waiting to be written to %s after %d seconds, giving up on them",
+                    queue.size(), file, SHUTDOWN_TIMEOUT.toSeconds()));
+            writerThread.interrupt();
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn(String.format("Could not close result file %s: %s", file, e.getMessage()));
+        }
+    }
+
+    private Map<String, Object> toRecord(String testName, TestInformation testInformation) {
+        var context = TestContext.baseContext();
+        var record = new LinkedHashMap<String, Object>();
+        record.put("type", "test");
+        record.put("test", testName);
+        record.put("runId", context.getSetting(String.class, TestContextSetting.TEST_RUN_ID));
+        record.put("runHost", testInformation.getRunHost());
+        var startTime = testInformation.getStartTime();
+        var endTime = testInformation.getEndTime();
+        record.put("startTime", startTime == null ? null : startTime.toString());
+        record.put("endTime", endTime == null ? null : endTime.toString());
+        record.put("durationMillis", startTime == null || endTime == null ? null : Duration.between(startTime, endTime).toMillis());
+        var waits = context.getWaitProfiler().getTestStatistics(testName);
+        if (waits != null) {
+            record.put("waitMillis", waits.getTotal().toMillis());
+        }
+        var exception = testInformation.getException();
+        record.put("status", exception == null ? "passed" : "failed");
+        if (exception != null) {
+            var exceptionRecord = new LinkedHashMap<String, Object>();
+            exceptionRecord.put("type", exception.getClass().getName());
+            exceptionRecord.put("message", exception.getMessage());
+            exceptionRecord.put("stackTrace", AutomationUtils.getStackTrace(exception));
+            record.put("exception", exceptionRecord);
+        }
+        record.put("screenShotUrl", testInformation.getScreenShotUrl());
+        var artifacts = new ArrayList<Map<String, Object>>();
+        for (var ref : context.getArtifactsForTest(testName)) {
+            var artifact = new LinkedHashMap<String, Object>();
+            artifact.put("name", ref.getName());
+            artifact.put("type", ref.getType());
+            artifact.put("segment", ref.getSegment());
+            artifact.put("offset", ref.getOffset());
+            artifact.put("length", ref.getLength());
+            artifacts.add(artifact);
+        }
+        record.put("artifacts", artifacts);
+        var steps = new ArrayList<Map<String, Object>>();
+        if (testInformation.getTestSteps() != null) {
+            for (var step : testInformation.getTestSteps()) {
+                var stepRecord = new LinkedHashMap<String, Object>();
+                stepRecord.put("type", step.getType().name());
+                stepRecord.put("target", step.getTarget());
+                stepRecord.put("detail", step.getDetail());
+                stepRecord.put("startTime", step.getStartTime().toString());
+                stepRecord.put("durationMillis", step.isCompleted() ? step.getDuration().toMillis() : null);
+                stepRecord.put("completed", step.isCompleted());
+                steps.add(stepRecord);
+            }
+        }
+        record.put("steps", steps);
+        return record;
+    }
+
+    private void run() {
+        var batch = new ArrayList<Map<String, Object>>();
+        while (true) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    // Checked under the lock, so nothing can be queued between this check and the thread stopping
+                    synchronized (lock) {
+                        if (closed && queue.isEmpty()) {
+                            return;
+                        }
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                synchronized (lock) {
+                    lock.notifyAll();
+                }
+                writeLines(batch);
+            } catch (InterruptedException e) {
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeLines(List<Map<String, Object>> batch) {
+        for (var record : batch) {
+            try {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.write('\n');
+            } catch (JsonProcessingException e) {
+                log.warn(String.format("Could not serialize result for %s: %s", record.get("test"), e.getMessage()));
+            } catch (IOException e) {
+                log.warn(String.format("Could not write result for %s to %s: %s", record.get("test"), file, e.getMessage()));
+            }
+        }
+        try {
+            // Every line written so far survives a crash of the run
+            writer.flush();
+        } catch (IOException e) {
+            log.warn(String.format("Could not flush result file %s: %s", file, e.getMessage()));
+        }
+    }
+}
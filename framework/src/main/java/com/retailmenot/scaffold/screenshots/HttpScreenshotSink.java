@@ -0,0 +1,104 @@
+package com.retailmenot.scaffold.screenshots;
+
+import com.retailmenot.scaffold.screenshots.interfaces.ScreenshotSink;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A {@link ScreenshotSink} that PUTs each screenshot to {endpoint}/{key}. The screenshots of a batch are sent
+ * concurrently over a single {@link HttpClient}, which keeps its connections open between batches.
+ *
+ * The URL of each screenshot is the Location header of the response if there is one, and the URL it was PUT to
+ * otherwise. Any response other than a 2xx fails the batch.
+ */
+public class HttpScreenshotSink implements ScreenshotSink {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI endpoint;
+    private final HttpClient client;
+
+    /**
+     * @param endpoint the URL to upload screenshots under, e.g. https://screenshots.example.com/runs/1234/
+     */
+    public HttpScreenshotSink(URI endpoint) {
+        this(endpoint, HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build());
+    }
+
+    /**
+     * @param endpoint the URL to upload screenshots under
+     * @param client   the {@link HttpClient} to upload with, e.g. one configured with a proxy or authentication
+     */
+    public HttpScreenshotSink(URI endpoint, HttpClient client) {
+        this.endpoint = endpoint.toString().endsWith("/") ? endpoint : URI.create(endpoint + "/");
+        this.client = client;
+    }
+
+    @Override
+    public List<String> upload(List<ScreenshotUpload> batch) throws IOException {
+        var responses = new ArrayList<CompletableFuture<String>>(batch.size());
+        for (var upload : batch) {
+            var uri = endpoint.resolve(encode(upload.getKey()));
+            HttpRequest request;
+            try {
+                request = HttpRequest.newBuilder(uri)
+                        .timeout(REQUEST_TIMEOUT)
+                        .header("Content-Type", contentType(upload))
+                        .PUT(HttpRequest.BodyPublishers.ofFile(upload.getFile()))
+                        .build();
+            } catch (FileNotFoundException e) {
+                throw new IOException("Screenshot no longer exists: " + upload.getFile(), e);
+            }
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(response -> {
+                if (response.statusCode() / 100 != 2) {
+                    throw new IllegalStateException(String.format("Uploading %s failed with status %d", uri, response.statusCode()));
+                }
+                return response.headers().firstValue("Location").map(location -> uri.resolve(location).toString()).orElse(uri.toString());
+            }));
+        }
+
+        var urls = new ArrayList<String>(batch.size());
+        try {
+            for (var response : responses) {
+                urls.add(response.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while uploading screenshots", e);
+        }
+        return urls;
+    }
+
+    private static String encode(String key) {
+        var segments = key.split("/");
+        for (var i = 0; i < segments.length; i++) {
+            segments[i] = URLEncoder.encode(segments[i], StandardCharsets.UTF_8).replace("+", "%20");
+        }
+        return String.join("/", segments);
+    }
+
+    private static String contentType(ScreenshotUpload upload) throws IOException {
+        var contentType = Files.probeContentType(upload.getFile());
+        return contentType == null ? "application/octet-stream" : contentType;
+    }
+
+    @Override
+    public String toString() {
+        return "endpoint " + endpoint;
+    }
+}
@@ -0,0 +1,47 @@
+package com.retailmenot.scaffold.screenshots;
+
+/**
+ * The formats the {@link ScreenshotPipeline} can re-encode screenshots to.
+ */
+public enum ImageFormat {
+    /**
+     * Lossless, larger files. Use it when screenshots are compared pixel by pixel.
+     */
+    PNG("png", "png", false),
+
+    /**
+     * Lossy, typically a tenth of the size of the PNG the browser returns. Transparency is dropped.
+     */
+    JPEG("jpeg", "jpg", true);
+
+    private final String formatName;
+    private final String extension;
+    private final boolean lossy;
+
+    ImageFormat(String formatName, String extension, boolean lossy) {
+        this.formatName = formatName;
+        this.extension = extension;
+        this.lossy = lossy;
+    }
+
+    /**
+     * @return the ImageIO format name
+     */
+    public String getFormatName() {
+        return formatName;
+    }
+
+    /**
+     * @return the file extension, without the dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return whether or not the format takes a compression quality
+     */
+    public boolean isLossy() {
+        return lossy;
+    }
+}
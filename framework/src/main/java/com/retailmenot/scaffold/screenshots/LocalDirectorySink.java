@@ -0,0 +1,43 @@
+package com.retailmenot.scaffold.screenshots;
+
+import com.retailmenot.scaffold.screenshots.interfaces.ScreenshotSink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link ScreenshotSink} that copies screenshots to a directory, e.g. a network share the reports link to. The URL of
+ * each screenshot is its file URI.
+ */
+public class LocalDirectorySink implements ScreenshotSink {
+
+    private final Path directory;
+
+    /**
+     * @param directory the directory to copy screenshots to, created on the first upload
+     */
+    public LocalDirectorySink(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public List<String> upload(List<ScreenshotUpload> batch) throws IOException {
+        var urls = new ArrayList<String>(batch.size());
+        for (var upload : batch) {
+            var target = directory.resolve(upload.getKey());
+            Files.createDirectories(target.getParent());
+            Files.copy(upload.getFile(), target, StandardCopyOption.REPLACE_EXISTING);
+            urls.add(target.toUri().toString());
+        }
+        return urls;
+    }
+
+    @Override
+    public String toString() {
+        return "directory " + directory;
+    }
+}
@@ -0,0 +1,118 @@
+package com.retailmenot.scaffold.screenshots;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * A 256-bit average hash of an image. The image is reduced to a 16 by 16 grid of average brightness, and each bit
+ * records whether a cell is brighter than the image as a whole. Re-encoding, slight color shifts and anti-aliasing leave
+ * the hash unchanged or flip a few bits, while a different layout flips many, so the number of differing bits tells
+ * near-identical screenshots apart from different ones.
+ */
+public final class PerceptualHash {
+
+    private static final int COLUMNS = 16;
+    private static final int ROWS = 16;
+
+    private final long[] bits;
+
+    private PerceptualHash(long[] bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Computes the hash of an image, reading every pixel exactly once.
+     *
+     * @param image the image to hash
+     * @return the {@link PerceptualHash} of the image
+     */
+    public static PerceptualHash of(BufferedImage image) {
+        var width = image.getWidth();
+        var height = image.getHeight();
+        var brightness = new long[ROWS][COLUMNS];
+        var pixels = new long[ROWS][COLUMNS];
+        var row = new int[width];
+        for (var y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            var cellRow = (int) ((long) y * ROWS / height);
+            for (var x = 0; x < width; x++) {
+                var rgb = row[x];
+                var cellColumn = (int) ((long) x * COLUMNS / width);
+                brightness[cellRow][cellColumn] += (((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114);
+                pixels[cellRow][cellColumn]++;
+            }
+        }
+
+        var mean = new long[ROWS * COLUMNS];
+        var total = 0L;
+        for (var y = 0; y < ROWS; y++) {
+            for (var x = 0; x < COLUMNS; x++) {
+                mean[y * COLUMNS + x] = brightness[y][x] / Math.max(1, pixels[y][x]);
+                total += mean[y * COLUMNS + x];
+            }
+        }
+        var imageMean = total / mean.length;
+        var bits = new long[ROWS * COLUMNS / Long.SIZE];
+        for (var bit = 0; bit < mean.length; bit++) {
+            if (mean[bit] > imageMean) {
+                bits[bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+            }
+        }
+        return new PerceptualHash(bits);
+    }
+
+    /**
+     * Parses a hash from its hexadecimal form, as returned by {@link #toString()}.
+     *
+     * @param hex the hexadecimal form of the hash
+     * @return the {@link PerceptualHash}
+     */
+    public static PerceptualHash fromString(String hex) {
+        if (hex.length() != ROWS * COLUMNS / 4) {
+            throw new IllegalArgumentException("Not a perceptual hash: " + hex);
+        }
+        var bits = new long[hex.length() / 16];
+        for (var i = 0; i < bits.length; i++) {
+            bits[i] = Long.parseUnsignedLong(hex.substring(i * 16, i * 16 + 16), 16);
+        }
+        return new PerceptualHash(bits);
+    }
+
+    /**
+     * Returns the number of bits that differ between two hashes: 0 for identical looking images, and around half of
+     * them for unrelated ones.
+     *
+     * @param other the hash to compare with
+     * @return the number of differing bits
+     */
+    public int distance(PerceptualHash other) {
+        var distance = 0;
+        for (var i = 0; i < bits.length; i++) {
+            distance += Long.bitCount(bits[i] ^ other.bits[i]);
+        }
+        return distance;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PerceptualHash && Arrays.equals(bits, ((PerceptualHash) other).bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bits);
+    }
+
+    /**
+     * @return the hash as 64 hexadecimal digits
+     */
+    @Override
+    public String toString() {
+        var hex = new StringBuilder(bits.length * 16);
+        for (var word : bits) {
+            var digits = Long.toHexString(word);
+            hex.append("0".repeat(16 - digits.length())).append(digits);
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.retailmenot.scaffold.screenshots;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A handle on a screenshot handed to the {@link ScreenshotPipeline}. The screenshot is decoded, re-encoded and written
+ * in the background, so the handle is returned straight away and the file it ends up in is available through
+ * {@link #getFile()} once it has been written.
+ */
+public class ScreenshotArtifact {
+
+    private final String testName;
+    private final String name;
+    private final Instant capturedAt;
+    private final CompletableFuture<Path> file;
+
+    ScreenshotArtifact(String testName, String name, Instant capturedAt, CompletableFuture<Path> file) {
+        this.testName = testName;
+        this.name = name;
+        this.capturedAt = capturedAt;
+        this.file = file;
+    }
+
+    public String getTestName() {
+        return testName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Instant getCapturedAt() {
+        return capturedAt;
+    }
+
+    /**
+     * Returns the file the screenshot is written to. The future fails if the screenshot could not be decoded or written.
+     *
+     * @return a {@link CompletableFuture} completing with the {@link Path} of the written file
+     */
+    public CompletableFuture<Path> getFile() {
+        return file;
+    }
+
+    /**
+     * Blocks until the screenshot has been written.
+     *
+     * @return the {@link Path} of the written file
+     */
+    public Path awaitFile() {
+        return file.join();
+    }
+
+    /**
+     * @return whether or not the screenshot has been written, or has failed to be
+     */
+    public boolean isDone() {
+        return file.isDone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("screenshot %s of %s", name, testName);
+    }
+}
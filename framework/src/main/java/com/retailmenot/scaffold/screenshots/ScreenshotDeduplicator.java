@@ -0,0 +1,174 @@
+package com.retailmenot.scaffold.screenshots;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps track of the screenshots a {@link ScreenshotPipeline} has stored, by {@link PerceptualHash}, so a screenshot
+ * that is the same as one already stored is not stored again: the login page or the same error banner is written once
+ * per run, and every test that captured it references the same file.
+ *
+ * By default only screenshots with exactly the same pixels are considered the same. A maximum distance can be given to
+ * also match screenshots whose hashes differ by at most that many bits, e.g. {@link #SIMILAR_MAX_DISTANCE} matches
+ * re-encoded screenshots or ones with a blinking cursor. The hash is coarse though: a block of text, such as a different
+ * error message, hardly changes it, so fuzzy matching can store screenshots with meaningful differences as one, and
+ * point a test at another test's screenshot.
+ */
+public class ScreenshotDeduplicator {
+
+    public static final int DEFAULT_MAX_DISTANCE = 0;
+    public static final int SIMILAR_MAX_DISTANCE = 6;
+
+    private final int maxDistance;
+    private final List<Entry> stored = new ArrayList<>();
+    private final LongAdder duplicates = new LongAdder();
+
+    public ScreenshotDeduplicator() {
+        this(DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * @param maxDistance the most bits two hashes can differ by and still be considered the same screenshot, or 0 to only
+     *                    match screenshots with exactly the same pixels
+     */
+    public ScreenshotDeduplicator(int maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Looks up a screenshot that is the same as the one with the given hash and pixels. If there is none, the screenshot
+     * is claimed, and the caller is expected to store it under the claim's name and complete the claim's file.
+     *
+     * @param hash  the {@link PerceptualHash} of the screenshot
+     * @param image the screenshot
+     * @return the {@link Claim} for the screenshot
+     */
+    Claim claim(PerceptualHash hash, BufferedImage image) {
+        // Only needed to tell screenshots with the same hash apart, which is all that is compared when matching exactly
+        var digest = maxDistance == 0 ? digest(image) : null;
+        return claim(hash, digest);
+    }
+
+    private synchronized Claim claim(PerceptualHash hash, byte[] digest) {
+        // Linear, but a run only stores a few hundred distinct screenshots and comparing two hashes is four bit counts
+        var sameHash = 0;
+        for (var entry : stored) {
+            var distance = entry.hash.distance(hash);
+            if (distance <= maxDistance && (digest == null || Arrays.equals(entry.digest, digest))) {
+                duplicates.increment();
+                return new Claim(entry.name, entry.file, false);
+            }
+            if (distance == 0) {
+                sameHash++;
+            }
+        }
+        // Screenshots that differ in a way the hash doesn't see share a hash, so each one gets a name of its own
+        var name = sameHash == 0 ? hash.toString() : hash + "-" + sameHash;
+        var entry = new Entry(hash, digest, name, new CompletableFuture<>());
+        stored.add(entry);
+        // Forget screenshots that could not be stored, so the next one that looks the same gets another chance
+        entry.file.whenComplete((file, e) -> {
+            if (e != null) {
+                forget(entry);
+            }
+        });
+        return new Claim(name, entry.file, true);
+    }
+
+    private static byte[] digest(BufferedImage image) {
+        var width = image.getWidth();
+        var height = image.getHeight();
+        var pixels = ByteBuffer.allocate(width * Integer.BYTES);
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ByteBuffer.allocate(2 * Integer.BYTES).putInt(width).putInt(height).array());
+            var row = new int[width];
+            for (var y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                pixels.clear();
+                pixels.asIntBuffer().put(row);
+                digest.update(pixels.array());
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private synchronized void forget(Entry entry) {
+        stored.remove(entry);
+    }
+
+    /**
+     * @return the number of distinct screenshots stored
+     */
+    public synchronized int getStoredCount() {
+        return stored.size();
+    }
+
+    /**
+     * @return the number of screenshots that were not stored because one that looks the same already was
+     */
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * The outcome of {@link #claim(PerceptualHash, BufferedImage)}: the name the screenshot is stored under, its hash
+     * with a suffix if another screenshot already has that hash, and the file it is, or will be, stored in.
+     */
+    static class Claim {
+        private final String name;
+        private final CompletableFuture<Path> file;
+        private final boolean owner;
+
+        Claim(String name, CompletableFuture<Path> file, boolean owner) {
+            this.name = name;
+            this.file = file;
+            this.owner = owner;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        CompletableFuture<Path> getFile() {
+            return file;
+        }
+
+        /**
+         * @return whether or not the caller has to store the screenshot
+         */
+        boolean isOwner() {
+            return owner;
+        }
+    }
+
+    private static class Entry {
+        private final PerceptualHash hash;
+        // The digest of the pixels, or null when matching by hash distance only
+        private final byte[] digest;
+        private final String name;
+        private final CompletableFuture<Path> file;
+
+        Entry(PerceptualHash hash, byte[] digest, String name, CompletableFuture<Path> file) {
+            this.hash = hash;
+            this.digest = digest;
+            this.name = name;
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.retailmenot.scaffold.screenshots;
+
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Takes screenshots off the test thread. The test thread only asks the browser for the screenshot, so it shows the page
+ * at the moment it was asked for, and gets a {@link ScreenshotArtifact} back straight away. Decoding the base64 PNG and
+ * re-encoding it to the configured {@link ImageFormat} happens on a pool of encoder threads, and writing the result to
+ * disk on a separate pool of writer threads, so slow disks never hold up encoding.
+ *
+ * Both pools have bounded queues. When screenshots come in faster than they can be encoded, the thread handing them in
+ * encodes its own, which keeps the number of payloads held in memory bounded. Work handed to a pool that has already
+ * been closed fails its screenshot's file rather than being dropped.
+ *
+ * Files are written to the output directory as {test name}/{screenshot name}-{sequence}.{extension}, or, when
+ * de-duplicating through a {@link ScreenshotDeduplicator}, as unique/{perceptual hash}.{extension}, suffixed with a
+ * number when screenshots that aren't the same share a hash.
+ */
+@Slf4j
+public class ScreenshotPipeline implements AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    /**
+     * The directory, under the output directory, de-duplicated screenshots are written to.
+     */
+    public static final String UNIQUE_DIRECTORY = "unique";
+
+    private final Path directory;
+    private final ImageFormat format;
+    private final float quality;
+    private final ExecutorService encoders;
+    private final ExecutorService writers;
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile ScreenshotDeduplicator deduplicator;
+
+    /**
+     * Creates a pipeline with one encoder thread per two processors and two writer threads.
+     *
+     * @param directory the directory to write screenshots to
+     * @param format    the {@link ImageFormat} to re-encode screenshots to
+     * @param quality   the compression quality between 0 and 1, used by lossy formats only
+     */
+    public ScreenshotPipeline(Path directory, ImageFormat format, float quality) {
+        this(directory, format, quality, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 2);
+    }
+
+    /**
+     * @param directory      the directory to write screenshots to
+     * @param format         the {@link ImageFormat} to re-encode screenshots to
+     * @param quality        the compression quality between 0 and 1, used by lossy formats only
+     * @param encoderThreads the number of threads decoding and re-encoding screenshots
+     * @param writerThreads  the number of threads writing screenshots to disk
+     */
+    public ScreenshotPipeline(Path directory, ImageFormat format, float quality, int encoderThreads, int writerThreads) {
+        if (quality < 0 || quality > 1) {
+            throw new IllegalArgumentException("Screenshot quality must be between 0 and 1: " + quality);
+        }
+        this.directory = directory;
+        this.format = format;
+        this.quality = quality;
+        this.encoders = newPool("screenshot-encoder", encoderThreads);
+        this.writers = newPool("screenshot-writer", writerThreads);
+    }
+
+    /**
+     * Takes a screenshot of the browser and hands it to the pipeline, naming it after the current test. Once written, the
+     * screenshot becomes the screen shot of the test's TestInformation. If the test's driver was configured to upload
+     * screenshots, it is uploaded through the {@link ScreenshotUploader} of the {@link TestContext} first, and the
+     * uploaded URL is used instead.
+     *
+     * @param driver the {@link WebDriverWrapper} to take the screenshot with
+     * @param name   the name of the screenshot, e.g. "after-login"
+     * @return the {@link ScreenshotArtifact} for the screenshot
+     */
+    public ScreenshotArtifact capture(WebDriverWrapper driver, String name) {
+        var context = TestContext.baseContext().getWebDriverContext();
+        var testName = context.getTestName();
+        var artifact = submit(testName, name, driver.getScreenShot());
+        if (testName != null) {
+            var webDriverManager = context.getWebDriverManager();
+            if (webDriverManager != null && webDriverManager.isUploadingScreenshots()) {
+                TestContext.baseContext().trackPendingWork(testName, TestContext.baseContext().getScreenshotUploader().upload(artifact)
+                        .thenAccept(url -> TestContext.baseContext().setScreenShotUrlForTest(testName, url)));
+            } else {
+                TestContext.baseContext().trackPendingWork(testName, artifact.getFile()
+                        .thenAccept(file -> TestContext.baseContext().setScreenShotUrlForTest(testName, file.toUri().toString())));
+            }
+        }
+        return artifact;
+    }
+
+    /**
+     * Hands an already taken screenshot to the pipeline.
+     *
+     * @param testName  the name of the test the screenshot belongs to
+     * @param name      the name of the screenshot
+     * @param base64Png the screenshot as returned by the browser
+     * @return the {@link ScreenshotArtifact} for the screenshot
+     */
+    public ScreenshotArtifact submit(String testName, String name, String base64Png) {
+        if (encoders.isShutdown()) {
+            throw new IllegalStateException("Screenshot pipeline has been closed");
+        }
+        var capturedAt = Instant.now();
+        var deduplicator = this.deduplicator;
+        CompletableFuture<Path> written;
+        if (deduplicator == null) {
+            var file = directory
+                    .resolve(sanitize(testName == null ? "unknown" : testName))
+                    .resolve(String.format("%s-%d.%s", sanitize(name), sequence.incrementAndGet(), format.getExtension()));
+            written = runOn(encoders, () -> encode(base64Png))
+                    .thenCompose(bytes -> runOn(writers, () -> write(file, bytes)));
+        } else {
+            written = runOn(encoders, () -> storeOnce(deduplicator, base64Png))
+                    .thenCompose(file -> file);
+        }
+        written.whenComplete((path, e) -> {
+            if (e != null) {
+                log.warn(String.format("Could not write screenshot %s of %s: %s", name, testName, e.getMessage()));
+            }
+        });
+        return new ScreenshotArtifact(testName, name, capturedAt, written);
+    }
+
+    /**
+     * Sets the {@link ScreenshotDeduplicator} to store screenshots through. Screenshots that are the same as one
+     * already stored are then not written again, and every screenshot is written to the {@link #UNIQUE_DIRECTORY} under
+     * its {@link PerceptualHash} instead of under its test.
+     *
+     * @param deduplicator the {@link ScreenshotDeduplicator}, or null to store every screenshot
+     * @return this {@link ScreenshotPipeline}
+     */
+    public ScreenshotPipeline deduplicateWith(ScreenshotDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+        return this;
+    }
+
+    public ScreenshotDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public ImageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Waits for every screenshot handed in so far to be written, then stops the pipeline's threads.
+     */
+    @Override
+    public void close() {
+        // Encoders hand their output to the writers, so they have to be drained first
+        awaitShutdown(encoders);
+        awaitShutdown(writers);
+    }
+
+    private byte[] encode(String base64Png) {
+        var png = decode(base64Png);
+        if (format == ImageFormat.PNG) {
+            // Already in the format we want, there is nothing to gain from decoding it
+            return png;
+        }
+        return encode(read(png));
+    }
+
+    private CompletableFuture<Path> storeOnce(ScreenshotDeduplicator deduplicator, String base64Png) {
+        var png = decode(base64Png);
+        var image = read(png);
+        var claim = deduplicator.claim(PerceptualHash.of(image), image);
+        if (!claim.isOwner()) {
+            log.debug("Screenshot is the same as " + claim.getName() + ", not storing it again");
+            return claim.getFile();
+        }
+        var file = directory.resolve(UNIQUE_DIRECTORY).resolve(claim.getName() + "." + format.getExtension());
+        try {
+            var bytes = format == ImageFormat.PNG ? png : encode(image);
+            runOn(writers, () -> write(file, bytes)).whenComplete((path, e) -> {
+                if (e != null) {
+                    claim.getFile().completeExceptionally(e);
+                } else {
+                    claim.getFile().complete(path);
+                }
+            });
+        } catch (RuntimeException e) {
+            claim.getFile().completeExceptionally(e);
+        }
+        return claim.getFile();
+    }
+
+    private static byte[] decode(String base64Png) {
+        return Base64.getMimeDecoder().decode(base64Png.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static BufferedImage read(byte[] png) {
+        try {
+            var image = ImageIO.read(new ByteArrayInputStream(png));
+            if (image == null) {
+                throw new IllegalArgumentException("Screenshot is not an image ImageIO can read");
+            }
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] encode(BufferedImage image) {
+        try {
+            return encode(image, format, quality);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Encodes an image to the given format.
+     *
+     * @param image   the image to encode
+     * @param format  the {@link ImageFormat} to encode to
+     * @param quality the compression quality between 0 and 1, used by lossy formats only
+     * @return the encoded image
+     * @throws IOException if the image could not be encoded
+     */
+    static byte[] encode(BufferedImage image, ImageFormat format, float quality) throws IOException {
+        if (format.isLossy() && image.getColorModel().hasAlpha()) {
+            // JPEG has no alpha channel, and ImageIO writes images that have one with the wrong colors
+            var opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            var graphics = opaque.createGraphics();
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+            graphics.dispose();
+            image = opaque;
+        }
+        var writer = ImageIO.getImageWritersByFormatName(format.getFormatName()).next();
+        var output = new ByteArrayOutputStream(image.getWidth() * image.getHeight() / 4);
+        try (var stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            var parameters = writer.getDefaultWriteParam();
+            if (format.isLossy()) {
+                parameters.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                parameters.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), parameters);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private Path write(Path file, byte[] bytes) {
+        try {
+            Files.createDirectories(file.getParent());
+            var temporary = file.resolveSibling(file.getFileName() + ".part");
+            Files.write(temporary, bytes);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug(String.format("Wrote screenshot %s (%d bytes)", file, bytes.length));
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]+", "_");
+    }
+
+    /**
+     * Runs the work on one of the pool's threads. The returned future fails if the pool has been closed.
+     *
+     * @param executor the pool, created by {@link #newPool(String, int)}
+     * @param work     the work to run
+     * @param <T> the type reference
+     * @return the {@link CompletableFuture} of the work's result
+     */
+    static <T> CompletableFuture<T> runOn(ExecutorService executor, Supplier<T> work) {
+        var task = new PipelineTask<>(work);
+        executor.execute(task);
+        return task.result;
+    }
+
+    static ExecutorService newPool(String name, int threads) {
+        var count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            var thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        RejectedExecutionHandler whenFull = (runnable, executor) -> {
+            if (!executor.isShutdown()) {
+                // Same as CallerRunsPolicy: the thread handing in work does it itself
+                runnable.run();
+            } else if (runnable instanceof PipelineTask) {
+                ((PipelineTask<?>) runnable).result.completeExceptionally(
+                        new IllegalStateException("Screenshot pipeline has been closed"));
+            } else {
+                throw new RejectedExecutionException("Screenshot pipeline has been closed");
+            }
+        };
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), factory, whenFull);
+    }
+
+    private static void awaitShutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Screenshots were still being written after " + SHUTDOWN_TIMEOUT_SECONDS + " seconds, giving up on them");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A piece of work for one of the pools, carrying the future of its result so that a rejected task can still fail it.
+     */
+    private static class PipelineTask<T> implements Runnable {
+        private final Supplier<T> work;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        PipelineTask(Supplier<T> work) {
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result.complete(work.get());
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.retailmenot.scaffold.screenshots;
+
+import java.nio.file.Path;
+
+/**
+ * A screenshot file waiting to be uploaded by a {@link ScreenshotUploader}.
+ */
+public class ScreenshotUpload {
+
+    private final String testName;
+    private final String name;
+    private final Path file;
+
+    public ScreenshotUpload(String testName, String name, Path file) {
+        this.testName = testName;
+        this.name = name;
+        this.file = file;
+    }
+
+    public String getTestName() {
+        return testName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the key the screenshot is uploaded under: the name of the directory it was written to and its file name,
+     * e.g. "unique/3f2a...c1.jpg" for a de-duplicated screenshot.
+     *
+     * @return the key
+     */
+    public String getKey() {
+        var parent = file.getParent();
+        return parent == null || parent.getFileName() == null
+                ? file.getFileName().toString()
+                : parent.getFileName() + "/" + file.getFileName();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("screenshot %s of %s (%s)", name, testName, file);
+    }
+}
@@ -0,0 +1,319 @@
+package com.retailmenot.scaffold.screenshots;
+
+import com.retailmenot.scaffold.screenshots.interfaces.ScreenshotSink;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads screenshots to a {@link ScreenshotSink} in the background. Screenshots are queued and a single uploader thread
+ * sends them to the sink in batches, retrying failed batches with an increasing delay.
+ *
+ * The queue is bounded. When the sink falls behind, queuing a screenshot blocks for a while and then gives up on it, so
+ * a slow or unreachable sink slows screenshots down without ever holding up a run indefinitely. Screenshots handed in
+ * by the {@link ScreenshotPipeline} are queued from a thread of the uploader's own, so a full queue never holds up
+ * encoding.
+ *
+ * Each file is uploaded once while its upload is in progress or among the last {@value #RECENT_UPLOADS} uploaded,
+ * however many times it is handed in, so screenshots de-duplicated by a {@link ScreenshotDeduplicator} are also only
+ * uploaded once.
+ */
+@Slf4j
+public class ScreenshotUploader implements AutoCloseable {
+
+    private static final Duration OFFER_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(60);
+    static final int RECENT_UPLOADS = 1024;
+
+    private final ScreenshotSink sink;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final BlockingQueue<Pending> queue;
+    // Uploads in progress, and the URLs of the most recent ones
+    private final Map<Path, CompletableFuture<String>> uploads = new ConcurrentHashMap<>();
+    private final Map<Path, String> recentUploads = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, String> eldest) {
+            return size() > RECENT_UPLOADS;
+        }
+    });
+    private final ExecutorService queuer;
+    private final Thread uploaderThread;
+    // Guards closing against queuing, so nothing is queued once the uploader thread may have stopped draining
+    private final Object lock = new Object();
+    private volatile boolean closed = false;
+
+    /**
+     * Creates an uploader with a queue of 256 screenshots, batches of up to 16 and three attempts per batch.
+     *
+     * @param sink the {@link ScreenshotSink} to upload to
+     */
+    public ScreenshotUploader(ScreenshotSink sink) {
+        this(sink, 256, 16, 3, Duration.ofSeconds(1));
+    }
+
+    /**
+     * @param sink          the {@link ScreenshotSink} to upload to
+     * @param queueCapacity the most screenshots waiting to be uploaded before queuing more blocks
+     * @param batchSize     the most screenshots handed to the sink at once
+     * @param maxAttempts   the number of times a batch is tried before its screenshots are given up on
+     * @param retryDelay    the delay before the first retry, doubled for every following one
+     */
+    public ScreenshotUploader(ScreenshotSink sink, int queueCapacity, int batchSize, int maxAttempts, Duration retryDelay) {
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queuer = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "screenshot-upload-queuer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.uploaderThread = new Thread(this::run, "screenshot-uploader");
+        this.uploaderThread.setDaemon(true);
+        this.uploaderThread.start();
+    }
+
+    /**
+     * Uploads a screenshot once the {@link ScreenshotPipeline} has written it. Never blocks, neither the caller nor the
+     * pipeline thread that writes the screenshot.
+     *
+     * @param artifact the {@link ScreenshotArtifact} of the screenshot
+     * @return a {@link CompletableFuture} completing with the URL of the uploaded screenshot
+     */
+    public CompletableFuture<String> upload(ScreenshotArtifact artifact) {
+        return artifact.getFile().thenCompose(file -> {
+            var task = new QueueTask(new ScreenshotUpload(artifact.getTestName(), artifact.getName(), file));
+            try {
+                queuer.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.url.completeExceptionally(new IllegalStateException("Screenshot uploader has been closed"));
+            }
+            return task.url;
+        });
+    }
+
+    /**
+     * Queues a screenshot for upload. Blocks while the queue is full, for up to 30 seconds.
+     *
+     * @param upload the {@link ScreenshotUpload}
+     * @return a {@link CompletableFuture} completing with the URL of the uploaded screenshot
+     */
+    public CompletableFuture<String> upload(ScreenshotUpload upload) {
+        if (closed) {
+            throw new IllegalStateException("Screenshot uploader has been closed");
+        }
+        var recent = recentUploads.get(upload.getFile());
+        if (recent != null) {
+            return CompletableFuture.completedFuture(recent);
+        }
+        var future = new CompletableFuture<String>();
+        var existing = uploads.putIfAbsent(upload.getFile(), future);
+        if (existing != null) {
+            return existing;
+        }
+        future.thenAccept(url -> {
+            recentUploads.put(upload.getFile(), url);
+            uploads.remove(upload.getFile(), future);
+        });
+        var pending = new Pending(upload, future);
+        var deadline = System.nanoTime() + OFFER_TIMEOUT.toNanos();
+        synchronized (lock) {
+            try {
+                while (!closed && !queue.offer(pending)) {
+                    var remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        fail(future, upload, new RejectedExecutionException("Upload queue stayed full for " + OFFER_TIMEOUT.toSeconds() + " seconds"));
+                        return future;
+                    }
+                    // Woken up by the uploader thread once it takes screenshots off the queue, or by close()
+                    lock.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(future, upload, e);
+                return future;
+            }
+            // The lock is held from the last check of closed through the offer, so the screenshot was only queued if the
+            // uploader is still open
+            if (closed) {
+                fail(future, upload, new IllegalStateException("Screenshot uploader has been closed"));
+            }
+        }
+        return future;
+    }
+
+    /**
+     * @return the number of screenshots waiting to be uploaded
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting screenshots and waits for the queued ones to be uploaded.
+     */
+    @Override
+    public void close() {
+        // Screenshots written before closing are still queued
+        queuer.shutdown();
+        try {
+            if (!queuer.awaitTermination(OFFER_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                dropQueueTasks();
+            }
+        } catch (InterruptedException e) {
+            dropQueueTasks();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            uploaderThread.join(SHUTDOWN_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (uploaderThread.isAlive()) {
+            log.warn(String.format("%d screenshots were still waiting to be uploaded after %d seconds, giving up on them",
+                    queue.size(), SHUTDOWN_TIMEOUT.toSeconds()));
+            uploaderThread.interrupt();
+        }
+    }
+
+    /**
+     * Stops queuing screenshots, failing the ones that were still waiting to be queued so whoever waits on them doesn't
+     * wait forever. The one being queued is interrupted, which fails it too.
+     */
+    private void dropQueueTasks() {
+        var dropped = queuer.shutdownNow();
+        for (var task : dropped) {
+            var upload = ((QueueTask) task).upload;
+            ((QueueTask) task).url.completeExceptionally(new IllegalStateException("Screenshot uploader was closed before " + upload + " was queued"));
+        }
+        if (!dropped.isEmpty()) {
+            log.warn(String.format("Screenshot uploader closed before %d screenshots could be queued, giving up on them", dropped.size()));
+        }
+    }
+
+    private void run() {
+        var batch = new ArrayList<Pending>(batchSize);
+        while (true) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    // Checked under the lock, so nothing can be queued between this check and the thread stopping
+                    synchronized (lock) {
+                        if (closed && queue.isEmpty()) {
+                            return;
+                        }
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                synchronized (lock) {
+                    lock.notifyAll();
+                }
+                send(batch);
+            } catch (InterruptedException e) {
+                batch.forEach(pending -> fail(pending.future, pending.upload, e));
+                queue.forEach(pending -> fail(pending.future, pending.upload, e));
+                return;
+            } catch (RuntimeException e) {
+                // A misbehaving sink must not stop every later upload
+                batch.forEach(pending -> fail(pending.future, pending.upload, e));
+            }
+            batch.clear();
+        }
+    }
+
+    private void send(List<Pending> batch) throws InterruptedException {
+        var screenshots = new ArrayList<ScreenshotUpload>(batch.size());
+        batch.forEach(pending -> screenshots.add(pending.upload));
+        var delay = retryDelay;
+        for (var attempt = 1; ; attempt++) {
+            try {
+                var urls = sink.upload(screenshots);
+                if (urls.size() != batch.size()) {
+                    throw new IOException(String.format("Sink returned %d URLs for %d screenshots", urls.size(), batch.size()));
+                }
+                for (var i = 0; i < batch.size(); i++) {
+                    batch.get(i).future.complete(urls.get(i));
+                }
+                log.debug(String.format("Uploaded %d screenshots to %s", batch.size(), sink));
+                return;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts) {
+                    batch.forEach(pending -> fail(pending.future, pending.upload, e));
+                    return;
+                }
+                log.debug(String.format("Uploading %d screenshots to %s failed, retrying in %d ms: %s",
+                        batch.size(), sink, delay.toMillis(), e.getMessage()));
+                Thread.sleep(delay.toMillis());
+                delay = delay.multipliedBy(2);
+            }
+        }
+    }
+
+    private void fail(CompletableFuture<String> future, ScreenshotUpload upload, Throwable e) {
+        // Let a later request for the same file try again
+        uploads.remove(upload.getFile(), future);
+        future.completeExceptionally(e);
+        log.warn(String.format("Could not upload %s to %s: %s", upload, sink, e.getMessage()));
+    }
+
+    /**
+     * Queues a screenshot from the queuer thread, completing its URL once the screenshot has been uploaded.
+     */
+    private class QueueTask implements Runnable {
+        private final ScreenshotUpload upload;
+        private final CompletableFuture<String> url = new CompletableFuture<>();
+
+        QueueTask(ScreenshotUpload upload) {
+            this.upload = upload;
+        }
+
+        @Override
+        public void run() {
+            try {
+                upload(upload).whenComplete((result, e) -> {
+                    if (e != null) {
+                        url.completeExceptionally(e);
+                    } else {
+                        url.complete(result);
+                    }
+                });
+            } catch (RuntimeException e) {
+                url.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class Pending {
+        private final ScreenshotUpload upload;
+        private final CompletableFuture<String> future;
+
+        Pending(ScreenshotUpload upload, CompletableFuture<String> future) {
+            this.upload = upload;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.retailmenot.scaffold.screenshots;
+
+import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares screenshots to stored baselines. The images are split into square tiles that are compared in parallel on a
+ * {@link ForkJoinPool}, so a full HD comparison takes a few milliseconds of wall time instead of occupying the test
+ * thread.
+ *
+ * - Each image is decoded into a pixel array once and every tile reads from it. The most recently used baselines are
+ *   also cached by path, 8 by default, so comparing many screenshots against the same baseline decodes it once, without
+ *   holding every baseline of a suite in memory.
+ * - Pixels within ignored regions, such as ads or clocks, are not compared.
+ * - Channels that differ by no more than the color tolerance count as the same, which absorbs compression noise.
+ * - With anti-aliasing tolerance, a pixel only differs if neither image has a matching pixel next to it. Edges that are
+ *   rendered a pixel apart, or with slightly different smoothing, are then not reported.
+ * - Once more pixels differ than the budget allows, every tile stops, since the result is already a mismatch.
+ */
+@Slf4j
+public class VisualComparator {
+
+    private static final int DEFAULT_CACHED_BASELINES = 8;
+
+    private int tileSize = 64;
+    private int colorTolerance = 16;
+    private boolean antiAliasingTolerance = true;
+    private long differenceBudget = Long.MAX_VALUE;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final List<Rectangle> ignoredRegions = new ArrayList<>();
+    private volatile int cachedBaselines = DEFAULT_CACHED_BASELINES;
+    // In access order, so the least recently compared baseline is dropped first
+    private final Map<Path, Pixels> baselines = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Pixels> eldest) {
+            return size() > cachedBaselines;
+        }
+    });
+
+    /**
+     * Sets the width and height of the tiles compared in parallel.
+     *
+     * @param tileSize the tile size in pixels
+     * @return this {@link VisualComparator}
+     */
+    public VisualComparator tileSize(int tileSize) {
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    /**
+     * Sets how much each color channel of a pixel can differ while still counting as the same.
+     *
+     * @param colorTolerance the tolerance, from 0 to 255
+     * @return this {@link VisualComparator}
+     */
+    public VisualComparator colorTolerance(int colorTolerance) {
+        this.colorTolerance = colorTolerance;
+        return this;
+    }
+
+    /**
+     * Sets whether or not differences that are only a pixel's shift apart are ignored.
+     *
+     * @param antiAliasingTolerance true to ignore them
+     * @return this {@link VisualComparator}
+     */
+    public VisualComparator antiAliasingTolerance(boolean antiAliasingTolerance) {
+        this.antiAliasingTolerance = antiAliasingTolerance;
+        return this;
+    }
+
+    /**
+     * Sets the most pixels that can differ before the comparison stops early.
+     *
+     * @param differenceBudget the number of pixels
+     * @return this {@link VisualComparator}
+     */
+    public VisualComparator differenceBudget(long differenceBudget) {
+        this.differenceBudget = differenceBudget;
+        return this;
+    }
+
+    /**
+     * Excludes a region from the comparison.
+     *
+     * @param region the region, in screenshot pixels
+     * @return this {@link VisualComparator}
+     */
+    public VisualComparator ignoring(Rectangle region) {
+        this.ignoredRegions.add(region);
+        return this;
+    }
+
+    /**
+     * Sets how many decoded baselines are kept to compare later screenshots against. A full HD baseline takes about 8 MB.
+     *
+     * @param cachedBaselines the number of baselines, 0 to decode the baseline for every comparison
+     * @return this {@link VisualComparator}
+     */
+    public VisualComparator cachedBaselines(int cachedBaselines) {
+        this.cachedBaselines = cachedBaselines;
+        baselines.clear();
+        return this;
+    }
+
+    /**
+     * Sets the pool tiles are compared on, the common pool by default.
+     *
+     * @param pool the {@link ForkJoinPool}
+     * @return this {@link VisualComparator}
+     */
+    public VisualComparator pool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Takes a screenshot and compares it to the baseline in the given file. If there is no baseline yet, the screenshot
+     * becomes the baseline.
+     *
+     * @param driver   the {@link WebDriverWrapper} to take the screenshot with
+     * @param baseline the PNG file of the baseline
+     * @return the {@link VisualComparison}
+     */
+    public VisualComparison compare(WebDriverWrapper driver, Path baseline) {
+        return compare(baseline, driver.getScreenShot());
+    }
+
+    /**
+     * Compares a screenshot to the baseline in the given file. If there is no baseline yet, the screenshot becomes the
+     * baseline.
+     *
+     * @param baseline  the PNG file of the baseline
+     * @param base64Png the screenshot as returned by the browser
+     * @return the {@link VisualComparison}
+     */
+    public VisualComparison compare(Path baseline, String base64Png) {
+        var png = Base64.getMimeDecoder().decode(base64Png.getBytes(StandardCharsets.US_ASCII));
+        var current = Pixels.of(read(png));
+        if (!Files.exists(baseline)) {
+            try {
+                Files.createDirectories(baseline.toAbsolutePath().getParent());
+                Files.write(baseline, png);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not save new baseline " + baseline, e);
+            }
+            log.info("No baseline found, saved the screenshot as the new baseline: " + baseline);
+            baselines.put(baseline, current);
+            return new VisualComparison(current.width, current.height, 0, 0, false, true,
+                    new byte[current.width * current.height]);
+        }
+        var expected = baselines.get(baseline);
+        if (expected == null) {
+            // Decoded outside of the cache's lock, so comparisons against other baselines don't wait on it
+            try {
+                expected = Pixels.of(read(Files.readAllBytes(baseline)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read baseline " + baseline, e);
+            }
+            baselines.put(baseline, expected);
+        }
+        return compare(expected, current);
+    }
+
+    /**
+     * Compares two images.
+     *
+     * @param baseline the expected image
+     * @param current  the actual image
+     * @return the {@link VisualComparison}
+     */
+    public VisualComparison compare(BufferedImage baseline, BufferedImage current) {
+        return compare(Pixels.of(baseline), Pixels.of(current));
+    }
+
+    /**
+     * Drops a cached baseline, e.g. after it was updated on disk.
+     *
+     * @param baseline the baseline file
+     */
+    public void forgetBaseline(Path baseline) {
+        baselines.remove(baseline);
+    }
+
+    private VisualComparison compare(Pixels baseline, Pixels current) {
+        var comparison = new Comparison(baseline, current);
+        pool.invoke(comparison.new Tiles(0, comparison.tileCount()));
+        return new VisualComparison(comparison.width, comparison.height, comparison.differing.get(),
+                comparison.compared.get(), comparison.exceeded, false, comparison.mask);
+    }
+
+    private static BufferedImage read(byte[] png) {
+        try {
+            var image = ImageIO.read(new ByteArrayInputStream(png));
+            if (image == null) {
+                throw new IllegalArgumentException("Screenshot is not an image ImageIO can read");
+            }
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * An image decoded into one ARGB int per pixel.
+     */
+    private static class Pixels {
+        private final int width;
+        private final int height;
+        private final int[] argb;
+
+        Pixels(int width, int height, int[] argb) {
+            this.width = width;
+            this.height = height;
+            this.argb = argb;
+        }
+
+        static Pixels of(BufferedImage image) {
+            var width = image.getWidth();
+            var height = image.getHeight();
+            return new Pixels(width, height, image.getRGB(0, 0, width, height, null, 0, width));
+        }
+
+        boolean contains(int x, int y) {
+            return x >= 0 && y >= 0 && x < width && y < height;
+        }
+
+        int get(int x, int y) {
+            return argb[y * width + x];
+        }
+    }
+
+    /**
+     * The state of a single comparison, shared by all of its tiles. Tiles only write to their own part of the mask.
+     */
+    private class Comparison {
+        private final Pixels baseline;
+        private final Pixels current;
+        private final int width;
+        private final int height;
+        private final int columns;
+        private final byte[] mask;
+        private final AtomicLong differing = new AtomicLong();
+        private final AtomicLong compared = new AtomicLong();
+        private final List<Rectangle> ignored = new ArrayList<>(ignoredRegions);
+        private final int tileSize = VisualComparator.this.tileSize;
+        private final int tolerance = colorTolerance;
+        private final boolean antiAliasing = antiAliasingTolerance;
+        private final long budget = differenceBudget;
+        private volatile boolean exceeded = false;
+
+        Comparison(Pixels baseline, Pixels current) {
+            this.baseline = baseline;
+            this.current = current;
+            // Pixels that only exist in one of the images always differ
+            this.width = Math.max(baseline.width, current.width);
+            this.height = Math.max(baseline.height, current.height);
+            this.columns = (width + tileSize - 1) / tileSize;
+            this.mask = new byte[width * height];
+        }
+
+        int tileCount() {
+            return columns * ((height + tileSize - 1) / tileSize);
+        }
+
+        void compareTile(int tile) {
+            var tileBounds = new Rectangle(tile % columns * tileSize, tile / columns * tileSize, tileSize, tileSize)
+                    .intersection(new Rectangle(width, height));
+            var tileIgnored = new ArrayList<Rectangle>();
+            for (var region : ignored) {
+                if (region.intersects(tileBounds)) {
+                    tileIgnored.add(region);
+                }
+            }
+            for (var y = tileBounds.y; y < tileBounds.y + tileBounds.height; y++) {
+                if (exceeded) {
+                    return;
+                }
+                var rowDiffering = 0;
+                var rowCompared = 0;
+                for (var x = tileBounds.x; x < tileBounds.x + tileBounds.width; x++) {
+                    if (isIgnored(tileIgnored, x, y)) {
+                        mask[y * width + x] = VisualComparison.IGNORED;
+                        continue;
+                    }
+                    rowCompared++;
+                    if (differs(x, y)) {
+                        mask[y * width + x] = VisualComparison.DIFFERENT;
+                        rowDiffering++;
+                    }
+                }
+                compared.addAndGet(rowCompared);
+                if (rowDiffering > 0 && differing.addAndGet(rowDiffering) > budget) {
+                    exceeded = true;
+                }
+            }
+        }
+
+        private boolean isIgnored(List<Rectangle> regions, int x, int y) {
+            for (var region : regions) {
+                if (region.contains(x, y)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean differs(int x, int y) {
+            if (!baseline.contains(x, y) || !current.contains(x, y)) {
+                return true;
+            }
+            var expected = baseline.get(x, y);
+            var actual = current.get(x, y);
+            if (same(expected, actual)) {
+                return false;
+            }
+            return !antiAliasing || !(hasNeighbour(current, x, y, expected) && hasNeighbour(baseline, x, y, actual));
+        }
+
+        private boolean hasNeighbour(Pixels pixels, int x, int y, int pixel) {
+            for (var dy = -1; dy <= 1; dy++) {
+                for (var dx = -1; dx <= 1; dx++) {
+                    if ((dx != 0 || dy != 0) && pixels.contains(x + dx, y + dy) && same(pixels.get(x + dx, y + dy), pixel)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean same(int first, int second) {
+            return Math.abs(((first >> 16) & 0xFF) - ((second >> 16) & 0xFF)) <= tolerance
+                    && Math.abs(((first >> 8) & 0xFF) - ((second >> 8) & 0xFF)) <= tolerance
+                    && Math.abs((first & 0xFF) - (second & 0xFF)) <= tolerance;
+        }
+
+        /**
+         * Compares a range of tiles, splitting it in halves until single tiles are left.
+         */
+        private class Tiles extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final int from;
+            private final int to;
+
+            Tiles(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (exceeded) {
+                    return;
+                }
+                if (to - from <= 1) {
+                    if (from < to) {
+                        compareTile(from);
+                    }
+                    return;
+                }
+                var middle = (from + to) >>> 1;
+                invokeAll(new Tiles(from, middle), new Tiles(middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.retailmenot.scaffold.screenshots;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The result of a {@link VisualComparator} comparison: how many pixels differ between the baseline and the current
+ * screenshot, and a mask of where they are.
+ *
+ * When the comparison stopped early because the difference budget was exceeded, the counts and the mask only cover the
+ * tiles compared by then, so the score is a lower bound.
+ */
+public class VisualComparison {
+
+    static final byte SAME = 0;
+    static final byte DIFFERENT = 1;
+    static final byte IGNORED = 2;
+
+    private static final int DIFFERENT_COLOR = 0xFFFF0000;
+    private static final int IGNORED_COLOR = 0x80808080;
+
+    private final int width;
+    private final int height;
+    private final long differingPixels;
+    private final long comparedPixels;
+    private final boolean budgetExceeded;
+    private final boolean newBaseline;
+    private final byte[] mask;
+
+    VisualComparison(int width, int height, long differingPixels, long comparedPixels, boolean budgetExceeded,
+                     boolean newBaseline, byte[] mask) {
+        this.width = width;
+        this.height = height;
+        this.differingPixels = differingPixels;
+        this.comparedPixels = comparedPixels;
+        this.budgetExceeded = budgetExceeded;
+        this.newBaseline = newBaseline;
+        this.mask = mask;
+    }
+
+    /**
+     * @return the share of compared pixels that differ, between 0 and 1
+     */
+    public double getScore() {
+        return comparedPixels == 0 ? 0 : (double) differingPixels / comparedPixels;
+    }
+
+    /**
+     * Returns whether or not the screenshot matches its baseline.
+     *
+     * @param maxScore the highest {@link #getScore()} that still counts as a match
+     * @return true if the screenshot matches
+     */
+    public boolean matches(double maxScore) {
+        return !budgetExceeded && getScore() <= maxScore;
+    }
+
+    public long getDifferingPixels() {
+        return differingPixels;
+    }
+
+    /**
+     * @return the number of pixels compared, which excludes ignored regions
+     */
+    public long getComparedPixels() {
+        return comparedPixels;
+    }
+
+    /**
+     * @return whether or not the comparison stopped early because more pixels differed than the budget allows
+     */
+    public boolean isBudgetExceeded() {
+        return budgetExceeded;
+    }
+
+    /**
+     * @return whether or not there was no baseline, and the screenshot was saved as the new one
+     */
+    public boolean isNewBaseline() {
+        return newBaseline;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns whether or not the pixel at the given coordinates differs.
+     *
+     * @param x the x coordinate of the pixel
+     * @param y the y coordinate of the pixel
+     * @return true if the pixel differs
+     */
+    public boolean isDifferent(int x, int y) {
+        return mask[y * width + x] == DIFFERENT;
+    }
+
+    /**
+     * Renders the diff mask: differing pixels in red, ignored regions in translucent grey and everything else transparent.
+     *
+     * @return the diff mask as a {@link BufferedImage}
+     */
+    public BufferedImage getDiffMask() {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        var row = new int[width];
+        for (var y = 0; y < height; y++) {
+            for (var x = 0; x < width; x++) {
+                var pixel = mask[y * width + x];
+                row[x] = pixel == DIFFERENT ? DIFFERENT_COLOR : pixel == IGNORED ? IGNORED_COLOR : 0;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    @Override
+    public String toString() {
+        if (newBaseline) {
+            return "new baseline";
+        }
+        return String.format("%d of %d pixels differ (%.4f%%)%s", differingPixels, comparedPixels, getScore() * 100,
+                budgetExceeded ? ", stopped early" : "");
+    }
+}
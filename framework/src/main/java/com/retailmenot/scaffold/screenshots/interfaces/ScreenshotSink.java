@@ -0,0 +1,26 @@
+package com.retailmenot.scaffold.screenshots.interfaces;
+
+import com.retailmenot.scaffold.screenshots.ScreenshotUpload;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where a {@link com.retailmenot.scaffold.screenshots.ScreenshotUploader} uploads screenshots to, e.g. a shared
+ * directory or an HTTP endpoint.
+ *
+ * Sinks are called from the uploader's own thread with one batch at a time. A batch that fails is retried as a whole, so
+ * uploading the same screenshot twice must be harmless.
+ */
+@FunctionalInterface
+public interface ScreenshotSink {
+
+    /**
+     * Uploads a batch of screenshots.
+     *
+     * @param batch the screenshots to upload
+     * @return the URL of each uploaded screenshot, in the order of the batch
+     * @throws IOException if any of the screenshots could not be uploaded
+     */
+    List<String> upload(List<ScreenshotUpload> batch) throws IOException;
+}
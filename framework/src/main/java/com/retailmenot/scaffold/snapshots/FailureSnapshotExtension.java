@@ -0,0 +1,33 @@
+package com.retailmenot.scaffold.snapshots;
+
+import com.retailmenot.scaffold.webdriver.TestContext;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Records the failure of a test in its TestInformation, and persists the {@link SnapshotBuffer} of the test to the run's
+ * ArtifactStore when the test fails, dropping it otherwise.
+ *
+ * It runs right after the test method, on the test's thread and before any AfterEach method closes the driver or
+ * completes the test. It is registered on ScaffoldBaseTest, so every test extending it is covered.
+ */
+public class FailureSnapshotExtension implements AfterTestExecutionCallback {
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        var webDriverContext = TestContext.baseContext().getWebDriverContext();
+        var testName = webDriverContext.getTestName();
+        var failure = context.getExecutionException();
+        if (testName != null && failure.isPresent()) {
+            TestContext.baseContext().addExceptionForTest(testName, failure.get());
+        }
+        var snapshots = webDriverContext.getSnapshots();
+        if (snapshots == null) {
+            return;
+        }
+        if (failure.isPresent()) {
+            snapshots.persist(TestContext.baseContext().getArtifactStore(), testName);
+        }
+        snapshots.clear();
+    }
+}
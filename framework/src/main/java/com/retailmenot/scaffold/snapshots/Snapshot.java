@@ -0,0 +1,127 @@
+package com.retailmenot.scaffold.snapshots;
+
+import com.retailmenot.scaffold.util.JavascriptUtils;
+import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * What the page looked like right before an element interaction: its URL, its title and, depending on the
+ * {@link SnapshotLevel}, its DOM. The DOM is kept gzipped, typically a tenth of its size, since most snapshots are thrown
+ * away without ever being looked at.
+ */
+public class Snapshot {
+
+    private static final String SNAPSHOT_SCRIPT = "snapshot.js";
+
+    private final Instant takenAt;
+    private final String action;
+    private final String element;
+    private final String url;
+    private final String title;
+    private final byte[] compressedDom;
+
+    Snapshot(Instant takenAt, String action, String element, String url, String title, byte[] compressedDom) {
+        this.takenAt = takenAt;
+        this.action = action;
+        this.element = element;
+        this.url = url;
+        this.title = title;
+        this.compressedDom = compressedDom;
+    }
+
+    /**
+     * Takes a snapshot of the page in a single script call.
+     *
+     * @param driver  the {@link WebDriverWrapper} of the page
+     * @param level   the {@link SnapshotLevel} deciding what to record
+     * @param action  the interaction about to happen, e.g. "click"
+     * @param element the element about to be interacted with
+     * @return the {@link Snapshot}
+     */
+    static Snapshot take(WebDriverWrapper driver, SnapshotLevel level, String action, Object element) {
+        var includeDom = level == SnapshotLevel.DOM;
+        var result = driver.getJavascriptExecutor().executeScript(JavascriptUtils.getScript(SNAPSHOT_SCRIPT), includeDom);
+        String url = null;
+        String title = null;
+        String dom = null;
+        if (result instanceof List && ((List<?>) result).size() == 3) {
+            var values = (List<?>) result;
+            url = values.get(0) == null ? null : values.get(0).toString();
+            title = values.get(1) == null ? null : values.get(1).toString();
+            dom = values.get(2) == null ? null : values.get(2).toString();
+        }
+        return new Snapshot(Instant.now(), action, String.valueOf(element), url, title, dom == null ? null : compress(dom));
+    }
+
+    public Instant getTakenAt() {
+        return takenAt;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getElement() {
+        return element;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return whether or not the DOM was recorded
+     */
+    public boolean hasDom() {
+        return compressedDom != null;
+    }
+
+    /**
+     * @return the DOM, gzipped, or null if it was not recorded
+     */
+    public byte[] getCompressedDom() {
+        return compressedDom;
+    }
+
+    /**
+     * @return the DOM, or null if it was not recorded
+     */
+    public String getDom() {
+        if (compressedDom == null) {
+            return null;
+        }
+        try (var input = new GZIPInputStream(new ByteArrayInputStream(compressedDom))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] compress(String dom) {
+        var output = new ByteArrayOutputStream(dom.length() / 8);
+        try (var gzip = new GZIPOutputStream(output)) {
+            gzip.write(dom.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s on %s (%s)", takenAt, action, element, url, title);
+    }
+}
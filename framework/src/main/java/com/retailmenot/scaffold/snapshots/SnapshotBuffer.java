@@ -0,0 +1,134 @@
+package com.retailmenot.scaffold.snapshots;
+
+import com.retailmenot.scaffold.artifacts.ArtifactRef;
+import com.retailmenot.scaffold.artifacts.ArtifactStore;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriverException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The most recent {@link Snapshot}s of a single test, kept in a fixed size ring buffer. Element interactions record a
+ * snapshot right before they happen, and the oldest ones are dropped as new ones come in. The buffer is only persisted
+ * when the test fails (see {@link FailureSnapshotExtension}), which gives a failure the context that led up to it while
+ * passing tests only pay for a script call per interaction.
+ *
+ * Each test gets its own buffer through its WebDriverContext, created with the
+ * {@link com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting#SNAPSHOT_LEVEL} and
+ * {@link com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting#SNAPSHOT_BUFFER_SIZE} settings.
+ */
+@Slf4j
+public class SnapshotBuffer {
+
+    private final SnapshotLevel level;
+    private final Snapshot[] ring;
+    private int size = 0;
+    private int next = 0;
+
+    /**
+     * @param capacity the number of snapshots to keep
+     * @param level    the {@link SnapshotLevel} deciding what each snapshot records
+     */
+    public SnapshotBuffer(int capacity, SnapshotLevel level) {
+        this.level = level;
+        this.ring = new Snapshot[capacity];
+    }
+
+    /**
+     * Records a snapshot in the buffer of the current test, if it has one. A snapshot that can't be taken, e.g. because
+     * an alert is open, is skipped: snapshots never fail the interaction they precede.
+     *
+     * @param driver  the {@link WebDriverWrapper} of the page
+     * @param action  the interaction about to happen, e.g. "click"
+     * @param element the element about to be interacted with
+     */
+    public static void recordInteraction(WebDriverWrapper driver, String action, Object element) {
+        var buffer = TestContext.baseContext().getWebDriverContext().getSnapshots();
+        if (buffer != null) {
+            buffer.record(driver, action, element);
+        }
+    }
+
+    /**
+     * Takes a snapshot and adds it to the buffer.
+     *
+     * @param driver  the {@link WebDriverWrapper} of the page
+     * @param action  the interaction about to happen, e.g. "click"
+     * @param element the element about to be interacted with
+     */
+    public void record(WebDriverWrapper driver, String action, Object element) {
+        if (level == SnapshotLevel.OFF || ring.length == 0) {
+            return;
+        }
+        try {
+            add(Snapshot.take(driver, level, action, element));
+        } catch (WebDriverException e) {
+            log.debug(String.format("Could not take a snapshot before %s %s: %s", action, element, e.getMessage()));
+        }
+    }
+
+    synchronized void add(Snapshot snapshot) {
+        ring[next] = snapshot;
+        next = (next + 1) % ring.length;
+        size = Math.min(size + 1, ring.length);
+    }
+
+    /**
+     * @return the snapshots in the buffer, oldest first
+     */
+    public synchronized List<Snapshot> getSnapshots() {
+        var snapshots = new ArrayList<Snapshot>(size);
+        for (var i = 0; i < size; i++) {
+            snapshots.add(ring[(next - size + i + ring.length) % ring.length]);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Drops every snapshot in the buffer.
+     */
+    public synchronized void clear() {
+        Arrays.fill(ring, null);
+        size = 0;
+        next = 0;
+    }
+
+    public SnapshotLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Appends the snapshots to an {@link ArtifactStore}: a timeline of every snapshot as text, followed by each recorded
+     * DOM as a gzipped HTML file.
+     *
+     * @param store    the {@link ArtifactStore} to append to
+     * @param testName the name of the test the snapshots belong to
+     * @return the {@link ArtifactRef}s of the appended artifacts
+     */
+    public List<ArtifactRef> persist(ArtifactStore store, String testName) {
+        var snapshots = getSnapshots();
+        var refs = new ArrayList<ArtifactRef>();
+        if (snapshots.isEmpty()) {
+            return refs;
+        }
+        var timeline = new StringBuilder();
+        for (var i = 0; i < snapshots.size(); i++) {
+            timeline.append(i + 1).append(". ").append(snapshots.get(i)).append(System.lineSeparator());
+        }
+        refs.add(store.appendText(testName, "snapshots", "txt", timeline));
+        for (var i = 0; i < snapshots.size(); i++) {
+            var snapshot = snapshots.get(i);
+            if (snapshot.hasDom()) {
+                refs.add(store.append(testName, String.format("snapshot-%d-%s", i + 1, snapshot.getAction()), "html.gz",
+                        ByteBuffer.wrap(snapshot.getCompressedDom())));
+            }
+        }
+        log.info(String.format("Persisted %d snapshots leading up to the failure of %s", snapshots.size(), testName));
+        return refs;
+    }
+}
@@ -0,0 +1,21 @@
+package com.retailmenot.scaffold.snapshots;
+
+/**
+ * How much a {@link Snapshot} records about the page at each element interaction.
+ */
+public enum SnapshotLevel {
+    /**
+     * No snapshots are recorded.
+     */
+    OFF,
+
+    /**
+     * The URL and title of the page only.
+     */
+    LOCATION,
+
+    /**
+     * The URL and title of the page, and its DOM, compressed.
+     */
+    DOM
+}
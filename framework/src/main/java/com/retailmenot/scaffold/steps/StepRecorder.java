@@ -0,0 +1,171 @@
+package com.retailmenot.scaffold.steps;
+
+import com.retailmenot.scaffold.models.Step;
+import com.retailmenot.scaffold.models.enums.StepType;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the steps of the test running on the current thread: every navigation, click, sendKeys, clear, select and
+ * wait made through the framework.
+ *
+ * Recording a step has to cost next to nothing, since it happens on every interaction. Each thread has its own recorder,
+ * so no locking is needed, and the recorder keeps its steps in arrays allocated once when it is created. Recording only
+ * stores the step type, references to its target and detail and two timestamps; turning them into text is left until
+ * the steps are read at the end of the test. When a test makes more steps than the recorder holds, the oldest ones are
+ * overwritten.
+ *
+ * The keys typed by sendKeys are not recorded, since they may well be passwords.
+ *
+ * Steps are recorded as a pair of calls around the action. A step whose action throws is never ended, and is reported
+ * as not having finished:
+ * <pre>
+ *     var step = StepRecorder.begin(StepType.CLICK, this, null);
+ *     element.click();
+ *     StepRecorder.end(step);
+ * </pre>
+ */
+public final class StepRecorder {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final ThreadLocal<StepRecorder> CURRENT = ThreadLocal.withInitial(() -> new StepRecorder(DEFAULT_CAPACITY));
+
+    private final int capacity;
+    private final StepType[] types;
+    private final Object[] targets;
+    private final Object[] details;
+    private final long[] startMillis;
+    private final long[] startNanos;
+    private final long[] durationNanos;
+    // The number of steps begun since the recorder was last cleared, which is also the id of the next one
+    private long count = 0;
+
+    /**
+     * @param capacity the most steps held before the oldest ones are overwritten
+     */
+    public StepRecorder(int capacity) {
+        this.capacity = capacity;
+        this.types = new StepType[capacity];
+        this.targets = new Object[capacity];
+        this.details = new Object[capacity];
+        this.startMillis = new long[capacity];
+        this.startNanos = new long[capacity];
+        this.durationNanos = new long[capacity];
+    }
+
+    /**
+     * @return the recorder of the current thread
+     */
+    public static StepRecorder current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Begins a step on the current thread's recorder, unless {@link ToggleSetting#STEP_RECORDING_ENABLED} is off.
+     *
+     * @param type   the {@link StepType}
+     * @param target the element, URL or locator acted on, turned into text only when the step is read
+     * @param detail what is done to the target, turned into text only when the step is read, or null
+     * @return the id of the step, to pass to {@link #end(long)}
+     */
+    public static long begin(StepType type, Object target, Object detail) {
+        if (!TestContext.baseContext().getSettings().isEnabled(ToggleSetting.STEP_RECORDING_ENABLED)) {
+            return -1;
+        }
+        return CURRENT.get().start(type, target, detail);
+    }
+
+    /**
+     * Ends a step begun with {@link #begin(StepType, Object, Object)} on the current thread.
+     *
+     * @param step the id of the step
+     */
+    public static void end(long step) {
+        if (step >= 0) {
+            CURRENT.get().finish(step);
+        }
+    }
+
+    /**
+     * Begins a step.
+     *
+     * @param type   the {@link StepType}
+     * @param target the element, URL or locator acted on
+     * @param detail what is done to the target, or null
+     * @return the id of the step, to pass to {@link #finish(long)}
+     */
+    public long start(StepType type, Object target, Object detail) {
+        var slot = (int) (count % capacity);
+        types[slot] = type;
+        targets[slot] = target;
+        details[slot] = detail;
+        startMillis[slot] = System.currentTimeMillis();
+        startNanos[slot] = System.nanoTime();
+        durationNanos[slot] = -1;
+        return count++;
+    }
+
+    /**
+     * Ends a step. Steps that have been overwritten or cleared since they began are ignored.
+     *
+     * @param step the id of the step
+     */
+    public void finish(long step) {
+        if (step >= count || step < count - capacity) {
+            return;
+        }
+        var slot = (int) (step % capacity);
+        durationNanos[slot] = System.nanoTime() - startNanos[slot];
+    }
+
+    /**
+     * @return the steps held, oldest first
+     */
+    public List<Step> getSteps() {
+        var held = (int) Math.min(count, capacity);
+        var steps = new ArrayList<Step>(held);
+        for (var step = count - held; step < count; step++) {
+            var slot = (int) (step % capacity);
+            steps.add(new Step(types[slot], String.valueOf(targets[slot]),
+                    details[slot] == null ? null : String.valueOf(details[slot]),
+                    Instant.ofEpochMilli(startMillis[slot]),
+                    durationNanos[slot] < 0 ? null : Duration.ofNanos(durationNanos[slot])));
+        }
+        return steps;
+    }
+
+    /**
+     * @return the number of steps that were overwritten because the recorder was full
+     */
+    public long getDroppedCount() {
+        return Math.max(0, count - capacity);
+    }
+
+    /**
+     * Forgets every step, along with the references to their targets.
+     */
+    public void clear() {
+        Arrays.fill(targets, null);
+        Arrays.fill(details, null);
+        count = 0;
+    }
+
+    /**
+     * Returns the steps held, oldest first, and clears the recorder. Check {@link #getDroppedCount()} first to know how
+     * many earlier steps were not kept.
+     *
+     * @return the {@link Step}s
+     */
+    public List<Step> drain() {
+        var steps = getSteps();
+        clear();
+        return steps;
+    }
+}
@@ -1,29 +1,45 @@
 package com.retailmenot.scaffold.util;
 
 import com.retailmenot.scaffold.exception.AutomationWaitException;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
 import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
+import com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting;
 import lombok.extern.slf4j.Slf4j;
 import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.support.ui.ExpectedCondition;
-import org.openqa.selenium.support.ui.WebDriverWait;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * A class of Wait mechanisms useful for testing web applications. These are meant to supplement those available
  * via WebDriver's built-in wait mechanism.
+ *
+ * Every wait is described by an immutable {@link WaitSpec}, either passed explicitly to {@link #until(WaitSpec, Function)}
+ * or taken from the default spec. An AutomationWait holds no per-wait state of its own, so a single instance can be
+ * shared across threads and reused without one wait affecting the next.
  */
 @Slf4j
 public class AutomationWait {
 
-    private final static Long TEN_SECONDS = 10L;
+    private final static String WAIT_UNTIL_SCRIPT = "wait-until.js";
+    private final static String EVALUATE_CONDITIONS_SCRIPT = "evaluate-conditions.js";
     private final WebDriverWrapper driver;
 
-    // Custom timeout the developer can set if they wish to override the default timeout of 60 seconds on a
-    private Long customTimeout = null;
-    private boolean useCustomTimeoutIndefinitely = false;
-    private Map<Long, WebDriverWait> waits = new HashMap<>();
+    private volatile WaitSpec defaultSpec = WaitSpec.defaults();
+    // Custom timeout the developer can set if they wish to override the default timeout for the next wait, or every wait
+    private final AtomicReference<CustomTimeout> customTimeout = new AtomicReference<>();
 
     public AutomationWait(WebDriverWrapper webDriverWrapper) {
         this.driver = webDriverWrapper;
@@ -33,6 +49,8 @@ public class AutomationWait {
      * Uses {@link #setCustomTimeout(Long, boolean)} to set a custom timeout with the @param useCustomTimeoutIndefinitely
      * set to false.
      *
+     * Prefer passing a {@link WaitSpec} to {@link #until(WaitSpec, Function)}, which can't leak into an unrelated wait.
+     *
      * @param timeoutInSeconds the time to set in seconds
      * @return as an {@link AutomationWait}
      */
@@ -42,26 +60,116 @@ public class AutomationWait {
     }
 
     /**
-     * Sets the custom timeout with user specified parameters of the timeout, in seconds, and indefinite timeout.
+     * Sets the custom timeout with user specified parameters of the timeout, in seconds, and indefinite timeout. If not
+     * indefinite, the timeout only applies to the next wait.
      *
      * @param timeoutInSeconds the time to set in seconds
      * @param useCustomTimeoutIndefinitely a boolean for setting indefinite timeout
      */
     public void setCustomTimeout(Long timeoutInSeconds, boolean useCustomTimeoutIndefinitely) {
-        customTimeout = timeoutInSeconds;
-        this.useCustomTimeoutIndefinitely = useCustomTimeoutIndefinitely;
+        customTimeout.set(new CustomTimeout(timeoutInSeconds, useCustomTimeoutIndefinitely));
     }
 
     /**
-     * First get the default wait, represented by {@link WebDriverWait}, and wait until the expected condition is met before
-     * proceeding.
+     * Returns the spec used by the waits that aren't given one explicitly.
+     *
+     * @return the default {@link WaitSpec}
+     */
+    public WaitSpec getDefaultSpec() {
+        return defaultSpec;
+    }
+
+    /**
+     * Sets the spec used by the waits that aren't given one explicitly, e.g. to change the default polling strategy.
+     *
+     * @param defaultSpec the {@link WaitSpec} to use by default
+     */
+    public void setDefaultSpec(WaitSpec defaultSpec) {
+        this.defaultSpec = defaultSpec;
+    }
+
+    /**
+     * Waits until the expected condition is met before proceeding, using the default spec.
      *
      * @param expectedCondition the expected condition to wait for
      * @param <T> the type reference
      * @return the custom wait condition as the Type Reference T
      */
     public <T> T waitForCustomCondition(ExpectedCondition<T> expectedCondition) {
-        return getDefaultWait().until(expectedCondition);
+        return until(nextSpec(null), null, expectedCondition);
+    }
+
+    /**
+     * Waits until the expected condition for the given locator is met before proceeding, using the default spec. The
+     * locator attributes the wait in the {@link WaitProfiler} and keys its adaptive timeout, see {@link TimeoutHistory}, so
+     * it should read the same from run to run.
+     *
+     * @param expectedCondition the expected condition to wait for
+     * @param locator           the locator the condition is about, or null
+     * @param <T> the type reference
+     * @return the custom wait condition as the Type Reference T
+     */
+    public <T> T waitForCustomCondition(ExpectedCondition<T> expectedCondition, String locator) {
+        return until(nextSpec(locator), locator, expectedCondition);
+    }
+
+    /**
+     * Waits until the condition returns something other than null or false, evaluating it as described by the given spec.
+     * Exceptions the spec ignores count as the condition not holding yet; any other exception ends the wait immediately.
+     *
+     * @param spec      the {@link WaitSpec} describing the wait
+     * @param condition the condition to wait for
+     * @param <T> the type reference
+     * @return the first value returned by the condition that isn't null or false
+     * @throws TimeoutException if the condition doesn't hold within the timeout
+     */
+    public <T> T until(WaitSpec spec, Function<? super WebDriver, T> condition) {
+        return until(spec, null, condition);
+    }
+
+    /**
+     * Same as {@link #until(WaitSpec, Function)}, attributing the wait to the given locator in the {@link WaitProfiler}.
+     *
+     * @param spec      the {@link WaitSpec} describing the wait
+     * @param locator   the locator the condition is about, or null
+     * @param condition the condition to wait for
+     * @param <T> the type reference
+     * @return the first value returned by the condition that isn't null or false
+     * @throws TimeoutException if the condition doesn't hold within the timeout
+     */
+    public <T> T until(WaitSpec spec, String locator, Function<? super WebDriver, T> condition) {
+        return WaitProfiler.profile(locator, condition, () -> learn(locator, () -> poll(spec, condition)));
+    }
+
+    private <T> T poll(WaitSpec spec, Function<? super WebDriver, T> condition) {
+        var start = System.nanoTime();
+        var deadline = start + spec.getTimeout().toNanos();
+        RuntimeException lastException = null;
+        var attempt = 0;
+        while (true) {
+            attempt++;
+            var evaluationStart = System.nanoTime();
+            try {
+                var value = condition.apply(driver.getBaseWebDriver());
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    return value;
+                }
+                lastException = null;
+            } catch (RuntimeException e) {
+                if (!spec.isIgnored(e)) {
+                    throw e;
+                }
+                lastException = e;
+            }
+            var now = System.nanoTime();
+            if (now >= deadline) {
+                var message = String.format("Expected condition failed: waiting for %s (tried for %d second(s), %d attempt(s))",
+                        condition, Duration.ofNanos(now - start).getSeconds(), attempt);
+                throw new TimeoutException(message, lastException);
+            }
+            var interval = spec.getPolling().nextInterval(attempt, Duration.ofNanos(now - evaluationStart));
+            sleep(Math.min(interval.toNanos(), deadline - now));
+        }
     }
 
     /**
@@ -78,48 +186,310 @@ public class AutomationWait {
         waitForCustomCondition(driver -> {
             assert driver != null;
             return driver.findElement(by).getText().contains(text);
+        }, by.toString());
+    }
+
+    /**
+     * Waits until the given condition holds using the default spec. See {@link #waitForInPageCondition(WaitSpec, InPageCondition)}.
+     *
+     * @param condition the {@link InPageCondition} to wait for
+     * @throws TimeoutException if the condition doesn't hold within the timeout
+     */
+    public void waitForInPageCondition(InPageCondition condition) {
+        waitForInPageCondition(nextSpec(condition.getLocator()), condition);
+    }
+
+    /**
+     * Waits until the given condition holds using the default spec, attributing the wait to the given locator in the
+     * {@link WaitProfiler}. See {@link #waitForInPageCondition(WaitSpec, InPageCondition)}.
+     *
+     * @param condition the {@link InPageCondition} to wait for
+     * @param locator   the locator the condition is about, or null
+     * @throws TimeoutException if the condition doesn't hold within the timeout
+     */
+    public void waitForInPageCondition(InPageCondition condition, String locator) {
+        waitForInPageCondition(nextSpec(locator), condition, locator);
+    }
+
+    /**
+     * Waits until the given condition holds, evaluating it inside the page. Rather than asking the browser over and over
+     * whether the condition holds yet, a single asynchronous script re-evaluates it whenever the DOM mutates and once per
+     * animation frame, and returns as soon as it is satisfied. This saves a round trip per poll and notices the change
+     * within a frame of it happening.
+     *
+     * If the script can't be run, for example because the page navigated away during the wait or its
+     * Content-Security-Policy forbids evaluating a script condition, the wait falls back to polling the condition from
+     * the test side, as described by the spec, for whatever is left of the timeout.
+     *
+     * @param spec      the {@link WaitSpec} describing the wait
+     * @param condition the {@link InPageCondition} to wait for
+     * @throws TimeoutException if the condition doesn't hold within the timeout
+     */
+    public void waitForInPageCondition(WaitSpec spec, InPageCondition condition) {
+        waitForInPageCondition(spec, condition, condition.getLocator());
+    }
+
+    private void waitForInPageCondition(WaitSpec spec, InPageCondition condition, String locator) {
+        WaitProfiler.profile(locator, condition, () -> learn(locator, () -> {
+            waitInPageOrPoll(spec, condition);
+            return null;
+        }));
+    }
+
+    /**
+     * Waits until all of the given conditions hold at the same time, using the default spec. See
+     * {@link #waitForConditions(WaitSpec, int, List)}.
+     *
+     * @param conditions the {@link InPageCondition}s to wait for
+     * @throws TimeoutException if the conditions don't hold within the timeout
+     * @throws IllegalArgumentException if no conditions are given
+     */
+    public void waitForAll(InPageCondition... conditions) {
+        waitForConditions(nextSpec(null), conditions.length, List.of(conditions));
+    }
+
+    /**
+     * Waits until any of the given conditions holds, using the default spec. See {@link #waitForConditions(WaitSpec, int, List)}.
+     *
+     * @param conditions the {@link InPageCondition}s to wait for
+     * @return the index of the first condition that holds
+     * @throws TimeoutException if none of the conditions hold within the timeout
+     * @throws IllegalArgumentException if no conditions are given
+     */
+    public int waitForAny(InPageCondition... conditions) {
+        return waitForConditions(nextSpec(null), 1, List.of(conditions)).indexOf(true);
+    }
+
+    /**
+     * Waits until at least the given amount of the given conditions hold at the same time, using the default spec. See
+     * {@link #waitForConditions(WaitSpec, int, List)}.
+     *
+     * @param required   the amount of conditions that have to hold
+     * @param conditions the {@link InPageCondition}s to wait for
+     * @return whether or not each condition held when the wait ended
+     * @throws TimeoutException if not enough conditions hold within the timeout
+     * @throws IllegalArgumentException if required isn't between 1 and the amount of conditions
+     */
+    public List<Boolean> waitForAtLeast(int required, InPageCondition... conditions) {
+        return waitForConditions(nextSpec(null), required, List.of(conditions));
+    }
+
+    /**
+     * Waits until at least the given amount of the given conditions hold at the same time. Rather than waiting on each
+     * condition in turn, every poll evaluates all of them inside the page in a single script call. Conditions the page
+     * can't evaluate, e.g. a script condition on a page whose Content-Security-Policy forbids it, are evaluated from the
+     * test side instead.
+     *
+     * When the wait times out, the message lists every condition along with whether it held on the last poll, so it is
+     * clear which ones were blocking.
+     *
+     * @param spec       the {@link WaitSpec} describing the wait
+     * @param required   the amount of conditions that have to hold
+     * @param conditions the {@link InPageCondition}s to wait for
+     * @return whether or not each condition held when the wait ended
+     * @throws TimeoutException if not enough conditions hold within the timeout
+     * @throws IllegalArgumentException if required isn't between 1 and the amount of conditions
+     */
+    public List<Boolean> waitForConditions(WaitSpec spec, int required, List<InPageCondition> conditions) {
+        if (required < 1 || required > conditions.size()) {
+            throw new IllegalArgumentException(String.format("Can't wait for %d of %d conditions", required, conditions.size()));
+        }
+        var lastStates = new AtomicReference<List<Boolean>>(Collections.nCopies(conditions.size(), false));
+        var description = String.format("%d of %d conditions", required, conditions.size());
+        try {
+            return until(spec, null, new ExpectedCondition<List<Boolean>>() {
+
+                @Override
+                public List<Boolean> apply(WebDriver input) {
+                    var states = evaluateAll(conditions);
+                    lastStates.set(states);
+                    return states.stream().filter(Boolean::booleanValue).count() >= required ? states : null;
+                }
+
+                @Override
+                public String toString() {
+                    return description;
+                }
+            });
+        } catch (TimeoutException e) {
+            var message = new StringBuilder(e.getMessage()).append(". Conditions on the last attempt:");
+            var states = lastStates.get();
+            for (var i = 0; i < conditions.size(); i++) {
+                message.append(String.format("%n  [%s] %s", states.get(i) ? "held" : "BLOCKING", conditions.get(i)));
+            }
+            throw new TimeoutException(message.toString(), e.getCause());
+        }
+    }
+
+    /**
+     * Evaluates all of the given conditions in a single script call, evaluating any condition the page couldn't from
+     * the test side.
+     */
+    private List<Boolean> evaluateAll(List<InPageCondition> conditions) {
+        List<?> results = null;
+        try {
+            var specs = conditions.stream().map(InPageCondition::toScriptSpec).collect(Collectors.toList());
+            var result = driver.getJavascriptExecutor().executeScript(JavascriptUtils.getScriptWithConditions(EVALUATE_CONDITIONS_SCRIPT), specs);
+            if (result instanceof List && ((List<?>) result).size() == conditions.size()) {
+                results = (List<?>) result;
+            } else {
+                log.debug("Unexpected result evaluating conditions in the page, evaluating them one by one: " + result);
+            }
+        } catch (WebDriverException e) {
+            log.debug("Could not evaluate conditions in the page, evaluating them one by one: " + e.getMessage());
+        }
+
+        var states = new ArrayList<Boolean>(conditions.size());
+        for (var i = 0; i < conditions.size(); i++) {
+            var result = results == null ? null : results.get(i);
+            states.add(result instanceof Boolean ? (Boolean) result : conditions.get(i).evaluate(driver));
+        }
+        return states;
+    }
+
+    /**
+     * Shortens the timeout of the given spec to what the history of the locator suggests, if adaptive timeouts are
+     * enabled through {@link TestContextSetting#ADAPTIVE_TIMEOUTS_ENABLED}. See {@link TimeoutHistory}.
+     *
+     * @param spec    the {@link WaitSpec} to adapt
+     * @param locator the locator that will be waited on
+     * @return the adapted {@link WaitSpec}, or the given spec if adaptive timeouts are disabled
+     */
+    public WaitSpec adaptTimeout(WaitSpec spec, String locator) {
+        if (locator == null || !isAdaptiveTimeoutsEnabled()) {
+            return spec;
+        }
+        var timeout = TestContext.baseContext().getTimeoutHistory().getTimeout(locator, spec.getTimeout());
+        return timeout.equals(spec.getTimeout()) ? spec : spec.withTimeout(timeout);
+    }
+
+    /**
+     * Runs the given wait and records how long it took in the {@link TimeoutHistory}, if adaptive timeouts are enabled.
+     * A timeout clears the locator's history instead, so the next wait on a locator that has become slower gets the full
+     * timeout again rather than failing until enough slow durations have been recorded.
+     */
+    private <T> T learn(String locator, Supplier<T> wait) {
+        if (locator == null || !isAdaptiveTimeoutsEnabled()) {
+            return wait.get();
+        }
+        var start = System.nanoTime();
+        try {
+            var result = wait.get();
+            TestContext.baseContext().getTimeoutHistory().record(locator, Duration.ofNanos(System.nanoTime() - start));
+            return result;
+        } catch (TimeoutException e) {
+            TestContext.baseContext().getTimeoutHistory().recordTimeout(locator);
+            throw e;
+        }
+    }
+
+    private boolean isAdaptiveTimeoutsEnabled() {
+        return TestContext.baseContext().getSettings().isEnabled(ToggleSetting.ADAPTIVE_TIMEOUTS_ENABLED);
+    }
+
+    private void waitInPageOrPoll(WaitSpec spec, InPageCondition condition) {
+        var timeout = spec.getTimeout();
+        var start = System.nanoTime();
+
+        var satisfied = waitInPage(condition, timeout);
+        if (Boolean.TRUE.equals(satisfied)) {
+            return;
+        } else if (Boolean.FALSE.equals(satisfied)) {
+            throw new TimeoutException(String.format("Expected condition failed: waiting for %s (tried for %d second(s) in the page)",
+                    condition, timeout.getSeconds()));
+        }
+
+        var remaining = timeout.minusNanos(System.nanoTime() - start);
+        poll(spec.withTimeout(remaining.isNegative() ? Duration.ZERO : remaining), new ExpectedCondition<Boolean>() {
+
+            @Override
+            public Boolean apply(WebDriver input) {
+                return condition.evaluate(driver);
+            }
+
+            @Override
+            public String toString() {
+                return condition.toString();
+            }
         });
     }
 
     /**
-     * Returns the set timeout in seconds.
+     * Runs the wait-until script for the given condition.
+     *
+     * @return true or false if the page decided the condition, or null if the wait has to fall back to polling
+     */
+    private Boolean waitInPage(InPageCondition condition, Duration timeout) {
+        Object result;
+        try {
+            var script = JavascriptUtils.getScriptWithConditions(WAIT_UNTIL_SCRIPT);
+            result = driver.executeAsyncScript(timeout, script, condition.toScriptSpec(), timeout.toMillis());
+        } catch (WebDriverException e) {
+            log.debug(String.format("Could not wait for [%s] in the page, falling back to polling: %s", condition, e.getMessage()));
+            return null;
+        }
+        if (!(result instanceof Map)) {
+            log.debug(String.format("Unexpected result waiting for [%s] in the page, falling back to polling: %s", condition, result));
+            return null;
+        }
+        var outcome = (Map<?, ?>) result;
+        if (outcome.get("error") != null) {
+            log.debug(String.format("Could not evaluate [%s] in the page, falling back to polling: %s", condition, outcome.get("error")));
+            return null;
+        }
+        return Boolean.TRUE.equals(outcome.get("satisfied"));
+    }
+
+    /**
+     * Returns the spec for the next wait that wasn't given one explicitly: the default spec, with the custom timeout
+     * applied if one is set, or else the adaptive timeout of the locator. A custom timeout that isn't indefinite is
+     * consumed by this call.
      *
-     * @return the timeout as a {@link Long} in seconds.
+     * @param locator the locator that will be waited on, or null
+     * @return the {@link WaitSpec} to use
      */
-    private Long getTimeoutInSeconds() {
-        Long returnTimeout;
-        // If useCustomTimeoutIndefinitely is set to true, use our custom timeout value.
-        if (useCustomTimeoutIndefinitely) {
+    private WaitSpec nextSpec(String locator) {
+        var custom = customTimeout.get();
+        if (custom == null) {
+            return adaptTimeout(defaultSpec, locator);
+        }
+        if (custom.indefinite) {
             // Throw an exception if this is null as this should be not be configured to use this way
-            if (null == customTimeout) {
+            if (null == custom.timeoutInSeconds) {
                 throw new AutomationWaitException("Custom timeout was null when set to use custom timeouts");
             }
-            returnTimeout = customTimeout;
         } else {
-            // If we have a custom timeout and useCustomTimeoutIndefinitely is set to false use it
-            if (null != customTimeout) {
-                returnTimeout = customTimeout;
-                // Remember to set it to null so we don't attempt to use it again.
-                customTimeout = null;
-            } else {
-                // If we get here, then use our default timeout
-                returnTimeout = TEN_SECONDS;
+            // Only clear the timeout we read, in case another one was set in the meantime
+            customTimeout.compareAndSet(custom, null);
+            if (null == custom.timeoutInSeconds) {
+                return adaptTimeout(defaultSpec, locator);
             }
         }
-        return returnTimeout;
+        return defaultSpec.withTimeout(Duration.ofSeconds(custom.timeoutInSeconds));
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException(e);
+        }
     }
 
     /**
-     * Returns a new WebDriver wait with the default timeout.
-     *
-     * @return the {@link WebDriverWait}
+     * A custom timeout as set through {@link #setCustomTimeout(Long, boolean)}, swapped in and out as a whole.
      */
-    private WebDriverWait getDefaultWait() {
-        var timeOutToUse = getTimeoutInSeconds();
-        if (!waits.containsKey(timeOutToUse)) {
-            waits.put(timeOutToUse, new WebDriverWait(driver.getBaseWebDriver(), timeOutToUse));
+    private static class CustomTimeout {
+        private final Long timeoutInSeconds;
+        private final boolean indefinite;
+
+        private CustomTimeout(Long timeoutInSeconds, boolean indefinite) {
+            this.timeoutInSeconds = timeoutInSeconds;
+            this.indefinite = indefinite;
         }
-        return waits.get(timeOutToUse);
     }
 }
-
@@ -0,0 +1,313 @@
+package com.retailmenot.scaffold.util;
+
+import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A condition that can be evaluated inside the browser, so a wait on it can be driven by the page's own DOM mutations and
+ * animation frames rather than by polling it over the wire. See {@link AutomationWait#waitForInPageCondition(InPageCondition)}.
+ *
+ * Every condition can also be evaluated from the test side, which is what the wait falls back to when the script can't
+ * run, e.g. on a page whose Content-Security-Policy forbids it or when the page navigates away mid-wait.
+ *
+ * Conditions are immutable; {@link #within(By)}, {@link #within(WebElement)} and {@link #withFallback(Predicate)} return
+ * a modified copy.
+ */
+public class InPageCondition {
+
+    private final String type;
+    private final By by;
+    private final WebElement element;
+    private final By parentBy;
+    private final WebElement root;
+    private final String text;
+    private final int count;
+    private final String body;
+    private final Object[] args;
+    private final Predicate<WebDriverWrapper> fallback;
+
+    private InPageCondition(String type, By by, WebElement element, By parentBy, WebElement root, String text, int count,
+                            String body, Object[] args, Predicate<WebDriverWrapper> fallback) {
+        this.type = type;
+        this.by = by;
+        this.element = element;
+        this.parentBy = parentBy;
+        this.root = root;
+        this.text = text;
+        this.count = count;
+        this.body = body;
+        this.args = args;
+        this.fallback = fallback;
+    }
+
+    private static InPageCondition of(String type, By by) {
+        checkLocatable(by);
+        return new InPageCondition(type, by, null, null, null, null, 0, null, null, null);
+    }
+
+    /**
+     * Satisfied once at least one element matches the locator.
+     *
+     * @param by the locator of the element
+     * @return the {@link InPageCondition}
+     */
+    public static InPageCondition present(By by) {
+        return of("present", by);
+    }
+
+    /**
+     * Satisfied once no element matches the locator.
+     *
+     * @param by the locator of the element
+     * @return the {@link InPageCondition}
+     */
+    public static InPageCondition absent(By by) {
+        return of("absent", by);
+    }
+
+    /**
+     * Satisfied once the first element matching the locator is displayed.
+     *
+     * @param by the locator of the element
+     * @return the {@link InPageCondition}
+     */
+    public static InPageCondition displayed(By by) {
+        return of("displayed", by);
+    }
+
+    /**
+     * Satisfied once the given element is displayed.
+     *
+     * @param element the element to wait for
+     * @return the {@link InPageCondition}
+     */
+    public static InPageCondition displayed(WebElement element) {
+        return new InPageCondition("displayed", null, element, null, null, null, 0, null, null, null);
+    }
+
+    /**
+     * Satisfied once the first element matching the locator is not displayed, or no element matches at all.
+     *
+     * @param by the locator of the element
+     * @return the {@link InPageCondition}
+     */
+    public static InPageCondition hidden(By by) {
+        return of("hidden", by);
+    }
+
+    /**
+     * Satisfied once the text of the first element matching the locator contains the given text.
+     *
+     * @param by   the locator of the element
+     * @param text the text to wait for
+     * @return the {@link InPageCondition}
+     */
+    public static InPageCondition textContains(By by, String text) {
+        checkLocatable(by);
+        return new InPageCondition("textContains", by, null, null, null, text, 0, null, null, null);
+    }
+
+    /**
+     * Satisfied once at least the given amount of elements match the locator.
+     *
+     * @param by    the locator of the elements
+     * @param count the minimum amount of elements
+     * @return the {@link InPageCondition}
+     */
+    public static InPageCondition countAtLeast(By by, int count) {
+        checkLocatable(by);
+        return new InPageCondition("countAtLeast", by, null, null, null, null, count, null, null, null);
+    }
+
+    /**
+     * Satisfied once the given javascript function body returns a truthy value. The body is called with the given
+     * arguments, e.g. script("return arguments[0].classList.contains('ready');", element).
+     *
+     * @param body the body of the javascript function to evaluate
+     * @param args the arguments to pass to the function
+     * @return the {@link InPageCondition}
+     */
+    public static InPageCondition script(String body, Object... args) {
+        return new InPageCondition("script", null, null, null, null, null, 0, body, args, null);
+    }
+
+    /**
+     * Scopes the locator of this condition to the first element matching the given parent locator.
+     *
+     * @param parentBy the locator of the parent element
+     * @return a copy of this condition scoped to the parent
+     */
+    public InPageCondition within(By parentBy) {
+        checkLocatable(parentBy);
+        return new InPageCondition(type, by, element, parentBy, null, text, count, body, args, fallback);
+    }
+
+    /**
+     * Scopes the locator of this condition to the given element.
+     *
+     * @param root the element to search from
+     * @return a copy of this condition scoped to the element
+     */
+    public InPageCondition within(WebElement root) {
+        return new InPageCondition(type, by, element, null, root, text, count, body, args, fallback);
+    }
+
+    /**
+     * Replaces the test side evaluation used when the condition can't be evaluated inside the page.
+     *
+     * @param fallback the check to poll instead
+     * @return a copy of this condition with the given fallback
+     */
+    public InPageCondition withFallback(Predicate<WebDriverWrapper> fallback) {
+        return new InPageCondition(type, by, element, parentBy, root, text, count, body, args, fallback);
+    }
+
+    /**
+     * Describes what this condition is about, for reporting.
+     *
+     * @return the locator or element of the condition, or null if it is a script condition
+     */
+    public String getLocator() {
+        if (by != null) {
+            return parentBy != null ? parentBy + " " + by : by.toString();
+        }
+        return element != null ? element.toString() : null;
+    }
+
+    /**
+     * Returns the map understood by scaffoldEvaluate() in the shared condition helpers.
+     *
+     * @return the condition as a {@link Map}
+     */
+    public Map<String, Object> toScriptSpec() {
+        var spec = new HashMap<String, Object>();
+        spec.put("type", type);
+        if (by != null) {
+            spec.put("locator", JavascriptUtils.getScriptLocator(by));
+        }
+        if (parentBy != null) {
+            spec.put("parentLocator", JavascriptUtils.getScriptLocator(parentBy));
+        }
+        if (element != null) {
+            spec.put("element", element);
+        }
+        if (root != null) {
+            spec.put("root", root);
+        }
+        if (text != null) {
+            spec.put("text", text);
+        }
+        if ("countAtLeast".equals(type)) {
+            spec.put("count", count);
+        }
+        if (body != null) {
+            spec.put("body", body);
+            spec.put("args", Arrays.asList(args));
+        }
+        return spec;
+    }
+
+    /**
+     * Evaluates the condition once from the test side. This never waits on the implicit wait, so a condition like
+     * {@link #absent(By)} is answered immediately.
+     *
+     * @param webDriverWrapper the {@link WebDriverWrapper} to evaluate the condition with
+     * @return whether or not the condition currently holds
+     */
+    public boolean evaluate(WebDriverWrapper webDriverWrapper) {
+        if (fallback != null) {
+            return fallback.test(webDriverWrapper);
+        }
+        try {
+            switch (type) {
+                case "present":
+                    return !find(webDriverWrapper).isEmpty();
+                case "absent":
+                    return find(webDriverWrapper).isEmpty();
+                case "displayed":
+                    return isDisplayed(resolve(webDriverWrapper));
+                case "hidden":
+                    return !isDisplayed(resolve(webDriverWrapper));
+                case "textContains":
+                    var found = resolve(webDriverWrapper);
+                    return found != null && found.getText().contains(text);
+                case "countAtLeast":
+                    return find(webDriverWrapper).size() >= count;
+                case "script":
+                    var executor = (JavascriptExecutor) webDriverWrapper.getBaseWebDriver();
+                    return Boolean.TRUE.equals(executor.executeScript("return !!(function () {" + body + "}).apply(null, arguments);", args));
+                default:
+                    throw new IllegalStateException("Unknown condition type: " + type);
+            }
+        } catch (StaleElementReferenceException e) {
+            // The page re-rendered underneath us, treat it like any other unsatisfied poll
+            return false;
+        }
+    }
+
+    private List<WebElement> find(WebDriverWrapper webDriverWrapper) {
+        SearchContext searchContext = root != null ? root : webDriverWrapper.getBaseWebDriver();
+        if (parentBy != null) {
+            var parents = webDriverWrapper.findElementsImmediately(webDriverWrapper.getBaseWebDriver(), parentBy);
+            if (parents.isEmpty()) {
+                return List.of();
+            }
+            searchContext = parents.get(0);
+        }
+        return webDriverWrapper.findElementsImmediately(searchContext, by);
+    }
+
+    private WebElement resolve(WebDriverWrapper webDriverWrapper) {
+        if (element != null) {
+            return element;
+        }
+        var elements = find(webDriverWrapper);
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
+    private static boolean isDisplayed(WebElement element) {
+        return element != null && element.isDisplayed();
+    }
+
+    private static void checkLocatable(By by) {
+        if (!JavascriptUtils.isScriptLocatable(by)) {
+            throw new IllegalArgumentException("Locator cannot be resolved by script: " + by);
+        }
+    }
+
+    @Override
+    public String toString() {
+        var description = new StringBuilder(type);
+        if (by != null) {
+            description.append(" [").append(by).append("]");
+        }
+        if (element != null) {
+            description.append(" [").append(element).append("]");
+        }
+        if (text != null) {
+            description.append(" text [").append(text).append("]");
+        }
+        if ("countAtLeast".equals(type)) {
+            description.append(" count [").append(count).append("]");
+        }
+        if (body != null) {
+            description.append(" [").append(body).append("]");
+        }
+        if (parentBy != null) {
+            description.append(" within [").append(parentBy).append("]");
+        } else if (root != null) {
+            description.append(" within [").append(root).append("]");
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.retailmenot.scaffold.util;
+
+import org.openqa.selenium.By;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A class for shared utilities around the javascript we execute inside the browser.
+ *
+ * Scripts live under the scripts/ directory on the classpath so they can be read and maintained as plain javascript. They
+ * are loaded once and cached for the lifetime of the JVM.
+ */
+public class JavascriptUtils {
+
+    private static final String SCRIPT_DIRECTORY = "/scripts/";
+    private static final String LOCATORS_SCRIPT = "locators.js";
+    private static final String CONDITIONS_SCRIPT = "conditions.js";
+    private static final Map<String, String> scripts = new ConcurrentHashMap<>();
+
+    private JavascriptUtils() {
+    }        // Uninstantiable
+
+    /**
+     * Returns the contents of the script with the given name from the scripts/ classpath directory.
+     *
+     * @param name the file name of the script, e.g. "virtual-list-step.js"
+     * @return the script as a {@link String}
+     */
+    public static String getScript(String name) {
+        return scripts.computeIfAbsent(name, JavascriptUtils::loadScript);
+    }
+
+    /**
+     * Returns the script with the given name, prefixed with the shared locator helpers (scaffoldFind and scaffoldFindAll)
+     * so it can resolve the locators produced by {@link #getScriptLocator(By)}.
+     *
+     * @param name the file name of the script
+     * @return the script as a {@link String}
+     */
+    public static String getScriptWithLocators(String name) {
+        return scripts.computeIfAbsent(LOCATORS_SCRIPT + "+" + name, key -> getScript(LOCATORS_SCRIPT) + getScript(name));
+    }
+
+    /**
+     * Returns the script with the given name, prefixed with the shared locator helpers and the shared condition helpers
+     * (scaffoldEvaluate) so it can evaluate the specs produced by {@link InPageCondition#toScriptSpec()}.
+     *
+     * @param name the file name of the script
+     * @return the script as a {@link String}
+     */
+    public static String getScriptWithConditions(String name) {
+        return scripts.computeIfAbsent(CONDITIONS_SCRIPT + "+" + name, key -> getScript(LOCATORS_SCRIPT) + getScript(CONDITIONS_SCRIPT) + getScript(name));
+    }
+
+    /**
+     * Indicates whether or not the given locator can be resolved inside the page by the shared locator helpers.
+     *
+     * @param by the locator to check
+     * @return the result as {@link boolean}
+     */
+    public static boolean isScriptLocatable(By by) {
+        return getStrategy(by) != null;
+    }
+
+    /**
+     * Converts the given locator into the map understood by the shared locator helpers: {using: strategy, value: selector}.
+     *
+     * @param by the locator to convert
+     * @return the locator as a {@link Map}
+     * @throws IllegalArgumentException if the locator type cannot be resolved inside the page
+     */
+    public static Map<String, String> getScriptLocator(By by) {
+        var strategy = getStrategy(by);
+        if (strategy == null) {
+            throw new IllegalArgumentException("Locator cannot be resolved by script: " + by);
+        }
+        // Selenium doesn't expose the selector itself, but every supported By formats as "By.<strategy>: <selector>"
+        var string = by.toString();
+        var index = string.indexOf(": ");
+        return Map.of("using", strategy, "value", string.substring(index + 2));
+    }
+
+    /**
+     * Returns the name of the locator strategy for the given By locator, or null if it is not supported.
+     */
+    private static String getStrategy(By by) {
+        if (by instanceof By.ByCssSelector) {
+            return "css";
+        } else if (by instanceof By.ById) {
+            return "id";
+        } else if (by instanceof By.ByName) {
+            return "name";
+        } else if (by instanceof By.ByClassName) {
+            return "className";
+        } else if (by instanceof By.ByTagName) {
+            return "tagName";
+        } else if (by instanceof By.ByLinkText) {
+            return "linkText";
+        } else if (by instanceof By.ByPartialLinkText) {
+            return "partialLinkText";
+        } else if (by instanceof By.ByXPath) {
+            return "xpath";
+        }
+        return null;
+    }
+
+    private static String loadScript(String name) {
+        try (var stream = JavascriptUtils.class.getResourceAsStream(SCRIPT_DIRECTORY + name)) {
+            if (stream == null) {
+                throw new IllegalStateException("Could not locate script on the classpath: " + name);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read script: " + name, e);
+        }
+    }
+}
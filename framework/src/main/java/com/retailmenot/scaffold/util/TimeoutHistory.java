@@ -0,0 +1,198 @@
+package com.retailmenot.scaffold.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers how long waits on each locator took across runs, so a wait's timeout can be derived from how long the
+ * locator actually takes rather than a fixed ceiling. An element that always shows up within 200 milliseconds then fails
+ * within a couple of seconds on a broken page, instead of waiting out the full default timeout.
+ *
+ * The timeout is the 95th percentile of the recorded durations times 1.5 plus one second, never less than two seconds
+ * and never more than the ceiling the wait would otherwise use. Locators with fewer than five recorded waits always use
+ * the ceiling. Only the most recent 100 durations are kept per locator, so the history follows the application as it
+ * changes. A wait that times out clears its locator's history, so the next wait on it gets the full ceiling again instead
+ * of failing on a timeout learned in a faster environment.
+ *
+ * The history is a JSON file of locator to the time it was last waited on and its durations in milliseconds, read when
+ * created and written by {@link #save()}. Locators that weren't waited on for 30 days are left out when saving, as are all
+ * but the 1000 most recently waited on, so the file doesn't grow with every locator a suite ever used.
+ */
+@Slf4j
+public class TimeoutHistory {
+
+    private static final int MAX_SAMPLES = 100;
+    private static final int MIN_SAMPLES = 5;
+    private static final double PERCENTILE = 0.95;
+    private static final double MARGIN_FACTOR = 1.5;
+    private static final Duration MARGIN = Duration.ofSeconds(1);
+    private static final Duration MINIMUM = Duration.ofSeconds(2);
+    private static final int MAX_LOCATORS = 1000;
+    private static final Duration MAX_AGE = Duration.ofDays(30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path file;
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a history backed by the given file, loading it if it exists.
+     *
+     * @param file the file to read the history from and save it to
+     */
+    public TimeoutHistory(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Records how long a wait on the given locator took.
+     *
+     * @param locator the locator that was waited on
+     * @param elapsed how long the wait took
+     */
+    public void record(String locator, Duration elapsed) {
+        samples.computeIfAbsent(locator, key -> new Samples()).add(elapsed.toMillis());
+    }
+
+    /**
+     * Forgets the durations recorded for a locator whose wait timed out, so the next wait on it uses the ceiling.
+     *
+     * @param locator the locator whose wait timed out
+     */
+    public void recordTimeout(String locator) {
+        samples.remove(locator);
+    }
+
+    /**
+     * Returns the timeout to use for a wait on the given locator.
+     *
+     * @param locator the locator that is waited on
+     * @param ceiling the timeout the wait would use without a history
+     * @return the timeout as a {@link Duration}
+     */
+    public Duration getTimeout(String locator, Duration ceiling) {
+        var locatorSamples = samples.get(locator);
+        if (locatorSamples == null) {
+            return ceiling;
+        }
+        var percentile = locatorSamples.percentile(PERCENTILE);
+        if (percentile < 0) {
+            return ceiling;
+        }
+        var timeout = Duration.ofMillis((long) (percentile * MARGIN_FACTOR)).plus(MARGIN);
+        if (timeout.compareTo(MINIMUM) < 0) {
+            timeout = MINIMUM;
+        }
+        return timeout.compareTo(ceiling) > 0 ? ceiling : timeout;
+    }
+
+    /**
+     * Writes the history to its file. The file is replaced atomically, so a run that is killed while saving never leaves
+     * a corrupt history behind.
+     */
+    public synchronized void save() {
+        var oldest = System.currentTimeMillis() - MAX_AGE.toMillis();
+        var kept = samples.entrySet().stream()
+                .filter(entry -> entry.getValue().lastUsed >= oldest)
+                .sorted(Comparator.comparingLong((Map.Entry<String, Samples> entry) -> entry.getValue().lastUsed).reversed())
+                .limit(MAX_LOCATORS)
+                .collect(Collectors.toList());
+        var snapshot = new TreeMap<String, Map<String, Object>>();
+        for (var entry : kept) {
+            var locatorHistory = new LinkedHashMap<String, Object>();
+            locatorHistory.put("lastUsed", entry.getValue().lastUsed);
+            locatorHistory.put("durations", entry.getValue().toArray());
+            snapshot.put(entry.getKey(), locatorHistory);
+        }
+        try {
+            var directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            var temporary = Files.createTempFile(directory, "timeout-history", ".tmp");
+            objectMapper.writeValue(temporary.toFile(), snapshot);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug(String.format("Saved timeout history for %d locators to %s", snapshot.size(), file));
+        } catch (IOException e) {
+            log.warn(String.format("Could not save timeout history to %s: %s", file, e.getMessage()));
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            Map<String, JsonNode> history = objectMapper.readValue(file.toFile(), new TypeReference<Map<String, JsonNode>>() {
+            });
+            history.forEach((locator, locatorHistory) -> {
+                var locatorSamples = new Samples();
+                // Histories saved before the time of use was kept are a bare list of durations
+                var durations = locatorHistory.isArray() ? locatorHistory : locatorHistory.path("durations");
+                durations.forEach(duration -> locatorSamples.add(duration.asLong()));
+                if (locatorHistory.has("lastUsed")) {
+                    locatorSamples.lastUsed = locatorHistory.get("lastUsed").asLong();
+                }
+                samples.put(locator, locatorSamples);
+            });
+            log.debug(String.format("Loaded timeout history for %d locators from %s", history.size(), file));
+        } catch (IOException e) {
+            // A missing or unreadable history only means we start learning from scratch
+            log.warn(String.format("Could not read timeout history from %s, starting a new one: %s", file, e.getMessage()));
+        }
+    }
+
+    /**
+     * The most recent durations of a single locator, kept in a ring buffer.
+     */
+    private static class Samples {
+        private final long[] ring = new long[MAX_SAMPLES];
+        private int size = 0;
+        private int next = 0;
+        // When the locator was last waited on, in epoch milliseconds
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        synchronized void add(long millis) {
+            lastUsed = System.currentTimeMillis();
+            ring[next] = millis;
+            next = (next + 1) % MAX_SAMPLES;
+            size = Math.min(size + 1, MAX_SAMPLES);
+        }
+
+        /**
+         * @return the given percentile of the durations, or -1 if there are too few to go by
+         */
+        synchronized long percentile(double percentile) {
+            if (size < MIN_SAMPLES) {
+                return -1;
+            }
+            var sorted = Arrays.copyOf(ring, size);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(percentile * size) - 1];
+        }
+
+        /**
+         * @return the durations, oldest first
+         */
+        synchronized long[] toArray() {
+            var durations = new long[size];
+            for (var i = 0; i < size; i++) {
+                durations[i] = ring[(next - size + i + MAX_SAMPLES) % MAX_SAMPLES];
+            }
+            return durations;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.retailmenot.scaffold.util;
+
+import com.retailmenot.scaffold.models.enums.StepType;
+import com.retailmenot.scaffold.steps.StepRecorder;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
+import com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting;
+import org.openqa.selenium.TimeoutException;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Records how much time is spent waiting, so a slow run can be broken down into time spent waiting on the page and time
+ * spent acting on it. Waits are aggregated per test, per locator and per locator and condition; see {@link WaitStatistics}.
+ *
+ * Recording is enabled through the {@link TestContextSetting#WAIT_PROFILING_ENABLED} setting. Waits made through
+ * {@link AutomationWait}, {@link com.retailmenot.scaffold.webelements.WebElementWait} and the wait conditions run after a
+ * click are recorded automatically; use {@link #profile(String, Object, Supplier)} to record any other wait. A wait made
+ * while another one is being profiled on the same thread is part of the outer wait, so only the outermost wait is recorded.
+ */
+public class WaitProfiler {
+
+    public enum Outcome {
+        SATISFIED,
+        TIMED_OUT,
+        FAILED
+    }
+
+    private static final String NO_TEST = "(no test)";
+    private static final String NO_LOCATOR = "(no locator)";
+    // How many profiled waits the current thread is inside of
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final Map<String, WaitStatistics> byTest = new ConcurrentHashMap<>();
+    private final Map<String, WaitStatistics> byLocator = new ConcurrentHashMap<>();
+    private final Map<String, WaitStatistics> byWait = new ConcurrentHashMap<>();
+    private final Map<String, Long> testStarts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> testDurations = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the given wait and, if profiling is enabled, records how long it took against the current thread's test. The
+     * wait is also recorded as a step by the thread's {@link StepRecorder}.
+     *
+     * @param locator   the locator being waited on, or null if the wait isn't about a single element
+     * @param condition the condition being waited for, described by its toString()
+     * @param wait      the wait to run
+     * @param <T> the type reference
+     * @return the result of the wait
+     */
+    public static <T> T profile(String locator, Object condition, Supplier<T> wait) {
+        var step = StepRecorder.begin(StepType.WAIT, locator, condition);
+        var result = profileWait(locator, condition, wait);
+        StepRecorder.end(step);
+        return result;
+    }
+
+    private static <T> T profileWait(String locator, Object condition, Supplier<T> wait) {
+        var context = TestContext.baseContext();
+        var depth = DEPTH.get();
+        if (depth[0] > 0 || !context.getSettings().isEnabled(ToggleSetting.WAIT_PROFILING_ENABLED)) {
+            return wait.get();
+        }
+        var testName = context.getWebDriverContext().getTestName();
+        var start = System.nanoTime();
+        var outcome = Outcome.FAILED;
+        depth[0]++;
+        try {
+            var result = wait.get();
+            outcome = Outcome.SATISFIED;
+            return result;
+        } catch (TimeoutException e) {
+            outcome = Outcome.TIMED_OUT;
+            throw e;
+        } finally {
+            depth[0]--;
+            context.getWaitProfiler().record(testName, locator, String.valueOf(condition), outcome, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a single wait.
+     *
+     * @param testName  the test the wait was made in
+     * @param locator   the locator that was waited on
+     * @param condition the description of the condition that was waited for
+     * @param outcome   how the wait ended
+     * @param nanos     how long the wait took, in nanoseconds
+     */
+    public void record(String testName, String locator, String condition, Outcome outcome, long nanos) {
+        var test = testName == null ? NO_TEST : testName;
+        var element = locator == null ? NO_LOCATOR : locator;
+        statistics(byTest, test).record(outcome, nanos);
+        statistics(byLocator, element).record(outcome, nanos);
+        statistics(byWait, element + " -> " + condition).record(outcome, nanos);
+    }
+
+    /**
+     * Marks the start of a test, so its time spent waiting can be compared to its total duration.
+     *
+     * @param testName the name of the test
+     */
+    public void testStarted(String testName) {
+        testStarts.put(testName, System.nanoTime());
+    }
+
+    /**
+     * Marks the end of a test started with {@link #testStarted(String)}.
+     *
+     * @param testName the name of the test
+     */
+    public void testFinished(String testName) {
+        var start = testStarts.remove(testName);
+        if (start != null) {
+            testDurations.computeIfAbsent(testName, key -> new LongAdder()).add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Drops everything recorded for a test. Called once the test's information has been reported, so the per-test
+     * statistics don't grow with the size of the run.
+     *
+     * @param testName the name of the test
+     */
+    public void testCompleted(String testName) {
+        byTest.remove(testName);
+        testStarts.remove(testName);
+        testDurations.remove(testName);
+    }
+
+    /**
+     * @param testName the name of the test
+     * @return the statistics of every wait made in the test, or null if it made none
+     */
+    public WaitStatistics getTestStatistics(String testName) {
+        return byTest.get(testName);
+    }
+
+    /**
+     * @param locator the locator
+     * @return the statistics of every wait made on the locator, or null if none were made
+     */
+    public WaitStatistics getLocatorStatistics(String locator) {
+        return byLocator.get(locator);
+    }
+
+    /**
+     * @param testName the name of the test
+     * @return how long the test ran for between {@link #testStarted(String)} and {@link #testFinished(String)}
+     */
+    public Duration getTestDuration(String testName) {
+        var duration = testDurations.get(testName);
+        return duration == null ? Duration.ZERO : Duration.ofNanos(duration.sum());
+    }
+
+    /**
+     * Returns the locator and condition pairs that were waited on the longest in total.
+     *
+     * @param limit the maximum amount of waits to return
+     * @return the statistics as a {@link List} of {@link WaitStatistics}, longest first
+     */
+    public List<WaitStatistics> getTopWaits(int limit) {
+        return byWait.values().stream()
+                .sorted(Comparator.comparing(WaitStatistics::getTotal).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Builds a readable report of the longest waits and the split between waiting and acting of each test that hasn't
+     * completed yet.
+     *
+     * @param limit the maximum amount of waits to list
+     * @return the report as a {@link String}
+     */
+    public String getReport(int limit) {
+        var report = new StringBuilder("Top waits:\n");
+        getTopWaits(limit).forEach(wait -> report.append("  ").append(wait).append("\n"));
+        report.append("Waiting versus acting per test:\n");
+        byTest.values().stream()
+                .sorted(Comparator.comparing(WaitStatistics::getTotal).reversed())
+                .forEach(test -> report.append("  ").append(getTestSplit(test.getName())).append("\n"));
+        return report.toString();
+    }
+
+    /**
+     * Describes how a single test's time was split between waiting and acting.
+     *
+     * @param testName the name of the test
+     * @return the split as a {@link String}
+     */
+    public String getTestSplit(String testName) {
+        var statistics = byTest.get(testName);
+        var waiting = statistics == null ? Duration.ZERO : statistics.getTotal();
+        var duration = getTestDuration(testName);
+        if (duration.isZero()) {
+            return String.format("%s: waited %d ms", testName, waiting.toMillis());
+        }
+        var acting = duration.minus(waiting);
+        return String.format("%s: waited %d ms, acted %d ms (%.1f%% waiting)", testName, waiting.toMillis(),
+                acting.isNegative() ? 0 : acting.toMillis(), 100.0 * waiting.toNanos() / duration.toNanos());
+    }
+
+    private static WaitStatistics statistics(Map<String, WaitStatistics> statistics, String name) {
+        // get() first since the statistics almost always exist already, and computeIfAbsent() can lock the bin
+        var existing = statistics.get(name);
+        return existing != null ? existing : statistics.computeIfAbsent(name, WaitStatistics::new);
+    }
+}
@@ -0,0 +1,103 @@
+package com.retailmenot.scaffold.util;
+
+import com.retailmenot.scaffold.util.interfaces.PollingStrategy;
+import org.openqa.selenium.NotFoundException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a single wait: how long to wait, how to poll in the meantime and which exceptions thrown by the condition
+ * simply mean "not yet". Specs are immutable, so they can be kept in constants and shared freely; the with*() methods
+ * return a modified copy.
+ */
+public class WaitSpec {
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+    private static final PollingStrategy DEFAULT_POLLING = PollingStrategy.fixed(Duration.ofMillis(500));
+
+    private final Duration timeout;
+    private final PollingStrategy polling;
+    private final List<Class<? extends Throwable>> ignoredExceptions;
+
+    private WaitSpec(Duration timeout, PollingStrategy polling, List<Class<? extends Throwable>> ignoredExceptions) {
+        this.timeout = timeout;
+        this.polling = polling;
+        this.ignoredExceptions = Collections.unmodifiableList(ignoredExceptions);
+    }
+
+    /**
+     * Returns the default spec: a ten second timeout polled every 500 milliseconds, ignoring {@link NotFoundException}.
+     * This is the same behavior as the WebDriverWait used before.
+     *
+     * @return the default {@link WaitSpec}
+     */
+    public static WaitSpec defaults() {
+        return new WaitSpec(DEFAULT_TIMEOUT, DEFAULT_POLLING, List.of(NotFoundException.class));
+    }
+
+    /**
+     * Returns the default spec with the given timeout.
+     *
+     * @param timeout how long to wait
+     * @return the {@link WaitSpec}
+     */
+    public static WaitSpec of(Duration timeout) {
+        return defaults().withTimeout(timeout);
+    }
+
+    /**
+     * @param timeout how long to wait
+     * @return a copy of this spec with the given timeout
+     */
+    public WaitSpec withTimeout(Duration timeout) {
+        return new WaitSpec(timeout, polling, ignoredExceptions);
+    }
+
+    /**
+     * @param polling the {@link PollingStrategy} to poll with
+     * @return a copy of this spec with the given polling strategy
+     */
+    public WaitSpec withPolling(PollingStrategy polling) {
+        return new WaitSpec(timeout, polling, ignoredExceptions);
+    }
+
+    /**
+     * @param exception an exception that should be treated as the condition not holding yet
+     * @return a copy of this spec that also ignores the given exception
+     */
+    public WaitSpec ignoring(Class<? extends Throwable> exception) {
+        var exceptions = new ArrayList<>(ignoredExceptions);
+        exceptions.add(exception);
+        return new WaitSpec(timeout, polling, exceptions);
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public PollingStrategy getPolling() {
+        return polling;
+    }
+
+    public List<Class<? extends Throwable>> getIgnoredExceptions() {
+        return ignoredExceptions;
+    }
+
+    /**
+     * Indicates whether or not the given exception should be treated as the condition not holding yet.
+     *
+     * @param throwable the exception thrown by the condition
+     * @return the result as a {@link boolean}
+     */
+    public boolean isIgnored(Throwable throwable) {
+        return ignoredExceptions.stream().anyMatch(exception -> exception.isInstance(throwable));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("timeout [%d ms] ignoring %s", timeout.toMillis(), ignoredExceptions);
+    }
+}
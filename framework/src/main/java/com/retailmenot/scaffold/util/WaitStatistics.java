@@ -0,0 +1,72 @@
+package com.retailmenot.scaffold.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for a group of waits recorded by the {@link WaitProfiler}. Every counter is a striped adder, so any
+ * number of threads can record into the same statistics without contending on a lock.
+ */
+public class WaitStatistics {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    WaitStatistics(String name) {
+        this.name = name;
+    }
+
+    void record(WaitProfiler.Outcome outcome, long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        if (outcome == WaitProfiler.Outcome.TIMED_OUT) {
+            timeouts.increment();
+        } else if (outcome == WaitProfiler.Outcome.FAILED) {
+            failures.increment();
+        }
+    }
+
+    /**
+     * @return what the waits were grouped by: a test name, a locator or a locator and condition
+     */
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public Duration getTotal() {
+        return Duration.ofNanos(totalNanos.sum());
+    }
+
+    public Duration getMax() {
+        return Duration.ofNanos(maxNanos.get());
+    }
+
+    public Duration getAverage() {
+        var waits = count.sum();
+        return waits == 0 ? Duration.ZERO : Duration.ofNanos(totalNanos.sum() / waits);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d wait(s), total %d ms, avg %d ms, max %d ms, %d timeout(s), %d failure(s)", name,
+                getCount(), getTotal().toMillis(), getAverage().toMillis(), getMax().toMillis(), getTimeouts(), getFailures());
+    }
+}
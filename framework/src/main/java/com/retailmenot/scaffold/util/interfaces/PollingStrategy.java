@@ -0,0 +1,66 @@
+package com.retailmenot.scaffold.util.interfaces;
+
+import java.time.Duration;
+
+/**
+ * Decides how long an {@link com.retailmenot.scaffold.util.AutomationWait} sleeps between two evaluations of a condition.
+ *
+ * Strategies are handed everything they need on every call, so they hold no state of their own and a single instance can
+ * be shared by any number of waits on any number of threads.
+ */
+@FunctionalInterface
+public interface PollingStrategy {
+
+    /**
+     * Returns how long to sleep before the next evaluation.
+     *
+     * @param attempt        the number of evaluations made so far, starting at 1
+     * @param lastEvaluation how long the last evaluation of the condition took
+     * @return the interval as a {@link Duration}
+     */
+    Duration nextInterval(int attempt, Duration lastEvaluation);
+
+    /**
+     * Polls at the same interval every time. This matches the behavior of WebDriverWait.
+     *
+     * @param interval the interval to poll at
+     * @return the {@link PollingStrategy}
+     */
+    static PollingStrategy fixed(Duration interval) {
+        return (attempt, lastEvaluation) -> interval;
+    }
+
+    /**
+     * Starts polling quickly and backs off by the given factor after every attempt, up to a maximum interval. Conditions
+     * that are about to hold are noticed almost immediately while long waits don't flood the browser with requests.
+     *
+     * @param initial the first interval
+     * @param factor  the factor to grow the interval by after each attempt
+     * @param max     the longest interval
+     * @return the {@link PollingStrategy}
+     */
+    static PollingStrategy exponential(Duration initial, double factor, Duration max) {
+        return (attempt, lastEvaluation) -> {
+            var millis = initial.toMillis() * Math.pow(factor, attempt - 1);
+            return millis >= max.toMillis() ? max : Duration.ofMillis((long) millis);
+        };
+    }
+
+    /**
+     * Polls about as often as the condition takes to evaluate, within the given bounds. A cheap condition is checked again
+     * quickly, while one that costs a slow round trip to a remote grid isn't evaluated back to back, keeping the share of
+     * time spent evaluating at roughly half.
+     *
+     * @param min the shortest interval
+     * @param max the longest interval
+     * @return the {@link PollingStrategy}
+     */
+    static PollingStrategy adaptive(Duration min, Duration max) {
+        return (attempt, lastEvaluation) -> {
+            if (lastEvaluation.compareTo(min) < 0) {
+                return min;
+            }
+            return lastEvaluation.compareTo(max) > 0 ? max : lastEvaluation;
+        };
+    }
+}
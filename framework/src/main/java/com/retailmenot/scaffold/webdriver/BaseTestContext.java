@@ -1,12 +1,48 @@
 package com.retailmenot.scaffold.webdriver;
 
+import com.retailmenot.scaffold.artifacts.ArtifactRef;
+import com.retailmenot.scaffold.artifacts.ArtifactStore;
 import com.retailmenot.scaffold.exception.WebDriverContextException;
+import com.retailmenot.scaffold.metrics.CommandMetrics;
+import com.retailmenot.scaffold.models.Step;
 import com.retailmenot.scaffold.models.TestInformation;
+import com.retailmenot.scaffold.results.JsonLinesResultWriter;
+import com.retailmenot.scaffold.screenshots.ImageFormat;
+import com.retailmenot.scaffold.screenshots.LocalDirectorySink;
+import com.retailmenot.scaffold.screenshots.ScreenshotDeduplicator;
+import com.retailmenot.scaffold.screenshots.ScreenshotPipeline;
+import com.retailmenot.scaffold.screenshots.ScreenshotUploader;
+import com.retailmenot.scaffold.screenshots.interfaces.ScreenshotSink;
+import com.retailmenot.scaffold.snapshots.SnapshotBuffer;
+import com.retailmenot.scaffold.snapshots.SnapshotLevel;
+import com.retailmenot.scaffold.steps.StepRecorder;
+import com.retailmenot.scaffold.util.TimeoutHistory;
+import com.retailmenot.scaffold.util.WaitProfiler;
 import com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting;
+import com.retailmenot.scaffold.webdriver.interfaces.TestInformationConsumer;
 import lombok.extern.slf4j.Slf4j;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * A list of common methods available to the {@link TestContext} singleton - Primarily used for obtaining a WebDriverManager
@@ -15,36 +51,137 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class BaseTestContext {
 
+    private static final String DEFAULT_TIMEOUT_HISTORY_FILE = ".scaffold/timeout-history.json";
+    private static final String DEFAULT_SCREENSHOT_DIRECTORY = "target/screenshots";
+    private static final String DEFAULT_ARTIFACT_DIRECTORY = "target/artifacts";
+    private static final String DEFAULT_SCREENSHOT_UPLOAD_DIRECTORY = "target/screenshot-uploads";
+    private static final String DEFAULT_COMMAND_METRICS_FILE = "target/command-latency.prom";
+
     // Associates the WebDriver instance to the current thread its operating in
     private final ThreadLocal<WebDriverContext> driverManager = new ThreadLocal<>();
     private Map<String, Object> settings = new ConcurrentHashMap<>();
-    private final Map<String, TestInformation> testInformationManager = new ConcurrentHashMap<>();
+    // Rebuilt whenever a setting changes, see addSetting()
+    private volatile TestSettings settingsSnapshot = TestSettings.of(settings);
+    private final Object settingsLock = new Object();
+    private static final int RELEASED_TESTS_REMEMBERED = 4096;
+    private static final long SHUTDOWN_COMPLETION_WAIT_SECONDS = 60L;
+
+    // Holds tests until their information has been consumed or released, see completeTest()
+    private final Map<String, TestRecord> testInformationManager = new ConcurrentHashMap<>();
+    // The most recently released tests, so late updates to them are ignored rather than starting an orphan record
+    private final Set<String> releasedTests = Collections.newSetFromMap(Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > RELEASED_TESTS_REMEMBERED;
+        }
+    }));
+    private final List<TestInformationConsumer> testInformationConsumers = new CopyOnWriteArrayList<>();
+    // Consumers run on a thread of their own, so a slow consumer never holds up the screenshot or upload threads whose
+    // work completes a test
+    private final Executor consumerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "test-information-consumer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final WaitProfiler waitProfiler = new WaitProfiler();
+    private volatile TimeoutHistory timeoutHistory;
+    private volatile ScreenshotPipeline screenshotPipeline;
+    private volatile ArtifactStore artifactStore;
+    private volatile ScreenshotUploader screenshotUploader;
+    private volatile JsonLinesResultWriter resultWriter;
+    private volatile CommandMetrics commandMetrics;
+    private volatile Path commandMetricsFile;
+    // Completions whose consumers haven't run yet, waited for before the result writer closes, see shutdown()
+    private final Set<CompletableFuture<TestInformation>> pendingCompletions = ConcurrentHashMap.newKeySet();
+    private volatile String runHost;
 
     BaseTestContext() {
-        // Set both of the available Boolean settings to false (off) by default
+        // Set all of the available Boolean settings to false (off) by default
         addSetting(TestContextSetting.WAIT_FOR_DISPLAY_ENABLED, false);
         addSetting(TestContextSetting.IMPLICIT_SCROLLING_ENABLED, false);
+        addSetting(TestContextSetting.EXISTENCE_PROBING_ENABLED, false);
+        addSetting(TestContextSetting.SCRIPTED_CLICK_ENABLED, false);
+        addSetting(TestContextSetting.IN_PAGE_WAITS_ENABLED, false);
+        addSetting(TestContextSetting.WAIT_PROFILING_ENABLED, false);
+        addSetting(TestContextSetting.ADAPTIVE_TIMEOUTS_ENABLED, false);
+        addSetting(TestContextSetting.TIMEOUT_HISTORY_FILE, DEFAULT_TIMEOUT_HISTORY_FILE);
+        addSetting(TestContextSetting.SCREENSHOT_DIRECTORY, DEFAULT_SCREENSHOT_DIRECTORY);
+        addSetting(TestContextSetting.SCREENSHOT_FORMAT, ImageFormat.JPEG);
+        addSetting(TestContextSetting.SCREENSHOT_QUALITY, 0.8f);
+        addSetting(TestContextSetting.SCREENSHOT_DEDUPLICATION_ENABLED, false);
+        addSetting(TestContextSetting.SCREENSHOT_UPLOAD_SINK, new LocalDirectorySink(Paths.get(DEFAULT_SCREENSHOT_UPLOAD_DIRECTORY)));
+        addSetting(TestContextSetting.SNAPSHOT_LEVEL, SnapshotLevel.OFF);
+        addSetting(TestContextSetting.SNAPSHOT_BUFFER_SIZE, 10);
+        addSetting(TestContextSetting.ARTIFACT_DIRECTORY, DEFAULT_ARTIFACT_DIRECTORY);
+        addSetting(TestContextSetting.STEP_RECORDING_ENABLED, true);
+        addSetting(TestContextSetting.COMMAND_METRICS_ENABLED, false);
+        addSetting(TestContextSetting.COMMAND_METRICS_FILE, DEFAULT_COMMAND_METRICS_FILE);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "test-context-shutdown"));
     }
 
-    private TestInformation getTestInformation(String testName) {
-        TestInformation localTestInformation;
-        synchronized (testInformationManager) {
-            if (!testInformationManager.containsKey(testName)) {
-                testInformationManager.put(testName, new TestInformation());
-            }
-            localTestInformation = testInformationManager.get(testName);
+    /**
+     * Returns the record a change to a test should be made on, creating it for a test that hasn't been seen yet. Returns
+     * null, and warns, if the test has already been reported or released, since nothing reads its information anymore.
+     */
+    private TestRecord findOpenRecord(String testName, String change) {
+        // release() remembers a test before removing its record, so a test missing here is either new or known as released
+        var record = testInformationManager.computeIfAbsent(testName,
+                key -> releasedTests.contains(key) ? null : new TestRecord());
+        if (record == null || record.reported) {
+            log.warn(String.format("Ignoring %s for test %s, which has already completed", change, testName));
+            return null;
         }
-        return localTestInformation;
+        return record;
+    }
+
+    private TestInformation findTestInformation(String testName) {
+        var record = testInformationManager.get(testName);
+        return record == null ? null : record.information;
     }
 
     /**
-     * Adds the specified setting to the key.
+     * Adds the specified setting to the key. If a test is running on the current thread, the change also applies to its
+     * {@link TestSettings}; tests already running on other threads keep the settings they started with.
      *
      * @param key the key to add
      * @param value the value to add
      */
-    private void addSetting(String key, Object value) {
-        settings.put(key, value);
+    public void addSetting(String key, Object value) {
+        synchronized (settingsLock) {
+            settings.put(key, value);
+            settingsSnapshot = TestSettings.of(settings);
+        }
+        var webDriverContext = driverManager.get();
+        if (webDriverContext != null && webDriverContext.getSettings() != null) {
+            webDriverContext.settings(webDriverContext.getSettings().with(key, value));
+        }
+    }
+
+    /**
+     * Returns the settings read on every interaction: those of the test running on the current thread, including its
+     * overrides, or those of the run if no test is running on it.
+     *
+     * @return the {@link TestSettings}
+     */
+    public TestSettings getSettings() {
+        var webDriverContext = driverManager.get();
+        var testSettings = webDriverContext == null ? null : webDriverContext.getSettings();
+        return testSettings == null ? settingsSnapshot : testSettings;
+    }
+
+    /**
+     * Overrides a setting for the test running on the current thread only.
+     *
+     * @param setting the {@link ToggleSetting} to override
+     * @param enabled whether or not the setting is on for the test
+     */
+    public void overrideSetting(ToggleSetting setting, boolean enabled) {
+        var webDriverContext = driverManager.get();
+        if (webDriverContext == null || webDriverContext.getSettings() == null) {
+            throw new WebDriverContextException(String.format("No test is running on this thread to override %s for", setting));
+        }
+        webDriverContext.settings(webDriverContext.getSettings().with(setting, enabled));
+        log.debug(String.format("%s overridden to %s for %s", setting, enabled, webDriverContext.getTestName()));
     }
 
     /**
@@ -56,7 +193,12 @@ public class BaseTestContext {
      * @return the setting as provided by the Type Reference
      */
     public <S> S getSetting(Class<S> clazz, String key) {
-        var obj = settings.get(key);
+        Object obj = settings.get(key);
+        var toggle = ToggleSetting.forKey(key);
+        if (toggle != null && obj instanceof Boolean) {
+            // Honor the overrides of the test running on this thread
+            obj = getSettings().isEnabled(toggle);
+        }
         if (obj == null) {
             return null;
         }
@@ -67,6 +209,175 @@ public class BaseTestContext {
         }
     }
 
+    /**
+     * Returns the {@link WaitProfiler} that records the time spent waiting across all tests.
+     *
+     * @return the {@link WaitProfiler}
+     */
+    public WaitProfiler getWaitProfiler() {
+        return waitProfiler;
+    }
+
+    /**
+     * Returns the {@link TimeoutHistory} used for adaptive timeouts. It is read from the file configured by
+     * {@link TestContextSetting#TIMEOUT_HISTORY_FILE} the first time it is needed and saved back when the JVM exits, see {@link #shutdown()}.
+     *
+     * @return the {@link TimeoutHistory}
+     */
+    public TimeoutHistory getTimeoutHistory() {
+        if (timeoutHistory == null) {
+            synchronized (this) {
+                if (timeoutHistory == null) {
+                    var file = Paths.get(getSetting(String.class, TestContextSetting.TIMEOUT_HISTORY_FILE));
+                    timeoutHistory = new TimeoutHistory(file);
+                }
+            }
+        }
+        return timeoutHistory;
+    }
+
+    /**
+     * Returns the {@link ScreenshotPipeline} screenshots are written through. It is created from the
+     * {@link TestContextSetting#SCREENSHOT_DIRECTORY}, {@link TestContextSetting#SCREENSHOT_FORMAT} and
+     * {@link TestContextSetting#SCREENSHOT_QUALITY} settings the first time it is needed, and drained when the JVM
+     * exits, see {@link #shutdown()}.
+     * With {@link TestContextSetting#SCREENSHOT_DEDUPLICATION_ENABLED}, identical screenshots are stored once.
+     *
+     * @return the {@link ScreenshotPipeline}
+     */
+    public ScreenshotPipeline getScreenshotPipeline() {
+        if (screenshotPipeline == null) {
+            synchronized (this) {
+                if (screenshotPipeline == null) {
+                    var pipeline = new ScreenshotPipeline(
+                            Paths.get(getSetting(String.class, TestContextSetting.SCREENSHOT_DIRECTORY)),
+                            getSetting(ImageFormat.class, TestContextSetting.SCREENSHOT_FORMAT),
+                            getSetting(Float.class, TestContextSetting.SCREENSHOT_QUALITY));
+                    if (getSetting(Boolean.class, TestContextSetting.SCREENSHOT_DEDUPLICATION_ENABLED)) {
+                        pipeline.deduplicateWith(new ScreenshotDeduplicator());
+                    }
+                    screenshotPipeline = pipeline;
+                }
+            }
+        }
+        return screenshotPipeline;
+    }
+
+    /**
+     * Returns the {@link ScreenshotUploader} screenshots are uploaded through when a test's driver is configured to
+     * upload them. It uploads to the {@link ScreenshotSink} set as {@link TestContextSetting#SCREENSHOT_UPLOAD_SINK}, a
+     * local directory by default, and finishes its uploads when the JVM exits, see {@link #shutdown()}.
+     *
+     * @return the {@link ScreenshotUploader}
+     */
+    public ScreenshotUploader getScreenshotUploader() {
+        if (screenshotUploader == null) {
+            synchronized (this) {
+                if (screenshotUploader == null) {
+                    screenshotUploader = new ScreenshotUploader(getSetting(ScreenshotSink.class, TestContextSetting.SCREENSHOT_UPLOAD_SINK));
+                }
+            }
+        }
+        return screenshotUploader;
+    }
+
+    /**
+     * Returns the {@link ArtifactStore} the run's screenshots, page sources and logs are appended to. It is created in the
+     * directory configured by {@link TestContextSetting#ARTIFACT_DIRECTORY} the first time it is needed, and flushed when
+     * the JVM exits, see {@link #shutdown()}.
+     *
+     * @return the {@link ArtifactStore}
+     */
+    public ArtifactStore getArtifactStore() {
+        if (artifactStore == null) {
+            synchronized (this) {
+                if (artifactStore == null) {
+                    artifactStore = new ArtifactStore(Paths.get(getSetting(String.class, TestContextSetting.ARTIFACT_DIRECTORY)));
+                }
+            }
+        }
+        return artifactStore;
+    }
+
+    /**
+     * Returns the {@link JsonLinesResultWriter} every completed test is written to, or null when no
+     * {@link TestContextSetting#RESULT_FILE} is set. It is created and registered as a {@link TestInformationConsumer}
+     * the first time a test starts, and writes its remaining results when the JVM exits, see {@link #shutdown()}.
+     *
+     * @return the {@link JsonLinesResultWriter}, or null
+     */
+    public JsonLinesResultWriter getResultWriter() {
+        var resultFile = getSetting(String.class, TestContextSetting.RESULT_FILE);
+        if (resultWriter == null && resultFile != null) {
+            synchronized (this) {
+                if (resultWriter == null) {
+                    var writer = new JsonLinesResultWriter(Paths.get(resultFile));
+                    addTestInformationConsumer(writer);
+                    resultWriter = writer;
+                }
+            }
+        }
+        return resultWriter;
+    }
+
+    /**
+     * Returns the {@link CommandMetrics} drivers record their command latencies into when
+     * {@link TestContextSetting#COMMAND_METRICS_ENABLED} is on. It is written to the Prometheus text file configured by
+     * {@link TestContextSetting#COMMAND_METRICS_FILE} when the JVM exits, and to the end of the result stream if there is
+     * one, see {@link #shutdown()}.
+     *
+     * @return the {@link CommandMetrics}
+     */
+    public CommandMetrics getCommandMetrics() {
+        if (commandMetrics == null) {
+            synchronized (this) {
+                if (commandMetrics == null) {
+                    commandMetricsFile = Paths.get(getSetting(String.class, TestContextSetting.COMMAND_METRICS_FILE));
+                    commandMetrics = new CommandMetrics();
+                }
+            }
+        }
+        return commandMetrics;
+    }
+
+    /**
+     * Returns the artifacts stored for the test, without creating the {@link ArtifactStore} if nothing was stored yet.
+     *
+     * @param testName the test name to get the artifacts for.
+     * @return the {@link ArtifactRef}s, in the order they were stored
+     */
+    public List<ArtifactRef> getArtifactsForTest(String testName) {
+        var store = artifactStore;
+        return store == null ? Collections.emptyList() : store.getArtifacts(testName);
+    }
+
+    /**
+     * Marks a test as started, recording when and on which host it ran. Must be called on the thread running the test,
+     * whose {@link StepRecorder} is cleared for it.
+     *
+     * @param testName the test name that started.
+     */
+    public void startTest(String testName) {
+        getResultWriter();
+        StepRecorder.current().clear();
+        // A test can run again under the same name, e.g. a repeated test, so a completed record is replaced
+        releasedTests.remove(testName);
+        testInformationManager.compute(testName, (key, existing) -> existing == null || existing.reported ? new TestRecord() : existing)
+                .information.startTime(Instant.now()).runHost(getRunHost());
+    }
+
+    private String getRunHost() {
+        if (runHost == null) {
+            try {
+                runHost = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                log.warn("Could not resolve the local host name: " + e.getMessage());
+                runHost = "unknown";
+            }
+        }
+        return runHost;
+    }
+
     /**
      * Adds the exception for the specified test name.
      *
@@ -74,13 +385,58 @@ public class BaseTestContext {
      * @param t the exception as {@link Throwable}
      */
     public void addExceptionForTest(String testName, Throwable t) {
-        var previousThrowable = getTestInformation(testName).exception(t).getException();
+        var record = findOpenRecord(testName, "exception " + t);
+        if (record == null) {
+            return;
+        }
+        var testInformation = record.information;
+        var previousThrowable = testInformation.getException();
+        testInformation.exception(t);
         if (previousThrowable != null) {
             log.error(String.format("Previous exception for test %s was found: %s", testName, previousThrowable));
         }
         log.debug(String.format("Exception %s added for test %s", t, testName));
     }
 
+    /**
+     * Sets the URL of the screen shot for the specified test, e.g. once the screen shot has been written or uploaded.
+     *
+     * @param testName the test name to set the screen shot URL for.
+     * @param screenShotUrl the URL of the screen shot.
+     */
+    public void setScreenShotUrlForTest(String testName, String screenShotUrl) {
+        var record = findOpenRecord(testName, "screen shot " + screenShotUrl);
+        if (record == null) {
+            return;
+        }
+        record.information.screenShotUrl(screenShotUrl);
+        log.debug(String.format("Screen shot %s set for test %s", screenShotUrl, testName));
+    }
+
+    /**
+     * Sets the steps the test made, e.g. from the {@link StepRecorder} of the thread that ran it.
+     *
+     * @param testName the test name to set the steps for.
+     * @param testSteps the {@link Step}s, oldest first.
+     */
+    public void setTestStepsForTest(String testName, List<Step> testSteps) {
+        var record = findOpenRecord(testName, "test steps");
+        if (record != null) {
+            record.information.testSteps(testSteps);
+        }
+    }
+
+    /**
+     * Returns the URL of the screen shot for the test.
+     *
+     * @param testName the test name to get the screen shot URL for.
+     * @return the URL of the screen shot, or null if there is none.
+     */
+    public String getScreenShotUrlForTest(String testName) {
+        var testInformation = findTestInformation(testName);
+        return testInformation == null ? null : testInformation.getScreenShotUrl();
+    }
+
     /**
      * Returns the associated exception for the test.
      *
@@ -88,11 +444,158 @@ public class BaseTestContext {
      * @return the exception as {@link Throwable}.
      */
     public Throwable getExceptionForTest(String testName) {
-        var returnException = getTestInformation(testName).getException();
+        var testInformation = findTestInformation(testName);
+        var returnException = testInformation == null ? null : testInformation.getException();
         log.debug(String.format("Exception %s retrieved for test %s", returnException, testName));
         return returnException;
     }
 
+    /**
+     * Registers a consumer that is handed the information of every test as it completes.
+     *
+     * @param consumer the {@link TestInformationConsumer} to register
+     */
+    public void addTestInformationConsumer(TestInformationConsumer consumer) {
+        testInformationConsumers.add(consumer);
+    }
+
+    /**
+     * Tracks work that will still update the information of a test after it has finished running, e.g. a screen shot
+     * upload that fills in the screen shot URL. Completing the test waits for it before handing the test's information
+     * to the consumers.
+     *
+     * @param testName the test name the work belongs to.
+     * @param work the work as a {@link CompletableFuture}
+     */
+    public void trackPendingWork(String testName, CompletableFuture<?> work) {
+        var record = findOpenRecord(testName, "pending work");
+        if (record != null) {
+            record.pendingWork.add(work);
+        }
+    }
+
+    /**
+     * Marks a test as complete. Once the work tracked for it has finished, its information is handed to every
+     * {@link TestInformationConsumer}, one test at a time on a thread of the context's own, after which it no longer
+     * changes. If there are consumers, the context then forgets
+     * the test, so a run never holds on to the information, and the exceptions, of tests that are done. Without
+     * consumers, the information stays available to reporting that runs after the test, e.g. a TestWatcher, until
+     * {@link #releaseTest(String)} is called. This does not wait for the tracked work.
+     *
+     * @param testName the test name that completed.
+     * @return a {@link CompletableFuture} completing with the test's {@link TestInformation} once it has been consumed
+     */
+    public CompletableFuture<TestInformation> completeTest(String testName) {
+        var record = testInformationManager.computeIfAbsent(testName, key -> new TestRecord());
+        if (record.information.getEndTime() == null) {
+            record.information.endTime(Instant.now());
+        }
+        var pendingWork = new ArrayList<>(record.pendingWork);
+        var completion = CompletableFuture.allOf(pendingWork.toArray(new CompletableFuture[0]))
+                // Failed work has already been logged where it failed, the test's information is still worth reporting
+                .handleAsync((result, e) -> {
+                    record.reported = true;
+                    for (var consumer : testInformationConsumers) {
+                        try {
+                            consumer.accept(testName, record.information);
+                        } catch (RuntimeException consumerException) {
+                            log.warn(String.format("Test information consumer %s failed for test %s: %s", consumer, testName,
+                                    consumerException.getMessage()));
+                        }
+                    }
+                    waitProfiler.testCompleted(testName);
+                    if (!testInformationConsumers.isEmpty()) {
+                        release(testName, record);
+                        log.debug(String.format("Test information for %s consumed and released", testName));
+                    }
+                    return record.information;
+                }, consumerExecutor);
+        pendingCompletions.add(completion);
+        completion.whenComplete((information, e) -> pendingCompletions.remove(completion));
+        return completion;
+    }
+
+    /**
+     * Finishes the run's work in the order it depends on: screenshots still being written are uploaded once they are,
+     * tests still completing hand their information, and its screenshot URLs, to the result writer, the command latencies
+     * close the result stream, and the {@link ArtifactStore} closes once nothing is appended to it anymore. Runs once, when
+     * the JVM exits.
+     */
+    void shutdown() {
+        shutdownStep("screenshot pipeline", () -> {
+            if (screenshotPipeline != null) {
+                screenshotPipeline.close();
+            }
+        });
+        shutdownStep("screenshot uploader", () -> {
+            if (screenshotUploader != null) {
+                screenshotUploader.close();
+            }
+        });
+        shutdownStep("pending test completions", () -> {
+            try {
+                CompletableFuture.allOf(pendingCompletions.toArray(new CompletableFuture[0]))
+                        .get(SHUTDOWN_COMPLETION_WAIT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn(String.format("%d test completions did not finish: %s", pendingCompletions.size(), e.getMessage()));
+            }
+        });
+        shutdownStep("command metrics", () -> {
+            if (commandMetrics != null) {
+                commandMetrics.writePrometheus(commandMetricsFile);
+            }
+        });
+        shutdownStep("result writer", () -> {
+            if (resultWriter != null) {
+                if (commandMetrics != null) {
+                    commandMetrics.toRecords().forEach(resultWriter::write);
+                }
+                resultWriter.close();
+            }
+        });
+        shutdownStep("artifact store", () -> {
+            if (artifactStore != null) {
+                artifactStore.close();
+            }
+        });
+        shutdownStep("timeout history", () -> {
+            if (timeoutHistory != null) {
+                timeoutHistory.save();
+            }
+        });
+    }
+
+    private void shutdownStep(String name, Runnable step) {
+        // One failing step shouldn't cost the run the steps after it
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            log.warn(String.format("Could not shut down the %s: %s", name, e.getMessage()));
+        }
+    }
+
+    /**
+     * Forgets a completed test's information, once reporting that runs after the test has read it. Only needed when no
+     * {@link TestInformationConsumer} is registered, since the information is released as soon as it has been consumed
+     * otherwise.
+     *
+     * @param testName the test name to release.
+     */
+    public void releaseTest(String testName) {
+        var record = testInformationManager.get(testName);
+        if (record != null) {
+            release(testName, record);
+        }
+    }
+
+    private void release(String testName, TestRecord record) {
+        // Remembered first, so findOpenRecord() can't recreate the test in between
+        releasedTests.add(testName);
+        testInformationManager.remove(testName, record);
+    }
+
     /**
      * Gets a web driver webdrivercontext from a pair.
      */
@@ -123,9 +626,13 @@ public class BaseTestContext {
             );
         }
 
+        var snapshotLevel = getSetting(SnapshotLevel.class, TestContextSetting.SNAPSHOT_LEVEL);
         webDriverContext
                 .webDriverManager(webDriverManager)
-                .testName(testName);
+                .testName(testName)
+                .settings(settingsSnapshot)
+                .snapshots(snapshotLevel == SnapshotLevel.OFF ? null
+                        : new SnapshotBuffer(getSetting(Integer.class, TestContextSetting.SNAPSHOT_BUFFER_SIZE), snapshotLevel));
         driverManager.set(webDriverContext);
         log.debug(String.format("Setting webdrivercontext for %s", testName));
     }
@@ -143,11 +650,51 @@ public class BaseTestContext {
             webDriverManager.closeDriver();
             webDriverContext
                     .webDriverManager(null)
-                    .testName(null);
+                    .testName(null)
+                    .settings(null)
+                    .snapshots(null);
             log.debug("Context existed and removed.");
         }
     }
 
+    /**
+     * Captures the context of the test running on the current thread, so work handed to other threads can use it.
+     *
+     * @return the {@link ContextHandle}
+     */
+    public ContextHandle captureContext() {
+        var webDriverContext = driverManager.get();
+        if (webDriverContext == null || webDriverContext.getWebDriverManager() == null) {
+            throw new WebDriverContextException("No test is running on this thread to capture the webdrivercontext of.");
+        }
+        // A copy, since each thread's context is reused from test to test and emptied by removeContext()
+        return new ContextHandle(new WebDriverContext(webDriverContext.getWebDriverManager(), webDriverContext.getTestName())
+                .settings(webDriverContext.getSettings())
+                .snapshots(webDriverContext.getSnapshots()));
+    }
+
+    /**
+     * Binds a captured context to the current thread.
+     *
+     * @return the context the thread had before, or null, to pass to {@link #detachContext(WebDriverContext)}
+     */
+    WebDriverContext attachContext(WebDriverContext webDriverContext) {
+        var previous = driverManager.get();
+        driverManager.set(webDriverContext);
+        return previous;
+    }
+
+    /**
+     * Gives the current thread back the context it had before {@link #attachContext(WebDriverContext)}.
+     */
+    void detachContext(WebDriverContext previous) {
+        if (previous == null) {
+            driverManager.remove();
+        } else {
+            driverManager.set(previous);
+        }
+    }
+
     /**
      * Returns the WebDriverContext for the current thread.
      *
@@ -157,4 +704,14 @@ public class BaseTestContext {
         log.debug("Retrieving webdrivercontext");
         return getContext();
     }
+
+    /**
+     * The information of a test that has not completed yet, along with the work that will still update it.
+     */
+    private static class TestRecord {
+        private final TestInformation information = new TestInformation();
+        private final Queue<CompletableFuture<?>> pendingWork = new ConcurrentLinkedQueue<>();
+        // Set once the information has been handed to the consumers, after which changes to it are ignored
+        private volatile boolean reported = false;
+    }
 }
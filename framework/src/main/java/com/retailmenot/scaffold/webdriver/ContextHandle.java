@@ -0,0 +1,126 @@
+package com.retailmenot.scaffold.webdriver;
+
+import com.retailmenot.scaffold.steps.StepRecorder;
+
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The {@link WebDriverContext} of a test, captured so that work handed to another thread can use the test's driver.
+ *
+ * The context is bound to the thread running the test, so a {@link Runnable} passed to an executor, a
+ * {@link java.util.concurrent.CompletableFuture} or a parallel stream would otherwise find no driver at all. A handle
+ * wraps such work so that it runs with the captured context, and restores whatever the worker thread had before once it
+ * is done, so pooled threads never keep a test's driver.
+ *
+ * <pre>
+ *     var handle = ContextHandle.capture();
+ *     var prices = products.parallelStream().map(handle.wrapFunction(Product::getPrice)).collect(Collectors.toList());
+ * </pre>
+ *
+ * The work shares the test's browser, which runs one command at a time, so it is best suited to verification that reads
+ * from the page rather than to interactions whose order matters. Wrapped work must not set or remove the context, since
+ * removing it closes the test's driver. Steps made by wrapped work are not added to the test's steps.
+ */
+public final class ContextHandle {
+
+    private final WebDriverContext context;
+
+    ContextHandle(WebDriverContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Captures the context of the test running on the current thread.
+     *
+     * @return the {@link ContextHandle}
+     * @throws com.retailmenot.scaffold.exception.WebDriverContextException if no test is running on the current thread
+     */
+    public static ContextHandle capture() {
+        return TestContext.baseContext().captureContext();
+    }
+
+    /**
+     * @return the name of the test the context was captured from
+     */
+    public String getTestName() {
+        return context.getTestName();
+    }
+
+    /**
+     * @param runnable the work to wrap
+     * @return a {@link Runnable} running the work with the captured context
+     */
+    public Runnable wrap(Runnable runnable) {
+        return () -> {
+            var previous = attach();
+            try {
+                runnable.run();
+            } finally {
+                detach(previous);
+            }
+        };
+    }
+
+    /**
+     * @param callable the work to wrap
+     * @param <V> the type reference
+     * @return a {@link Callable} running the work with the captured context
+     */
+    public <V> Callable<V> wrap(Callable<V> callable) {
+        return () -> {
+            var previous = attach();
+            try {
+                return callable.call();
+            } finally {
+                detach(previous);
+            }
+        };
+    }
+
+    /**
+     * @param supplier the work to wrap, e.g. for {@link java.util.concurrent.CompletableFuture#supplyAsync(Supplier)}
+     * @param <V> the type reference
+     * @return a {@link Supplier} running the work with the captured context
+     */
+    public <V> Supplier<V> wrapSupplier(Supplier<V> supplier) {
+        return () -> {
+            var previous = attach();
+            try {
+                return supplier.get();
+            } finally {
+                detach(previous);
+            }
+        };
+    }
+
+    /**
+     * @param function the work to wrap, e.g. for {@link java.util.stream.Stream#map(Function)}
+     * @param <T> the type of the input
+     * @param <R> the type of the result
+     * @return a {@link Function} running the work with the captured context
+     */
+    public <T, R> Function<T, R> wrapFunction(Function<T, R> function) {
+        return input -> {
+            var previous = attach();
+            try {
+                return function.apply(input);
+            } finally {
+                detach(previous);
+            }
+        };
+    }
+
+    private WebDriverContext attach() {
+        return TestContext.baseContext().attachContext(context);
+    }
+
+    private void detach(WebDriverContext previous) {
+        TestContext.baseContext().detachContext(previous);
+        if (previous == null || previous.getWebDriverManager() == null) {
+            // Don't let a pooled thread hold on to the elements the work touched
+            StepRecorder.current().clear();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.retailmenot.scaffold.webdriver;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link ExecutorService} that runs every task with the {@link WebDriverContext} of the test that submitted it, see
+ * {@link ContextHandle}. The context is captured on the submitting thread, so one executor can be shared by every test
+ * of a run:
+ *
+ * <pre>
+ *     var executor = new ContextPropagatingExecutor(Executors.newFixedThreadPool(4));
+ *     CompletableFuture.supplyAsync(() -> header.getText(), executor);
+ * </pre>
+ */
+public class ContextPropagatingExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    /**
+     * @param delegate the {@link ExecutorService} the tasks run on
+     */
+    public ContextPropagatingExecutor(ExecutorService delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Runs the task with the context of the current thread's test.
+     *
+     * @param command the task
+     * @throws com.retailmenot.scaffold.exception.WebDriverContextException if no test is running on the current thread
+     */
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(ContextHandle.capture().wrap(command));
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -1,11 +1,14 @@
 package com.retailmenot.scaffold.webdriver;
 
 import com.retailmenot.scaffold.environment.config.DesiredCapabilitiesConfigurationProperties;
+import com.retailmenot.scaffold.snapshots.FailureSnapshotExtension;
+import com.retailmenot.scaffold.steps.StepRecorder;
 import com.retailmenot.scaffold.util.AutomationUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.openqa.selenium.WebDriver;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -26,9 +29,12 @@ import org.springframework.web.client.RestTemplate;
  * Execution is required for parallel testing.
  * ExtendWith is required for running the testing with Junit5
  * SpringBootTest is required for initializing the Application Context
+ * <p>
+ * The {@link FailureSnapshotExtension} persists the snapshots leading up to a failure, when snapshots are enabled.
  */
 @Slf4j
 @Component
+@ExtendWith(FailureSnapshotExtension.class)
 public class ScaffoldBaseTest {
 
     @Autowired
@@ -48,7 +54,11 @@ public class ScaffoldBaseTest {
     @BeforeEach
     public void setup(TestInfo testInfo) {
         String testName = testInfo.getDisplayName();
+        getTestContext().startTest(testName);
         baseSetup(testName);
+        if (isWaitProfilingEnabled()) {
+            getTestContext().getWaitProfiler().testStarted(testName);
+        }
         setupWebdriver(testName);
         startWebBrowser(testName);
     }
@@ -66,11 +76,27 @@ public class ScaffoldBaseTest {
     public void tearDown(TestInfo testInfo) {
         var testName = testInfo.getDisplayName();
         log.debug(String.format("WebDriver teardown executing for test: %s", testName));
+        if (isWaitProfilingEnabled()) {
+            var waitProfiler = getTestContext().getWaitProfiler();
+            waitProfiler.testFinished(testName);
+            log.info(waitProfiler.getTestSplit(testName));
+        }
         try {
             getWebDriverContext().getWebDriverManager().closeDriver();
             getTestContext().removeContext();
         } catch (Exception e) {
             throw new RuntimeException("Could not stop the Web Driver", e);
+        } finally {
+            var recorder = StepRecorder.current();
+            if (log.isDebugEnabled()) {
+                if (recorder.getDroppedCount() > 0) {
+                    log.debug(String.format("%d earlier steps of test %s were not kept", recorder.getDroppedCount(), testName));
+                }
+                recorder.getSteps().forEach(step -> log.debug(String.format("Step of test %s: %s", testName, step)));
+            }
+            getTestContext().setTestStepsForTest(testName, recorder.drain());
+            // Hands the test's information to reporting once its pending work is done, without waiting for it here
+            getTestContext().completeTest(testName);
         }
     }
 
@@ -95,6 +121,10 @@ public class ScaffoldBaseTest {
         return TestContext.baseContext();
     }
 
+    private boolean isWaitProfilingEnabled() {
+        return getTestContext().getSettings().isEnabled(ToggleSetting.WAIT_PROFILING_ENABLED);
+    }
+
     private WebDriverContext getWebDriverContext() {
         return TestContext.baseContext().getWebDriverContext();
     }
@@ -1,5 +1,6 @@
 package com.retailmenot.scaffold.webdriver;
 
+import com.retailmenot.scaffold.metrics.CommandRecorder;
 import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
@@ -7,14 +8,18 @@ import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.remote.CapabilityType;
 import org.openqa.selenium.remote.DriverCommand;
 import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
 
 import java.net.URL;
+import java.util.Map;
 
 /**
  * Wrapper that allows for screenshots to be taken at will within a {@link RemoteWebDriver}.
  */
 public class ScreenshotRemoteDriver extends RemoteWebDriver implements TakesScreenshot {
 
+    private CommandRecorder commandRecorder;
+
     public ScreenshotRemoteDriver(URL remoteAddress, Capabilities desiredCapabilities) {
         super(remoteAddress, desiredCapabilities);
     }
@@ -34,4 +39,31 @@ public class ScreenshotRemoteDriver extends RemoteWebDriver implements TakesScre
         }
         return null;
     }
+
+    /**
+     * Sets the {@link CommandRecorder} every command sent to the remote end is timed into, or null to stop timing them.
+     *
+     * @param commandRecorder the {@link CommandRecorder}
+     */
+    public void setCommandRecorder(CommandRecorder commandRecorder) {
+        this.commandRecorder = commandRecorder;
+    }
+
+    /**
+     * Sends a command to the remote end, timing it if a {@link CommandRecorder} is set. Every command of the session
+     * goes through here, including those sent by elements, so this sees the full round trip to Grid or Sauce.
+     */
+    @Override
+    protected Response execute(String driverCommand, Map<String, ?> parameters) {
+        var recorder = commandRecorder;
+        if (recorder == null) {
+            return super.execute(driverCommand, parameters);
+        }
+        var start = System.nanoTime();
+        try {
+            return super.execute(driverCommand, parameters);
+        } finally {
+            recorder.recordSince(driverCommand, start);
+        }
+    }
 }
@@ -0,0 +1,92 @@
+package com.retailmenot.scaffold.webdriver;
+
+import com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting;
+import com.retailmenot.scaffold.webelements.interfaces.DisplayWaitCondition;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the settings read on every interaction: the {@link ToggleSetting}s and the global
+ * {@link DisplayWaitCondition}.
+ *
+ * The {@link BaseTestContext} keeps a snapshot of the run's settings, rebuilt whenever one of them changes, and hands
+ * each test its own when the test's context is set. Reading a setting is then an array read instead of a map lookup and
+ * a cast, and a test can override a setting for itself without affecting the tests running next to it.
+ */
+public final class TestSettings {
+
+    private final boolean[] toggles;
+    private final DisplayWaitCondition waitCondition;
+
+    private TestSettings(boolean[] toggles, DisplayWaitCondition waitCondition) {
+        this.toggles = toggles;
+        this.waitCondition = waitCondition;
+    }
+
+    /**
+     * Takes a snapshot of the given settings.
+     *
+     * @param settings the settings by their {@link TestContextSetting} keys
+     * @return the {@link TestSettings}
+     */
+    static TestSettings of(Map<String, Object> settings) {
+        var toggles = new boolean[ToggleSetting.values().length];
+        for (var setting : ToggleSetting.values()) {
+            toggles[setting.ordinal()] = Boolean.TRUE.equals(settings.get(setting.getKey()));
+        }
+        var waitCondition = settings.get(TestContextSetting.WAIT_CONDITION);
+        return new TestSettings(toggles, waitCondition instanceof DisplayWaitCondition ? (DisplayWaitCondition) waitCondition : null);
+    }
+
+    /**
+     * @param setting the {@link ToggleSetting}
+     * @return whether or not the setting is on
+     */
+    public boolean isEnabled(ToggleSetting setting) {
+        return toggles[setting.ordinal()];
+    }
+
+    /**
+     * @return the {@link DisplayWaitCondition} set as {@link TestContextSetting#WAIT_CONDITION}, or null
+     */
+    public DisplayWaitCondition getWaitCondition() {
+        return waitCondition;
+    }
+
+    /**
+     * @param setting the {@link ToggleSetting} to change
+     * @param enabled whether or not the setting is on
+     * @return a copy of these settings with the setting changed
+     */
+    public TestSettings with(ToggleSetting setting, boolean enabled) {
+        var changed = Arrays.copyOf(toggles, toggles.length);
+        changed[setting.ordinal()] = enabled;
+        return new TestSettings(changed, waitCondition);
+    }
+
+    /**
+     * @param key   a {@link TestContextSetting} key
+     * @param value the new value of the setting
+     * @return a copy of these settings with the setting changed, or these settings if the key isn't part of them
+     */
+    TestSettings with(String key, Object value) {
+        var toggle = ToggleSetting.forKey(key);
+        if (toggle != null) {
+            return with(toggle, Boolean.TRUE.equals(value));
+        }
+        if (TestContextSetting.WAIT_CONDITION.equals(key)) {
+            return new TestSettings(toggles, value instanceof DisplayWaitCondition ? (DisplayWaitCondition) value : null);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("TestSettings{");
+        for (var setting : ToggleSetting.values()) {
+            builder.append(setting).append('=').append(toggles[setting.ordinal()]).append(", ");
+        }
+        return builder.append("WAIT_CONDITION=").append(waitCondition).append('}').toString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.retailmenot.scaffold.webdriver;
+
+import com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The on/off settings read on every interaction. Each one is backed by its {@link TestContextSetting} key, so setting
+ * the key with {@link BaseTestContext#addSetting(String, Object)} still works, while {@link TestSettings} gives hot paths
+ * a typed read and tests a per-test override.
+ */
+public enum ToggleSetting {
+    WAIT_FOR_DISPLAY_ENABLED(TestContextSetting.WAIT_FOR_DISPLAY_ENABLED),
+    IMPLICIT_SCROLLING_ENABLED(TestContextSetting.IMPLICIT_SCROLLING_ENABLED),
+    EXISTENCE_PROBING_ENABLED(TestContextSetting.EXISTENCE_PROBING_ENABLED),
+    SCRIPTED_CLICK_ENABLED(TestContextSetting.SCRIPTED_CLICK_ENABLED),
+    IN_PAGE_WAITS_ENABLED(TestContextSetting.IN_PAGE_WAITS_ENABLED),
+    WAIT_PROFILING_ENABLED(TestContextSetting.WAIT_PROFILING_ENABLED),
+    ADAPTIVE_TIMEOUTS_ENABLED(TestContextSetting.ADAPTIVE_TIMEOUTS_ENABLED),
+    STEP_RECORDING_ENABLED(TestContextSetting.STEP_RECORDING_ENABLED),
+    COMMAND_METRICS_ENABLED(TestContextSetting.COMMAND_METRICS_ENABLED);
+
+    private static final Map<String, ToggleSetting> BY_KEY = new HashMap<>();
+
+    static {
+        for (var setting : values()) {
+            BY_KEY.put(setting.key, setting);
+        }
+    }
+
+    private final String key;
+
+    ToggleSetting(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return the {@link TestContextSetting} key of the setting
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @param key a {@link TestContextSetting} key
+     * @return the setting backed by the key, or null if it isn't a toggle
+     */
+    public static ToggleSetting forKey(String key) {
+        return BY_KEY.get(key);
+    }
+}
@@ -1,5 +1,7 @@
 package com.retailmenot.scaffold.webdriver;
 
+import com.retailmenot.scaffold.snapshots.SnapshotBuffer;
+
 /**
  * A model that is used to pair a {@link WebDriverManager} with a TestName. This is used in the {@link BaseTestContext} class.
  *
@@ -10,6 +12,8 @@ public class WebDriverContext {
 
     private WebDriverManager webDriverManager;
     private String testName;
+    private SnapshotBuffer snapshots;
+    private TestSettings settings;
 
     public WebDriverContext(WebDriverManager webDriverManager, String testName) {
         this.webDriverManager = webDriverManager;
@@ -24,6 +28,20 @@ public class WebDriverContext {
         return testName;
     }
 
+    /**
+     * @return the {@link SnapshotBuffer} of the test, or null if snapshots are off
+     */
+    public SnapshotBuffer getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @return the {@link TestSettings} of the test, resolved when its context was set, or null if no test is set
+     */
+    public TestSettings getSettings() {
+        return settings;
+    }
+
     public WebDriverContext webDriverManager(WebDriverManager webDriverManager) {
         this.webDriverManager = webDriverManager;
         return this;
@@ -33,4 +51,14 @@ public class WebDriverContext {
         this.testName = testName;
         return this;
     }
+
+    public WebDriverContext settings(TestSettings settings) {
+        this.settings = settings;
+        return this;
+    }
+
+    public WebDriverContext snapshots(SnapshotBuffer snapshots) {
+        this.snapshots = snapshots;
+        return this;
+    }
 }
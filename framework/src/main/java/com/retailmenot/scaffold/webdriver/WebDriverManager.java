@@ -55,7 +55,6 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 public class WebDriverManager {
 
     private static final String GRID_TEST_SESSION_URI = "/grid/api/testsession";
-    private static final Long TEN_SECONDS = 10L;
 
     private final RestTemplate seleniumGridRestTemplate;
     private final DesiredCapabilitiesConfigurationProperties desiredCapabilities;
@@ -66,6 +65,7 @@ public class WebDriverManager {
     private Set<Cookie> cookieJar = new TreeSet<>();
     private RunType runType;
     private BrowserType browserType;
+    private String gridNode;
 
     @Autowired
     public WebDriverManager(DesiredCapabilitiesConfigurationProperties desiredCapabilities,
@@ -93,9 +93,19 @@ public class WebDriverManager {
         }
         var browserDriver = configureBrowserDriver(testName);
         webDriverWrapper = new WebDriverWrapper(browserDriver);
+        if (TestContext.baseContext().getSettings().isEnabled(ToggleSetting.COMMAND_METRICS_ENABLED)) {
+            var recorder = TestContext.baseContext().getCommandMetrics()
+                    .recorderFor(String.valueOf(runType), String.valueOf(browserType), gridNode);
+            // Remote drivers time the commands they send, which also covers those sent by elements
+            if (browserDriver instanceof ScreenshotRemoteDriver) {
+                ((ScreenshotRemoteDriver) browserDriver).setCommandRecorder(recorder);
+            } else {
+                webDriverWrapper.setCommandRecorder(recorder);
+            }
+        }
 
         // Configure the browser to implicitly wait anytime a user attempts to locate an element
-        webDriverWrapper.manage().timeouts().implicitlyWait(TEN_SECONDS, SECONDS);
+        webDriverWrapper.setImplicitWait(WebDriverWrapper.DEFAULT_IMPLICIT_WAIT_IN_SECONDS, SECONDS);
     }
 
     /**
@@ -126,6 +136,23 @@ public class WebDriverManager {
         return webDriverWrapper;
     }
 
+    /**
+     * @return the Grid node the driver's session runs on, or null if it doesn't run on Grid or the Grid couldn't tell
+     */
+    public String getGridNode() {
+        return gridNode;
+    }
+
+    /**
+     * Returns whether or not screenshots of this driver's test are to be uploaded, as configured by
+     * {@link DesiredCapabilitiesConfigurationProperties#getUploadScreenshots()}.
+     *
+     * @return true if screenshots are uploaded
+     */
+    public boolean isUploadingScreenshots() {
+        return desiredCapabilities != null && desiredCapabilities.getUploadScreenshots();
+    }
+
     /**
      * Set up any cookies the user passed in, so they will be active before the first url is loaded
      *
@@ -337,7 +364,8 @@ public class WebDriverManager {
                 var request = new HttpEntity<>(gridSessionRequest);
 
                 var fullPath = GRID_TEST_SESSION_URI + "?session=" + gridSessionRequest.getSession();
-                seleniumGridRestTemplate.getForObject(fullPath, GridSessionResponse.class, request);
+                var gridSessionResponse = seleniumGridRestTemplate.getForObject(fullPath, GridSessionResponse.class, request);
+                gridNode = gridSessionResponse == null ? null : gridSessionResponse.getProxyId();
             } catch (Exception ex) {
                 log.error("Unable to call the Selenium Grid", ex);
             }
@@ -1,26 +1,43 @@
 package com.retailmenot.scaffold.webdriver;
 
+import com.retailmenot.scaffold.artifacts.ArtifactRef;
+import com.retailmenot.scaffold.artifacts.ArtifactStore;
 import com.retailmenot.scaffold.exception.WebDriverWrapperException;
+import com.retailmenot.scaffold.metrics.CommandRecorder;
+import com.retailmenot.scaffold.models.enums.StepType;
+import com.retailmenot.scaffold.screenshots.ScreenshotArtifact;
+import com.retailmenot.scaffold.screenshots.ScreenshotPipeline;
+import com.retailmenot.scaffold.steps.StepRecorder;
 import com.retailmenot.scaffold.util.AutomationUtils;
 import com.retailmenot.scaffold.util.AutomationWait;
 import com.retailmenot.scaffold.webelements.AbstractWebElement;
+import com.retailmenot.scaffold.webelements.ElementRecipe;
 import com.retailmenot.scaffold.webelements.interfaces.BaseWebElement;
 import lombok.extern.slf4j.Slf4j;
 import org.openqa.selenium.*;
+import org.openqa.selenium.WebDriver.ImeHandler;
 import org.openqa.selenium.WebDriver.Navigation;
 import org.openqa.selenium.WebDriver.Options;
 import org.openqa.selenium.WebDriver.TargetLocator;
+import org.openqa.selenium.WebDriver.Timeouts;
+import org.openqa.selenium.WebDriver.Window;
 import org.openqa.selenium.interactions.Actions;
+import org.openqa.selenium.logging.Logs;
+import org.openqa.selenium.remote.DriverCommand;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 
 import java.io.File;
 import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
-import static com.retailmenot.scaffold.util.AutomationUtils.sleep;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * This serves as a buffer between us and Selenium to help guard against drastic changes to their API and functionality
@@ -30,12 +47,20 @@ import static com.retailmenot.scaffold.util.AutomationUtils.sleep;
 @Slf4j
 public class WebDriverWrapper {
 
+    // The implicit wait a new driver starts with, see WebDriverManager.initDriver()
+    static final long DEFAULT_IMPLICIT_WAIT_IN_SECONDS = 10L;
     private static final Long WINDOW_TIME_OUT_IN_SECONDS = 60L;
+    // What window synchronization is recorded as by the wait profiler and the timeout history
+    private static final String WINDOW_CHANGE = "(window change)";
     private AutomationWait automationWait;
     private WebDriver driver;
     private long seleniumObjectTimeout = 15;
-    private LinkedList<String> registeredWindows = new LinkedList<>();
+    private final WindowTracker windowTracker;
     private boolean implicitWaitsEnabled = true; // Flag here for us to determine if implicit waiting is enabled or disabled
+    // The last implicit wait and script timeout sent to the browser through manage(), -1 if none was ever sent
+    private long implicitWaitInMillis = -1;
+    private long scriptTimeoutInMillis = -1;
+    private CommandRecorder commandRecorder; // Times the commands made through the wrapper, null when they aren't timed
 
     /**
      * Takes a "real" WebDriver instance and wraps it up in the facade for safe (and thread-safe) handling.
@@ -44,6 +69,7 @@ public class WebDriverWrapper {
     WebDriverWrapper(WebDriver webDriver) {
         this.driver = webDriver;
         this.automationWait = new AutomationWait(this);
+        this.windowTracker = new WindowTracker(webDriver);
     }
 
     /**
@@ -53,7 +79,12 @@ public class WebDriverWrapper {
      * @return the element as a {@link WebElement}
      */
     public WebElement findElement(By by) {
-        return driver.findElement(by);
+        var start = System.nanoTime();
+        try {
+            return driver.findElement(by);
+        } finally {
+            recordCommand(DriverCommand.FIND_ELEMENT, start);
+        }
     }
 
     /**
@@ -67,6 +98,7 @@ public class WebDriverWrapper {
      */
     public WebElement findElement(WebElement element, By by, boolean throwExceptionIfNotFound) {
         WebElement returnElement = null;
+        var start = System.nanoTime();
         try {
             returnElement = element.findElement(by);
         }
@@ -77,6 +109,8 @@ public class WebDriverWrapper {
             if (throwExceptionIfNotFound) {
                 throw e;
             }
+        } finally {
+            recordCommand(DriverCommand.FIND_CHILD_ELEMENT, start);
         }
         return returnElement;
     }
@@ -92,6 +126,7 @@ public class WebDriverWrapper {
      */
     public List<WebElement> findElements(WebElement element, By by, boolean throwExceptionIfNotFound) {
         List<WebElement> elements = new ArrayList<>();
+        var start = System.nanoTime();
         try {
             elements = element.findElements(by);
         }
@@ -102,10 +137,38 @@ public class WebDriverWrapper {
             if (throwExceptionIfNotFound) {
                 throw e;
             }
+        } finally {
+            recordCommand(DriverCommand.FIND_CHILD_ELEMENTS, start);
         }
         return elements;
     }
 
+    /**
+     * Returns the elements matching the By locator under the given search context without waiting for them to appear. The
+     * implicit wait is set to zero for the duration of the lookup, so an absent element comes back as an empty list in
+     * milliseconds instead of burning the full implicit wait and throwing.
+     *
+     * @param searchContext the driver or element to search from
+     * @param by            the means in which the element is being found using {@link By}
+     * @return the elements as a {@link List} of {@link WebElement}, empty if none were found
+     */
+    public List<WebElement> findElementsImmediately(SearchContext searchContext, By by) {
+        var previousImplicitWait = implicitWaitInMillis;
+        setImplicitWait(0, MILLISECONDS);
+        var start = System.nanoTime();
+        try {
+            return searchContext.findElements(by);
+        } catch (NoSuchElementException e) {
+            // findElements() shouldn't throw this, but not every driver plays by the rules
+            return new ArrayList<>();
+        } finally {
+            recordCommand(searchContext instanceof WebElement ? DriverCommand.FIND_CHILD_ELEMENTS : DriverCommand.FIND_ELEMENTS, start);
+            // If no implicit wait was ever sent, the driver still has the one it started with
+            setImplicitWait(previousImplicitWait < 0 ? SECONDS.toMillis(DEFAULT_IMPLICIT_WAIT_IN_SECONDS) : previousImplicitWait,
+                    MILLISECONDS);
+        }
+    }
+
     /**
      * Returns a list of all the WebElements on the page that match the By locator
      *
@@ -113,7 +176,12 @@ public class WebDriverWrapper {
      * @return the list of elements as a {@link List} of {@link WebElement}
      */
     public List<WebElement> findElements(By by) {
-        return this.driver.findElements(by);
+        var start = System.nanoTime();
+        try {
+            return this.driver.findElements(by);
+        } finally {
+            recordCommand(DriverCommand.FIND_ELEMENTS, start);
+        }
     }
 
     /**
@@ -174,11 +242,13 @@ public class WebDriverWrapper {
             }
         }
         List<T> returnElements = new ArrayList<>(elements.size());
-        // elements should be an empty list if no WebElements were found, and the for/each will never execute, returning an empty list to the caller
-        for (WebElement element : elements) {
+        // elements should be an empty list if no WebElements were found, and the loop will never execute, returning an empty list to the caller
+        for (int i = 0; i < elements.size(); i++) {
             try {
                 Constructor<T> constructor = elementClass.getConstructor(WebElement.class);
-                T newElement = constructor.newInstance((WebElement) element);
+                T newElement = constructor.newInstance(elements.get(i));
+                // Remember where this element was found so it can be located again if it goes stale
+                newElement.setRecipe(new ElementRecipe(null, by, i));
                 returnElements.add(newElement);
             } catch (Throwable t) {
                 log.error("Error trying to construct webelement: " + AutomationUtils.getStackTrace(t));
@@ -193,7 +263,14 @@ public class WebDriverWrapper {
      * @param url the URL to navigate to
      */
     public void get(String url) {
-        this.driver.get(url);
+        var step = StepRecorder.begin(StepType.NAVIGATE, url, null);
+        var start = System.nanoTime();
+        try {
+            this.driver.get(url);
+        } finally {
+            recordCommand(DriverCommand.GET, start);
+        }
+        StepRecorder.end(step);
     }
 
     /**
@@ -205,7 +282,28 @@ public class WebDriverWrapper {
         if (!(this.driver instanceof JavascriptExecutor)) {
             throw new WebDriverWrapperException("Current WebDriver instance does not support JavascriptExecutor");
         }
-        return (JavascriptExecutor) this.driver;
+        var executor = (JavascriptExecutor) this.driver;
+        return commandRecorder == null ? executor : new TimedJavascriptExecutor(executor);
+    }
+
+    /**
+     * Executes an asynchronous script, making sure the browser's script timeout leaves it at least the given budget to
+     * call back. The script timeout is only ever raised, and only sent to the browser when it actually changes.
+     *
+     * @param budget the longest the script is expected to run before invoking its callback
+     * @param script the script to execute
+     * @param args   the arguments to pass to the script
+     * @return the value the script passed to its callback
+     * @see JavascriptExecutor#executeAsyncScript(String, Object...)
+     */
+    public Object executeAsyncScript(Duration budget, String script, Object... args) {
+        var executor = getJavascriptExecutor();
+        // Give the browser a second on top of the budget so the script's own timeout handling always wins the race
+        var requiredTimeout = budget.toMillis() + 1000;
+        if (requiredTimeout > scriptTimeoutInMillis) {
+            manage().timeouts().setScriptTimeout(requiredTimeout, MILLISECONDS);
+        }
+        return executor.executeAsyncScript(script, args);
     }
 
     /**
@@ -260,7 +358,7 @@ public class WebDriverWrapper {
      * @return as a {@link Navigation}
      */
     public Navigation navigate() {
-        return this.driver.navigate();
+        return new RecordingNavigation(this.driver.navigate());
     }
 
     /**
@@ -302,7 +400,7 @@ public class WebDriverWrapper {
         // Secondly, synchronize the windows to account for the popup
         this.synchronizeWindows();
         // Finally, open the url
-        this.driver.get(url);
+        this.get(url);
     }
 
     /**
@@ -320,7 +418,7 @@ public class WebDriverWrapper {
      * @param index the index to switch to
      */
     public void switchToWindow(int index) {
-        var window = registeredWindows.get(index);
+        var window = windowTracker.getWindows().get(index);
         this.switchToWindow(window);
     }
 
@@ -360,37 +458,62 @@ public class WebDriverWrapper {
 
     /**
      * Synchronizes the registered windows with the currently open windows.  Handles closed and new windows (popups).
+     *
+     * Waits for a window to be opened or closed, as reported by the {@link WindowTracker}, then switches to the most
+     * recently opened window. The tracker is checked right away and then with a short backoff, so a popup that is
+     * already open costs a single round trip.
      */
     public void synchronizeWindows() {
-        // This custom timeout will only last for the duration of the window handling
-        var wait = getAutomationWait().setCustomTimeout(WINDOW_TIME_OUT_IN_SECONDS);
-        wait.waitForCustomCondition(new ExpectedCondition<Boolean>() {
+        // The window timeout only applies to this wait, without touching the timeout of any other wait
+        var spec = getAutomationWait().getDefaultSpec()
+                .withTimeout(Duration.ofSeconds(WINDOW_TIME_OUT_IN_SECONDS))
+                .withPolling(windowTracker.getPollingStrategy());
+        getAutomationWait().until(getAutomationWait().adaptTimeout(spec, WINDOW_CHANGE), WINDOW_CHANGE, new ExpectedCondition<Boolean>() {
             @Override
             public Boolean apply(WebDriver input) {
-                var innerWindows = driver.getWindowHandles();
-                sleep(200);
-                // Wait until we know that we have retrieved windows and their size is different than our registered windows
-                // which equates to a window change of some sort
-                return (innerWindows != null && innerWindows.size() != registeredWindows.size());
+                return windowTracker.checkForChange();
             }
 
             @Override
             public String toString() {
                 // Failure message if no window changes are detected
-                return String.format("window change to happen. %d registered windows present", registeredWindows.size());
+                return String.format("window change to happen. %d registered windows present", windowTracker.getWindows().size());
             }
         });
-        // Once we know we've found a window change, lets settle down for a few seconds and
-        // freshly retrieve our window handles before attempting any logic
-        sleep(200);
-        var windows = driver.getWindowHandles();
-        // Clear out our registered window handles so we can resynchronize them
-        registeredWindows.clear();
-        for (var window : windows) {
-            registeredWindows.addLast(window);
-        }
         // Now make sure and switch to the last window to be opened
-        this.switchToWindow(registeredWindows.getLast());
+        this.switchToWindow(windowTracker.getWindows().getLast());
+    }
+
+    /**
+     * Returns the tracker of the windows open in this browser, e.g. to give it a {@link com.retailmenot.scaffold.webdriver.interfaces.WindowEventSource}.
+     *
+     * @return the {@link WindowTracker}
+     */
+    public WindowTracker getWindowTracker() {
+        return windowTracker;
+    }
+
+    /**
+     * Sets the implicit wait used whenever an element is located. The value is tracked so that the timeouts command is
+     * only sent to the browser when the value actually changes.
+     *
+     * @param time the amount of time to implicitly wait
+     * @param unit the unit of the time
+     */
+    public void setImplicitWait(long time, TimeUnit unit) {
+        var millis = unit.toMillis(time);
+        if (millis != implicitWaitInMillis) {
+            manage().timeouts().implicitlyWait(millis, MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the implicit wait currently set on the browser
+     *
+     * @return the implicit wait in milliseconds, or -1 if it was never set through {@link #setImplicitWait(long, TimeUnit)}
+     */
+    public long getImplicitWaitInMillis() {
+        return implicitWaitInMillis;
     }
 
     /**
@@ -421,7 +544,48 @@ public class WebDriverWrapper {
         if (!TakesScreenshot.class.isAssignableFrom(driver.getClass())) {
             throw new WebDriverWrapperException("Driver does not support taking screenshots: " + driver);
         }
-        return ((TakesScreenshot) driver).getScreenshotAs(OutputType.BASE64);
+        var start = System.nanoTime();
+        try {
+            return ((TakesScreenshot) driver).getScreenshotAs(OutputType.BASE64);
+        } finally {
+            recordCommand(DriverCommand.SCREENSHOT, start);
+        }
+    }
+
+    /**
+     * Takes a screen shot of the current browser state and hands it to the {@link ScreenshotPipeline} of the
+     * {@link TestContext}, which compresses it and writes it to disk in the background. Unlike {@link #getScreenShot()},
+     * the screen shot does not stay on the calling thread.
+     *
+     * @param name the name of the screen shot, e.g. "after-login"
+     * @return a {@link ScreenshotArtifact} that completes once the screen shot has been written
+     */
+    public ScreenshotArtifact captureScreenShot(String name) {
+        return TestContext.baseContext().getScreenshotPipeline().capture(this, name);
+    }
+
+    /**
+     * Takes a screen shot of the current browser state and appends it, as a PNG, to the {@link ArtifactStore} of the
+     * {@link TestContext} under the current test.
+     *
+     * @param name the name of the screen shot, e.g. "after-login"
+     * @return the {@link ArtifactRef} of the stored screen shot
+     */
+    public ArtifactRef storeScreenShot(String name) {
+        var testName = TestContext.baseContext().getWebDriverContext().getTestName();
+        return TestContext.baseContext().getArtifactStore().appendBase64(testName, name, "png", getScreenShot());
+    }
+
+    /**
+     * Appends the source of the current page to the {@link ArtifactStore} of the {@link TestContext} under the current
+     * test.
+     *
+     * @param name the name of the page source, e.g. "checkout"
+     * @return the {@link ArtifactRef} of the stored page source
+     */
+    public ArtifactRef storePageSource(String name) {
+        var testName = TestContext.baseContext().getWebDriverContext().getTestName();
+        return TestContext.baseContext().getArtifactStore().appendText(testName, name, "html", getPageSource());
     }
 
     /**
@@ -448,10 +612,10 @@ public class WebDriverWrapper {
     /**
      * Returns the registered windows
      *
-     * @return the {@link #registeredWindows}
+     * @return the registered windows, oldest first
      */
     public LinkedList<String> getRegisteredWindows() {
-        return registeredWindows;
+        return windowTracker.getWindows();
     }
 
     /**
@@ -460,7 +624,30 @@ public class WebDriverWrapper {
      * @param registeredWindows the list of required windows
      */
     public void setRegisteredWindows(LinkedList<String> registeredWindows) {
-        this.registeredWindows = registeredWindows;
+        windowTracker.setWindows(registeredWindows);
+    }
+
+    /**
+     * Sets the {@link CommandRecorder} the commands made through this wrapper are timed into, or null to stop timing
+     * them. Remote drivers time their commands themselves, see {@link ScreenshotRemoteDriver#setCommandRecorder(CommandRecorder)}.
+     *
+     * @param commandRecorder the {@link CommandRecorder}
+     */
+    public void setCommandRecorder(CommandRecorder commandRecorder) {
+        this.commandRecorder = commandRecorder;
+    }
+
+    /**
+     * Records a command made on this wrapper's driver, e.g. by an element, if commands are being timed.
+     *
+     * @param command    the name of the command, one of {@link DriverCommand}
+     * @param startNanos when the command started, as returned by {@link System#nanoTime()}
+     */
+    public void recordCommand(String command, long startNanos) {
+        var recorder = commandRecorder;
+        if (recorder != null) {
+            recorder.recordSince(command, startNanos);
+        }
     }
 
     /**
@@ -518,12 +705,13 @@ public class WebDriverWrapper {
     }
 
     /**
-     * Returns the interface used to manage WebDriver properties
+     * Returns the interface used to manage WebDriver properties. Timeouts set through it are tracked, so the wrapper
+     * knows which implicit wait and script timeout the browser has.
      *
      * @return the manager as {@link Options}
      */
     public Options manage() {
-        return this.driver.manage();
+        return new TrackingOptions(this.driver.manage());
     }
 
     /**
@@ -552,4 +740,173 @@ public class WebDriverWrapper {
             this.synchronizeWindows();
         }
     }
+
+    /**
+     * Records every navigation made through {@link #navigate()} as a step.
+     */
+    private static class RecordingNavigation implements Navigation {
+        private final Navigation navigation;
+
+        RecordingNavigation(Navigation navigation) {
+            this.navigation = navigation;
+        }
+
+        @Override
+        public void back() {
+            var step = StepRecorder.begin(StepType.NAVIGATE, "(back)", null);
+            navigation.back();
+            StepRecorder.end(step);
+        }
+
+        @Override
+        public void forward() {
+            var step = StepRecorder.begin(StepType.NAVIGATE, "(forward)", null);
+            navigation.forward();
+            StepRecorder.end(step);
+        }
+
+        @Override
+        public void to(String url) {
+            var step = StepRecorder.begin(StepType.NAVIGATE, url, null);
+            navigation.to(url);
+            StepRecorder.end(step);
+        }
+
+        @Override
+        public void to(URL url) {
+            var step = StepRecorder.begin(StepType.NAVIGATE, url, null);
+            navigation.to(url);
+            StepRecorder.end(step);
+        }
+
+        @Override
+        public void refresh() {
+            var step = StepRecorder.begin(StepType.NAVIGATE, "(refresh)", null);
+            navigation.refresh();
+            StepRecorder.end(step);
+        }
+    }
+
+    /**
+     * Times the scripts executed through {@link #getJavascriptExecutor()}.
+     */
+    private class TimedJavascriptExecutor implements JavascriptExecutor {
+        private final JavascriptExecutor executor;
+
+        TimedJavascriptExecutor(JavascriptExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public Object executeScript(String script, Object... args) {
+            var start = System.nanoTime();
+            try {
+                return executor.executeScript(script, args);
+            } finally {
+                recordCommand(DriverCommand.EXECUTE_SCRIPT, start);
+            }
+        }
+
+        @Override
+        public Object executeAsyncScript(String script, Object... args) {
+            var start = System.nanoTime();
+            try {
+                return executor.executeAsyncScript(script, args);
+            } finally {
+                recordCommand(DriverCommand.EXECUTE_ASYNC_SCRIPT, start);
+            }
+        }
+    }
+
+    /**
+     * Hands out {@link TrackingTimeouts} and otherwise delegates to the driver's {@link Options}.
+     */
+    private class TrackingOptions implements Options {
+        private final Options options;
+
+        TrackingOptions(Options options) {
+            this.options = options;
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            options.addCookie(cookie);
+        }
+
+        @Override
+        public void deleteCookieNamed(String name) {
+            options.deleteCookieNamed(name);
+        }
+
+        @Override
+        public void deleteCookie(Cookie cookie) {
+            options.deleteCookie(cookie);
+        }
+
+        @Override
+        public void deleteAllCookies() {
+            options.deleteAllCookies();
+        }
+
+        @Override
+        public Set<Cookie> getCookies() {
+            return options.getCookies();
+        }
+
+        @Override
+        public Cookie getCookieNamed(String name) {
+            return options.getCookieNamed(name);
+        }
+
+        @Override
+        public Timeouts timeouts() {
+            return new TrackingTimeouts(options.timeouts());
+        }
+
+        @Override
+        public ImeHandler ime() {
+            return options.ime();
+        }
+
+        @Override
+        public Window window() {
+            return options.window();
+        }
+
+        @Override
+        public Logs logs() {
+            return options.logs();
+        }
+    }
+
+    /**
+     * Remembers the implicit wait and script timeout sent to the browser.
+     */
+    private class TrackingTimeouts implements Timeouts {
+        private final Timeouts timeouts;
+
+        TrackingTimeouts(Timeouts timeouts) {
+            this.timeouts = timeouts;
+        }
+
+        @Override
+        public Timeouts implicitlyWait(long time, TimeUnit unit) {
+            timeouts.implicitlyWait(time, unit);
+            implicitWaitInMillis = unit.toMillis(time);
+            return this;
+        }
+
+        @Override
+        public Timeouts setScriptTimeout(long time, TimeUnit unit) {
+            timeouts.setScriptTimeout(time, unit);
+            scriptTimeoutInMillis = unit.toMillis(time);
+            return this;
+        }
+
+        @Override
+        public Timeouts pageLoadTimeout(long time, TimeUnit unit) {
+            timeouts.pageLoadTimeout(time, unit);
+            return this;
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package com.retailmenot.scaffold.webdriver;
+
+import com.retailmenot.scaffold.util.interfaces.PollingStrategy;
+import com.retailmenot.scaffold.webdriver.interfaces.WindowEventSource;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedList;
+
+/**
+ * Keeps track of the windows open in a browser, in the order they were opened.
+ *
+ * Changes are picked up from a {@link WindowEventSource} when one is set. Selenium 3 has no access to the browser's own
+ * events, so by default the window handles are polled instead: quickly at first, since a popup usually shows up within a
+ * few milliseconds of the click that opens it, and backing off from there.
+ */
+@Slf4j
+public class WindowTracker {
+
+    private static final PollingStrategy BACKOFF = PollingStrategy.exponential(Duration.ofMillis(25), 2, Duration.ofMillis(500));
+    // Even with an event source the handles are checked once in a while, in case an event is missed
+    private static final Duration EVENT_WAIT = Duration.ofSeconds(1);
+
+    private final WebDriver driver;
+    private LinkedList<String> windows = new LinkedList<>();
+    private volatile WindowEventSource eventSource;
+
+    public WindowTracker(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Sets the source of window events to block on between checks, or null to poll.
+     *
+     * @param eventSource the {@link WindowEventSource}
+     */
+    public void setEventSource(WindowEventSource eventSource) {
+        this.eventSource = eventSource;
+    }
+
+    /**
+     * Returns the polling strategy to check for a window change with: back-to-back checks when each check already blocks
+     * on the event source, backing off otherwise.
+     *
+     * @return the {@link PollingStrategy}
+     */
+    public PollingStrategy getPollingStrategy() {
+        return eventSource != null ? PollingStrategy.fixed(Duration.ZERO) : BACKOFF;
+    }
+
+    /**
+     * Checks for a window change once, blocking on the event source first if there is one and nothing changed yet.
+     *
+     * @return true if windows were opened or closed since the last check
+     */
+    public boolean checkForChange() {
+        if (refresh()) {
+            return true;
+        }
+        var source = eventSource;
+        if (source == null) {
+            return false;
+        }
+        try {
+            return source.awaitWindowEvent(EVENT_WAIT) && refresh();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException(e);
+        }
+    }
+
+    /**
+     * Brings the tracked windows in line with the windows currently open. Windows that are still open keep their
+     * position, closed windows are dropped and new windows are added at the end.
+     *
+     * @return true if anything changed
+     */
+    public synchronized boolean refresh() {
+        var handles = driver.getWindowHandles();
+        if (handles == null || handles.equals(new HashSet<>(windows))) {
+            return false;
+        }
+        var updated = new LinkedList<String>();
+        for (var window : windows) {
+            if (handles.contains(window)) {
+                updated.addLast(window);
+            }
+        }
+        for (var handle : handles) {
+            if (!updated.contains(handle)) {
+                updated.addLast(handle);
+            }
+        }
+        log.debug(String.format("Windows changed from %s to %s", windows, updated));
+        windows = updated;
+        return true;
+    }
+
+    /**
+     * @return the tracked windows, oldest first
+     */
+    public synchronized LinkedList<String> getWindows() {
+        return windows;
+    }
+
+    /**
+     * Replaces the tracked windows.
+     *
+     * @param windows the windows, oldest first
+     */
+    public synchronized void setWindows(LinkedList<String> windows) {
+        this.windows = windows;
+    }
+}
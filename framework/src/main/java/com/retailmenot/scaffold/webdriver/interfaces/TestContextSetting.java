@@ -4,13 +4,31 @@ package com.retailmenot.scaffold.webdriver.interfaces;
  * Various config settings available to use with TestContext settings.
  */
 public interface TestContextSetting {
+    String ADAPTIVE_TIMEOUTS_ENABLED = "adaptive_timeouts_enabled";
+    String ARTIFACT_DIRECTORY = "artifact_directory";
+    String COMMAND_METRICS_ENABLED = "command_metrics_enabled";
+    String COMMAND_METRICS_FILE = "command_metrics_file";
+    String EXISTENCE_PROBING_ENABLED = "existence_probing_enabled";
     String IMPLICIT_SCROLLING_ENABLED = "implicit_scolling_enabled";
+    String RESULT_FILE = "result_file";
+    String SCRIPTED_CLICK_ENABLED = "scripted_click_enabled";
+    String SCREENSHOT_DEDUPLICATION_ENABLED = "screenshot_deduplication_enabled";
+    String SCREENSHOT_DIRECTORY = "screenshot_directory";
+    String SCREENSHOT_FORMAT = "screenshot_format";
+    String SCREENSHOT_QUALITY = "screenshot_quality";
+    String SCREENSHOT_UPLOAD_SINK = "screenshot_upload_sink";
+    String SNAPSHOT_BUFFER_SIZE = "snapshot_buffer_size";
+    String SNAPSHOT_LEVEL = "snapshot_level";
+    String IN_PAGE_WAITS_ENABLED = "in_page_waits_enabled";
     String PROXY_MANAGER = "proxy_manager";
     String PROXY_ASSIGNER = "proxy_assigner";
     String QUEUE_HOST = "queue_host";
     String QUEUE_NAME = "queue_name";
+    String STEP_RECORDING_ENABLED = "step_recording_enabled";
     String TEST_RUN_ID = "test_run_id";
+    String TIMEOUT_HISTORY_FILE = "timeout_history_file";
     String TEST_APPLICATION_CONTEXT = "test_application_context";
     String WAIT_CONDITION = "wait_condition";
     String WAIT_FOR_DISPLAY_ENABLED = "wait_for_display_enabled";
+    String WAIT_PROFILING_ENABLED = "wait_profiling_enabled";
 }
@@ -0,0 +1,21 @@
+package com.retailmenot.scaffold.webdriver.interfaces;
+
+import com.retailmenot.scaffold.models.TestInformation;
+
+/**
+ * Receives the {@link TestInformation} of every completed test, e.g. to report on it or write it to a results file.
+ * Register consumers with BaseTestContext.addTestInformationConsumer(). Once every consumer has been handed a test's
+ * information, the context forgets it.
+ */
+@FunctionalInterface
+public interface TestInformationConsumer {
+
+    /**
+     * Called once per completed test, after the work tracked for the test has finished. Consumers may be called from any
+     * thread and concurrently for different tests.
+     *
+     * @param testName        the name of the completed test
+     * @param testInformation the {@link TestInformation} of the test
+     */
+    void accept(String testName, TestInformation testInformation);
+}
@@ -0,0 +1,21 @@
+package com.retailmenot.scaffold.webdriver.interfaces;
+
+import java.time.Duration;
+
+/**
+ * A source of browser notifications about windows being opened or closed, e.g. DevTools Target events on Chromium. When
+ * a {@link com.retailmenot.scaffold.webdriver.WindowTracker} has one, it blocks on it between checks instead of polling
+ * the window handles.
+ */
+@FunctionalInterface
+public interface WindowEventSource {
+
+    /**
+     * Blocks until the browser reports that a window was opened or closed, or the timeout elapses.
+     *
+     * @param timeout the longest to block for
+     * @return true if a window event arrived, false if the timeout elapsed first
+     * @throws InterruptedException if the thread is interrupted while blocking
+     */
+    boolean awaitWindowEvent(Duration timeout) throws InterruptedException;
+}
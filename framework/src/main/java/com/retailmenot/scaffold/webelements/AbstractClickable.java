@@ -1,19 +1,31 @@
 package com.retailmenot.scaffold.webelements;
 
+import com.retailmenot.scaffold.models.enums.StepType;
+import com.retailmenot.scaffold.snapshots.SnapshotBuffer;
+import com.retailmenot.scaffold.steps.StepRecorder;
+import com.retailmenot.scaffold.util.JavascriptUtils;
+import com.retailmenot.scaffold.util.WaitProfiler;
 import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
 import com.retailmenot.scaffold.webdriver.WebDriverManager;
-import com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting;
 import com.retailmenot.scaffold.webelements.interfaces.DisplayWaitCondition;
+import lombok.extern.slf4j.Slf4j;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptException;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.DriverCommand;
 
 /**
  * The base {@link WebElement} wrapper around all clickable WebElements. This class provides some syntactic sugar around commonly
  * used clickable web elements (buttons, links, etc) and some added functionality we've found helpful in many scenarios
  * when dealing with most web applications.
  */
+@Slf4j
 public abstract class AbstractClickable extends AbstractWebElement {
 
+    private static final String CLICK_SCRIPT = "click.js";
+    private static final String CLICKED = "clicked";
+
     private boolean popupsExpected = false;
     protected DisplayWaitCondition waitCondition;
 
@@ -40,35 +52,87 @@ public abstract class AbstractClickable extends AbstractWebElement {
      * when instantiating the new {@link WebDriverManager}. It then scrolls the element into view, clicks it, and checks
      * for popups based on {@link #popupsExpected}. Afterward, it will perform any applicable wait logic after clicking.
      *
+     * The element is only located once for both the scroll and the click. If scripted clicks are enabled, scrolling,
+     * checking that the element would receive the click and clicking it all happen in a single script call.
      */
     public void click() {
-        // wait for the element to be visible before attempting to click if configured
-        if (TestContext.baseContext().getSetting(Boolean.class, TestContextSetting.IMPLICIT_SCROLLING_ENABLED)) {
-            scrollIntoView();
+        var condition = getWaitCondition();
+        SnapshotBuffer.recordInteraction(getWebDriverWrapper(), "click", this);
+        if (condition != null) {
+            condition.beforeAction(getWebDriverWrapper());
         }
-
-        getWebElement().click();
+        var step = StepRecorder.begin(StepType.CLICK, this, null);
+        doWithStaleRetry(this::click);
+        StepRecorder.end(step);
         if (popupsExpected) {
             getWebDriverWrapper().synchronizeWindows();
         }
-        waitAfterClick();
+        waitAfterClick(condition);
     }
 
     /**
-     * Performs wait logic, if applicable.
+     * Clicks the given, already located, webelement.
+     *
+     * With scripted clicks enabled, the element is always scrolled into view and clicked from inside the page, as long
+     * as it is displayed and nothing covers it. Otherwise, or when the script reports that the element can't take the
+     * click, the native WebDriver click is used so the usual Selenium behavior and exceptions apply.
+     *
+     * @param element the {@link WebElement} to click
      */
-    private void waitAfterClick() {
-        // If we have a custom wait condition set on this element, go ahead and execute that wait condition before continuing
-        if (waitCondition != null) {
-            waitCondition.waitUntilLoaded(getWebDriverWrapper());
-        } else {
-            // If we do NOT have a wait condition set on this element, check for a global wait condition set as a fall back.  Element level
-            // wait conditions will have precedence over global wait conditions
-            var globalWaitCondition = TestContext.baseContext().getSetting(DisplayWaitCondition.class, TestContextSetting.WAIT_CONDITION);
-            // If the global wait condition is set, then go ahead and wait for it here
-            if (globalWaitCondition != null) {
-                globalWaitCondition.waitUntilLoaded(getWebDriverWrapper());
+    private void click(WebElement element) {
+        var settings = TestContext.baseContext().getSettings();
+        if (settings.isEnabled(ToggleSetting.SCRIPTED_CLICK_ENABLED)) {
+            var result = clickByScript(element);
+            if (CLICKED.equals(result)) {
+                return;
             }
+            log.debug(String.format("Scripted click not possible for %s (%s), using a native click", this, result));
+        } else if (settings.isEnabled(ToggleSetting.IMPLICIT_SCROLLING_ENABLED)) {
+            // wait for the element to be visible before attempting to click if configured
+            scrollIntoView(element);
+        }
+        var start = System.nanoTime();
+        try {
+            element.click();
+        } finally {
+            getWebDriverWrapper().recordCommand(DriverCommand.CLICK_ELEMENT, start);
+        }
+    }
+
+    private Object clickByScript(WebElement element) {
+        try {
+            return getWebDriverWrapper().getJavascriptExecutor().executeScript(JavascriptUtils.getScript(CLICK_SCRIPT), element);
+        } catch (JavascriptException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Returns the wait condition that applies to this element, if any.
+     *
+     * @return the {@link DisplayWaitCondition}, or null if there is none
+     */
+    private DisplayWaitCondition getWaitCondition() {
+        // If we have a custom wait condition set on this element, use that
+        if (waitCondition != null) {
+            return waitCondition;
+        }
+        // If we do NOT have a wait condition set on this element, check for a global wait condition set as a fall back.  Element level
+        // wait conditions will have precedence over global wait conditions
+        return TestContext.baseContext().getSettings().getWaitCondition();
+    }
+
+    /**
+     * Performs wait logic, if applicable.
+     *
+     * @param condition the {@link DisplayWaitCondition} to wait for, or null if there is none
+     */
+    private void waitAfterClick(DisplayWaitCondition condition) {
+        if (condition != null) {
+            WaitProfiler.profile(getLocator(), condition, () -> {
+                condition.waitUntilLoaded(getWebDriverWrapper());
+                return null;
+            });
         }
     }
 
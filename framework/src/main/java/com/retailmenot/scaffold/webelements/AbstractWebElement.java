@@ -1,8 +1,10 @@
 package com.retailmenot.scaffold.webelements;
 
+import com.retailmenot.scaffold.util.InPageCondition;
+import com.retailmenot.scaffold.util.JavascriptUtils;
 import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
 import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
-import com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting;
 import com.retailmenot.scaffold.webelements.interfaces.BaseWebElement;
 import lombok.extern.slf4j.Slf4j;
 import org.openqa.selenium.*;
@@ -14,6 +16,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -37,6 +46,8 @@ public abstract class AbstractWebElement implements BaseWebElement {
      *   (i.e. when calling findElements() on the WebDriverWrapper)
      */
     protected WebElement baseElement;
+    // How the baseElement was found, so a fresh copy can be located if it goes stale. Null if it was handed to us directly
+    private ElementRecipe recipe;
     private WebElementWait webElementWait;
 
     /**
@@ -107,20 +118,18 @@ public abstract class AbstractWebElement implements BaseWebElement {
 
     @Override
     public String getAttribute(String name) {
-        return getWebElement().getAttribute(name);
+        return getWithStaleRetry(element -> element.getAttribute(name));
     }
 
     @Override
     public boolean isEnabled() {
-        var element = this.getWebElement(false);
-        return element != null && element.isEnabled();
+        return checkWithStaleRetry(WebElement::isEnabled);
     }
 
     @Override
     public boolean isDisplayed() {
         try {
-            var element = this.getWebElement(false);
-            return element != null && element.isDisplayed();
+            return checkWithStaleRetry(WebElement::isDisplayed);
         } catch (WebDriverException e) {
             // Not logging the exception here as the output isn't really useful to use
             return false;
@@ -129,7 +138,7 @@ public abstract class AbstractWebElement implements BaseWebElement {
 
     @Override
     public Dimension getSize() {
-        return getWebElement().getSize();
+        return getWithStaleRetry(WebElement::getSize);
     }
 
     @Override
@@ -158,9 +167,23 @@ public abstract class AbstractWebElement implements BaseWebElement {
         return toString.isEmpty() ? "This element was not properly initialized with a By locator or a base element. Please check your code" : toString;
     }
 
+    /**
+     * Returns the locator this element was built from, prefixed with its parent's locator if it has one. Unlike
+     * {@link #toString()}, it never describes a found {@link WebElement}, whose description carries the driver's session
+     * id, so it reads the same from run to run and can key the element's adaptive timeout.
+     *
+     * @return the locator, or null if the element was built from a {@link WebElement} rather than a locator
+     */
+    String getLocator() {
+        if (by == null) {
+            return null;
+        }
+        return parentBy == null ? by.toString() : String.format("%s > %s", parentBy, by);
+    }
+
     @Override
     public String getText() {
-        return this.getWebElement().getText();
+        return getWithStaleRetry(WebElement::getText);
     }
 
     @Override
@@ -184,6 +207,8 @@ public abstract class AbstractWebElement implements BaseWebElement {
                 // Locate the child element to pass into the constructor
                 WebElement element = getWebElement().findElement(by);
                 returnElement = constructor.newInstance( element );
+                // findElement() returns the first match, so that's where a fresh copy will be found if this one goes stale
+                returnElement.setRecipe(new ElementRecipe(this, by, 0));
             }
         } catch (NoSuchMethodException | InvocationTargetException | InstantiationException | IllegalAccessException e) {
             throw new RuntimeException("Could not instantiate Element properly: " + e);
@@ -197,18 +222,26 @@ public abstract class AbstractWebElement implements BaseWebElement {
     public <T extends AbstractWebElement> List<T> findElements(Class<T> elementClass, By by) {
         By parentBy = getBy();
         List<WebElement> elements;
+        AbstractWebElement recipeParent;
+        By recipeBy;
         // Basically here if both locators are css locators, we're going to go ahead and combine them
         if(parentBy instanceof By.ByCssSelector && by instanceof By.ByCssSelector) {
             By combinedBy = getCombinedByLocator(parentBy, by);
             elements = getWebDriverWrapper().findElements(combinedBy);
+            recipeParent = null;
+            recipeBy = combinedBy;
         } else {
             elements = getWebElement().findElements(by);
+            recipeParent = this;
+            recipeBy = by;
         }
         List<T> newElements = new ArrayList<>();
-        for (WebElement element: elements) {
+        for (int i = 0; i < elements.size(); i++) {
             try {
                 Constructor<T> constructor = elementClass.getConstructor(WebElement.class);
-                T newElement = constructor.newInstance(element);
+                T newElement = constructor.newInstance(elements.get(i));
+                // Remember where this element was found so it can be located again if it goes stale
+                newElement.setRecipe(new ElementRecipe(recipeParent, recipeBy, i));
                 newElements.add(newElement);
             } catch (Exception e) {
                 throw new RuntimeException("Could not instantiate Element properly: " + e);
@@ -217,6 +250,38 @@ public abstract class AbstractWebElement implements BaseWebElement {
         return newElements;
     }
 
+    /**
+     * Returns an iterator over every item of a virtualized or infinite-scroll list contained by this element. Unlike
+     * {@link #findElements(Class, By)}, which only sees the rows currently rendered, the iterator scrolls this element in
+     * steps and returns each newly rendered item exactly once.
+     *
+     * @param elementClass the class of the items that are being found
+     * @param itemBy       the locator of a single item, relative to this element
+     * @param keyAttribute the attribute that uniquely identifies an item (e.g. "data-id"). If null, or if an item doesn't
+     *                     have the attribute, its trimmed text is used as the key
+     * @param <T>          the type reference that extends {@link AbstractWebElement}
+     * @return the iterator as a {@link VirtualListIterator}
+     */
+    public <T extends AbstractWebElement> VirtualListIterator<T> iterateVirtualList(Class<T> elementClass, By itemBy, String keyAttribute) {
+        return new VirtualListIterator<>(this, elementClass, itemBy, keyAttribute);
+    }
+
+    /**
+     * Streams every item of a virtualized or infinite-scroll list contained by this element. Items are produced lazily,
+     * so short-circuiting operations such as findFirst() stop scrolling as soon as they're satisfied.
+     *
+     * @param elementClass the class of the items that are being found
+     * @param itemBy       the locator of a single item, relative to this element
+     * @param keyAttribute the attribute that uniquely identifies an item, or null to key items by their text
+     * @param <T>          the type reference that extends {@link AbstractWebElement}
+     * @return the items as a {@link Stream}
+     * @see #iterateVirtualList(Class, By, String)
+     */
+    public <T extends AbstractWebElement> Stream<T> streamVirtualList(Class<T> elementClass, By itemBy, String keyAttribute) {
+        var iterator = iterateVirtualList(elementClass, itemBy, keyAttribute);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     @Override
     public By getBy() {
         return this.by;
@@ -233,18 +298,31 @@ public abstract class AbstractWebElement implements BaseWebElement {
             log.debug("This element already has locator information. Assigning a base webelement at this point risks a StaleElementException!!");
         }
         this.baseElement = baseElement;
+        // We have no idea where this element came from, so it can't be located again if it goes stale
+        this.recipe = null;
+    }
+
+    /**
+     * Sets how this element's base webelement was originally found, allowing the element to recover transparently from a
+     * {@link StaleElementReferenceException} by locating a fresh copy. This is set automatically for elements returned by
+     * findElement() and findElements().
+     *
+     * @param recipe the {@link ElementRecipe} describing how the base webelement was found
+     */
+    public void setRecipe(ElementRecipe recipe) {
+        this.recipe = recipe;
     }
 
     @Override
     public boolean exists() {
-        var element = getWebElement(false);
+        var element = findWebElementForCheck();
         return element != null;
     }
 
     @Override
     public WebElement getWebElement() {
         // Wait for the element to be displayed if configured
-        if (TestContext.baseContext().getSetting(Boolean.class, TestContextSetting.WAIT_FOR_DISPLAY_ENABLED)) {
+        if (TestContext.baseContext().getSettings().isEnabled(ToggleSetting.WAIT_FOR_DISPLAY_ENABLED)) {
             getWait().waitUntilDisplayed();
         }
         return getWebElement(true);
@@ -252,8 +330,21 @@ public abstract class AbstractWebElement implements BaseWebElement {
 
     @Override
     public void scrollIntoView() {
+        scrollIntoView(getWebElement());
+    }
+
+    /**
+     * Scrolls the given, already located, webelement into view. Failures are logged rather than thrown, since scrolling
+     * is only ever a courtesy before interacting with the element.
+     *
+     * @param element the {@link WebElement} to scroll into view
+     */
+    protected void scrollIntoView(WebElement element) {
         try {
-            getWebDriverWrapper().getJavascriptExecutor().executeScript("arguments[0].scrollIntoView(true);", getWebElement());
+            getWebDriverWrapper().getJavascriptExecutor().executeScript("arguments[0].scrollIntoView(true);", element);
+        } catch (StaleElementReferenceException e) {
+            // Let the caller locate the element again
+            throw e;
         } catch (Exception e) {
             log.warn(String.format("Error scrolling into view for %s: %s", by, e));
         }
@@ -273,17 +364,107 @@ public abstract class AbstractWebElement implements BaseWebElement {
 
     @Override
     public String getTagName() {
-        return getWebElement().getTagName();
+        return getWithStaleRetry(WebElement::getTagName);
     }
 
     @Override
     public Point getLocation() {
-        return getWebElement().getLocation();
+        return getWithStaleRetry(WebElement::getLocation);
     }
 
     @Override
     public String getCssValue(String propertyName) {
-        return getWebElement().getCssValue(propertyName);
+        return getWithStaleRetry(element -> element.getCssValue(propertyName));
+    }
+
+    /**
+     * Performs an interaction with the underlying webelement and returns its result. If the interaction hits a stale
+     * reference, the element is located again and the interaction is retried once against the fresh copy.
+     *
+     * Elements defined by a By locator are always located fresh, so the retry simply locates them again. Elements built
+     * from a webelement can only recover if they know how they were found (see {@link #setRecipe(ElementRecipe)}).
+     *
+     * @param interaction the interaction to perform
+     * @param <R>         the type reference of the result
+     * @return the result of the interaction
+     */
+    protected <R> R getWithStaleRetry(Function<WebElement, R> interaction) {
+        try {
+            return interaction.apply(getWebElement());
+        } catch (StaleElementReferenceException e) {
+            if (!canRecoverFromStaleness()) {
+                throw e;
+            }
+            log.debug(String.format("Stale reference for %s, locating it again and retrying", this));
+            return interaction.apply(relocateWebElement());
+        }
+    }
+
+    /**
+     * Performs an interaction with the underlying webelement, retrying it once against a freshly located copy if it hits
+     * a stale reference.
+     *
+     * @param interaction the interaction to perform
+     * @see #getWithStaleRetry(Function)
+     */
+    protected void doWithStaleRetry(Consumer<WebElement> interaction) {
+        getWithStaleRetry(element -> {
+            interaction.accept(element);
+            return null;
+        });
+    }
+
+    /**
+     * Locates the element for a state check and performs the check, retrying it once against a freshly located copy if
+     * it hits a stale reference. Returns false if the element can't be found.
+     *
+     * @param check the state check to perform
+     * @return the result of the check as {@link boolean}
+     */
+    private boolean checkWithStaleRetry(Predicate<WebElement> check) {
+        var element = findWebElementForCheck();
+        if (element == null) {
+            return false;
+        }
+        try {
+            return check.test(element);
+        } catch (StaleElementReferenceException e) {
+            if (!canRecoverFromStaleness()) {
+                throw e;
+            }
+            try {
+                return check.test(relocateWebElement());
+            } catch (NoSuchElementException n) {
+                // The element is gone for good
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Returns a freshly located copy of the underlying webelement. Elements with a recipe re-run the search that originally
+     * found them and cache the result as their new base webelement, everything else is simply located again.
+     *
+     * @return the fresh {@link WebElement}
+     */
+    WebElement relocateWebElement() {
+        if (recipe != null) {
+            baseElement = recipe.relocate(getWebDriverWrapper());
+            return baseElement;
+        }
+        return getWebElement();
+    }
+
+    /**
+     * Returns true if a stale reference to this element can be replaced by a fresh one: either we know how its base
+     * webelement was found, or the element is located by its By locator on every use. A By locator under a raw parent
+     * webelement doesn't count, since the parent can't be located again and a fresh search under it goes stale too.
+     */
+    private boolean canRecoverFromStaleness() {
+        if (recipe != null) {
+            return true;
+        }
+        return baseElement == null && (parentBy != null || parentElement == null);
     }
 
     /**
@@ -323,6 +504,37 @@ public abstract class AbstractWebElement implements BaseWebElement {
         return null;
     }
 
+    /**
+     * Locates the element for a state check such as {@link #exists()}, {@link #isDisplayed()} or {@link #isEnabled()}.
+     *
+     * If existence probing is enabled, the element is probed with findElements() and a zero implicit wait, so an absent
+     * element returns null in milliseconds. Otherwise this behaves like {@link #getWebElement(boolean)}, waiting for the
+     * element up to the implicit wait.
+     *
+     * @return the {@link WebElement}, or null if it could not be found
+     */
+    protected WebElement findWebElementForCheck() {
+        if (!TestContext.baseContext().getSettings().isEnabled(ToggleSetting.EXISTENCE_PROBING_ENABLED)) {
+            return getWebElement(false);
+        }
+        if (baseElement != null) {
+            return baseElement;
+        }
+        var webDriverWrapper = getWebDriverWrapper();
+        SearchContext searchContext = webDriverWrapper.getBaseWebDriver();
+        if (parentBy != null) {
+            var parents = webDriverWrapper.findElementsImmediately(searchContext, parentBy);
+            if (parents.isEmpty()) {
+                return null;
+            }
+            searchContext = parents.get(0);
+        } else if (parentElement != null) {
+            searchContext = parentElement;
+        }
+        var elements = webDriverWrapper.findElementsImmediately(searchContext, by);
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
     /**
      * Returns the underlying locator used to locate this element on the page
      *
@@ -350,6 +562,33 @@ public abstract class AbstractWebElement implements BaseWebElement {
         return By.cssSelector(locator);
     }
 
+    /**
+     * Returns an {@link InPageCondition} that is satisfied once this element is displayed, or null if this element's
+     * locators can't be resolved inside the page.
+     *
+     * @return the condition as an {@link InPageCondition}
+     */
+    InPageCondition getDisplayedCondition() {
+        InPageCondition condition;
+        if (baseElement != null) {
+            condition = InPageCondition.displayed(baseElement);
+        } else if (by != null && JavascriptUtils.isScriptLocatable(by)) {
+            condition = InPageCondition.displayed(by);
+            if (parentBy != null) {
+                if (!JavascriptUtils.isScriptLocatable(parentBy)) {
+                    return null;
+                }
+                condition = condition.within(parentBy);
+            } else if (parentElement != null) {
+                condition = condition.within(parentElement);
+            }
+        } else {
+            return null;
+        }
+        // When polling, go through isDisplayed() so staleness and existence probing are handled like everywhere else
+        return condition.withFallback(webDriverWrapper -> isDisplayed());
+    }
+
     /**
      * Returns null if there is no parent element or parent By defined
      *
@@ -43,18 +43,22 @@ public class CheckBoxWebElement extends AbstractClickable {
      @return the result as {@link boolean}
      */
     public boolean isSelected() {
-        return getWebElement().isSelected();
+        return getWithStaleRetry(WebElement::isSelected);
     }
 
     private void check() {
-        if (!getWebElement().isSelected()) {
-            getWebElement().click();
-        }
+        doWithStaleRetry(element -> {
+            if (!element.isSelected()) {
+                element.click();
+            }
+        });
     }
 
     private void uncheck() {
-        if (getWebElement().isSelected()) {
-            getWebElement().click();
-        }
+        doWithStaleRetry(element -> {
+            if (element.isSelected()) {
+                element.click();
+            }
+        });
     }
 }
@@ -0,0 +1,63 @@
+package com.retailmenot.scaffold.webelements;
+
+import java.util.Map;
+
+/**
+ * A snapshot of a single {@literal <option>} of a {@link DropDownWebElement}, as read from the page in one round trip.
+ */
+public class DropDownOption {
+
+    private final int index;
+    private final String value;
+    private final String text;
+    private final boolean selected;
+    private final boolean disabled;
+
+    public DropDownOption(int index, String value, String text, boolean selected, boolean disabled) {
+        this.index = index;
+        this.value = value;
+        this.text = text;
+        this.selected = selected;
+        this.disabled = disabled;
+    }
+
+    /**
+     * Creates an option from the map returned by the dropdown-options script.
+     *
+     * @param option the option as returned by the browser
+     * @return the {@link DropDownOption}
+     */
+    static DropDownOption fromScriptResult(Map<?, ?> option) {
+        return new DropDownOption(
+                ((Number) option.get("index")).intValue(),
+                (String) option.get("value"),
+                (String) option.get("text"),
+                Boolean.TRUE.equals(option.get("selected")),
+                Boolean.TRUE.equals(option.get("disabled")));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isSelected() {
+        return selected;
+    }
+
+    public boolean isDisabled() {
+        return disabled;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Option [%d] value: [%s] text: [%s]%s", index, value, text, selected ? " (selected)" : "");
+    }
+}
@@ -1,17 +1,32 @@
 package com.retailmenot.scaffold.webelements;
 
+import com.retailmenot.scaffold.models.enums.StepType;
+import com.retailmenot.scaffold.steps.StepRecorder;
+import com.retailmenot.scaffold.util.JavascriptUtils;
+import lombok.extern.slf4j.Slf4j;
 import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.Select;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * A strongly typed representation of a DropDown {@link WebElement}.
+ *
+ * Options are listed and selected with a single script call each, instead of creating a Selenium {@link Select} and
+ * walking every option with separate round trips. Selenium's {@link Select} is only used if the driver can't run the script.
  */
+@Slf4j
 public class DropDownWebElement extends AbstractWebElement {
 
+    private static final String OPTIONS_SCRIPT = "dropdown-options.js";
+    private static final String SELECT_SCRIPT = "dropdown-select.js";
+
     public DropDownWebElement(By by) {
         super(by);
     }
@@ -28,35 +43,66 @@ public class DropDownWebElement extends AbstractWebElement {
         super(element);
     }
 
+    /**
+     * Returns every option in the DropDown with its value, visible text and selected state. This is read in a single
+     * round trip rather than calling getText() and isSelected() on each option separately.
+     *
+     * @return the options as a {@link List} of {@link DropDownOption}
+     */
+    public List<DropDownOption> getOptions() {
+        return getWithStaleRetry(this::getOptions);
+    }
+
     /**
      * Returns a list of options in the DropDown
      *
      * @return the list of options.
      */
     public List<String> getOptionsText() {
-        return getSelectElement().getOptions().stream()
-                .map(WebElement::getText)
+        return getOptions().stream()
+                .map(DropDownOption::getText)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Reads every option of the given select element, in a single script call if the driver supports it.
+     */
+    private List<DropDownOption> getOptions(WebElement element) {
+        var result = executeScript(OPTIONS_SCRIPT, element);
+        if (result instanceof List) {
+            return ((List<?>) result).stream()
+                    .map(option -> DropDownOption.fromScriptResult((Map<?, ?>) option))
+                    .collect(Collectors.toList());
+        }
+        // The driver couldn't run the script, so read the options one by one through Selenium instead
+        log.debug(String.format("Falling back to Select to read the options of %s", this));
+        var options = new Select(element).getOptions();
+        List<DropDownOption> dropDownOptions = new ArrayList<>(options.size());
+        for (int i = 0; i < options.size(); i++) {
+            var option = options.get(i);
+            dropDownOptions.add(new DropDownOption(i, option.getAttribute("value"), option.getText(), option.isSelected(), !option.isEnabled()));
+        }
+        return dropDownOptions;
+    }
+
     /**
      * @param index the index to select
      * @see Select#selectByIndex(int)
      */
     public void selectByIndex(int index) {
-        getSelectElement().selectByIndex(index);
+        select("index", index, "Cannot locate option with index: " + index, select -> select.selectByIndex(index));
     }
 
     /**
      * @param value the value to select
-     * @see Select#selectByIndex(int)
+     * @see Select#selectByValue(String)
      */
     public void selectByValue(String value) {
-        getSelectElement().selectByValue(value);
+        select("value", value, "Cannot locate option with value: " + value, select -> select.selectByValue(value));
     }
 
     public void getValue() {
-        getWebElement().getAttribute("value");
+        getAttribute("value");
     }
 
     /**
@@ -68,17 +114,43 @@ public class DropDownWebElement extends AbstractWebElement {
      */
     public void selectByVisibleText(String value) {
         //If the string is null or empty, just leave the field as-is. It is preferable to do this check here than have to surround the call with this logic every time
-        if (value.isBlank()) {
-            getSelectElement().selectByVisibleText(value);
+        if (value != null && !value.isBlank()) {
+            select("text", value, "Cannot locate element with text: " + value, select -> select.selectByVisibleText(value));
         }
     }
 
     /**
-     * Return a Selenium Select object (a combo box) based on the underlying {@link WebElement}
+     * Selects the matching option(s) with a single script call. The script fires the same input and change events as a
+     * user selection, so the application behaves exactly as it would with Selenium's {@link Select}.
      *
-     * @return the {@link Select} object
+     * @param mode            how the target is matched: "text", "value" or "index"
+     * @param target          the text, value or index to select
+     * @param notFoundMessage the message of the exception thrown if nothing matches
+     * @param fallback        the equivalent {@link Select} call, used if the driver couldn't run the script
      */
-    private Select getSelectElement() {
-        return new Select(this.getWebElement());
+    private void select(String mode, Object target, String notFoundMessage, Consumer<Select> fallback) {
+        var step = StepRecorder.begin(StepType.SELECT, this, target);
+        doWithStaleRetry(element -> select(element, mode, target, notFoundMessage, fallback));
+        StepRecorder.end(step);
+    }
+
+    private void select(WebElement element, String mode, Object target, String notFoundMessage, Consumer<Select> fallback) {
+        var result = executeScript(SELECT_SCRIPT, element, mode, target);
+        if (!(result instanceof Number)) {
+            log.debug(String.format("Falling back to Select to select %s [%s] on %s", mode, target, this));
+            fallback.accept(new Select(element));
+            return;
+        }
+        var matched = ((Number) result).intValue();
+        if (matched == 0) {
+            throw new NoSuchElementException(notFoundMessage);
+        }
+        if (matched < 0) {
+            throw new UnsupportedOperationException("You may not select a disabled option");
+        }
+    }
+
+    private Object executeScript(String scriptName, Object... args) {
+        return getWebDriverWrapper().getJavascriptExecutor().executeScript(JavascriptUtils.getScript(scriptName), args);
     }
 }
@@ -0,0 +1,52 @@
+package com.retailmenot.scaffold.webelements;
+
+import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Remembers how an element that was built from a {@link WebElement} was originally found: the parent it was searched
+ * from, the locator used and its position in the results. This lets an {@link AbstractWebElement} locate a fresh copy of
+ * itself after the page re-renders and its cached {@link WebElement} goes stale.
+ */
+public class ElementRecipe {
+
+    private final AbstractWebElement parent;
+    private final By by;
+    private final int index;
+
+    /**
+     * @param parent the element the search was made from, or null if the search was made from the page
+     * @param by     the locator that was used
+     * @param index  the position of the element within the results of the locator
+     */
+    public ElementRecipe(AbstractWebElement parent, By by, int index) {
+        this.parent = parent;
+        this.by = by;
+        this.index = index;
+    }
+
+    /**
+     * Repeats the original search and returns the element at the same position. If the parent is itself built from a
+     * recipe, it is located again first since it is just as likely to have gone stale.
+     *
+     * @param webDriverWrapper the {@link WebDriverWrapper} to search the page with
+     * @return the freshly located {@link WebElement}
+     * @throws NoSuchElementException if there are no longer enough matching elements
+     */
+    WebElement relocate(WebDriverWrapper webDriverWrapper) {
+        SearchContext searchContext = parent == null ? webDriverWrapper.getBaseWebDriver() : parent.relocateWebElement();
+        var elements = searchContext.findElements(by);
+        if (elements.size() <= index) {
+            throw new NoSuchElementException(String.format("Could not locate element %d of [%s] again after it went stale", index, by));
+        }
+        return elements.get(index);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%d]%s", by, index, parent == null ? "" : " under " + parent);
+    }
+}
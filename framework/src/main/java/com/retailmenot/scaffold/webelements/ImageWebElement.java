@@ -26,6 +26,6 @@ public class ImageWebElement extends AbstractWebElement {
      * @return the image source as {@link String}
      */
     public String getImageSource() {
-        return getWebElement().getAttribute("src");
+        return getAttribute("src");
     }
 }
@@ -1,5 +1,8 @@
 package com.retailmenot.scaffold.webelements;
 
+import com.retailmenot.scaffold.models.enums.StepType;
+import com.retailmenot.scaffold.snapshots.SnapshotBuffer;
+import com.retailmenot.scaffold.steps.StepRecorder;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
 
@@ -30,7 +33,7 @@ public class InputWebElement extends AbstractClickable {
      * @return the value of the input as {@link String}
      */
     public String getValue() {
-        return getWebElement().getAttribute("value");
+        return getAttribute("value");
     }
 
     /**
@@ -39,7 +42,10 @@ public class InputWebElement extends AbstractClickable {
      * @see WebElement#sendKeys(CharSequence...)
      */
     public void sendKeys(String keys) {
-        getWebElement().sendKeys(keys);
+        SnapshotBuffer.recordInteraction(getWebDriverWrapper(), "sendKeys", this);
+        var step = StepRecorder.begin(StepType.SEND_KEYS, this, null);
+        doWithStaleRetry(element -> element.sendKeys(keys));
+        StepRecorder.end(step);
     }
 
     /**
@@ -48,7 +54,10 @@ public class InputWebElement extends AbstractClickable {
      * @see WebElement#clear()
      */
     public void clear() {
-        getWebElement().clear();
+        SnapshotBuffer.recordInteraction(getWebDriverWrapper(), "clear", this);
+        var step = StepRecorder.begin(StepType.CLEAR, this, null);
+        doWithStaleRetry(WebElement::clear);
+        StepRecorder.end(step);
     }
 
     /**
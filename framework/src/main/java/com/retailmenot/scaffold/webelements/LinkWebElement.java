@@ -30,7 +30,7 @@ public class LinkWebElement extends AbstractClickable {
      * @return the link as {@link String}
      */
     public String getLinkText() {
-        return getWebElement().getText();
+        return getWithStaleRetry(WebElement::getText);
     }
 
     /**
@@ -39,6 +39,6 @@ public class LinkWebElement extends AbstractClickable {
      * @return the link's URL as {@link String}
      */
     public String getLinkHref() {
-        return getWebElement().getAttribute("href");
+        return getAttribute("href");
     }
 }
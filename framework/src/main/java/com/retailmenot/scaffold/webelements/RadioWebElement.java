@@ -33,6 +33,6 @@ public class RadioWebElement extends AbstractClickable {
      @return the result as {@link boolean}
      */
     public boolean isSelected() {
-        return getWebElement().isSelected();
+        return getWithStaleRetry(WebElement::isSelected);
     }
 }
@@ -0,0 +1,202 @@
+package com.retailmenot.scaffold.webelements;
+
+import com.retailmenot.scaffold.exception.WebDriverWrapperException;
+import com.retailmenot.scaffold.util.JavascriptUtils;
+import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+
+import java.lang.reflect.Constructor;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Iterates over every item of a virtualized or infinite-scroll list, where the DOM only ever contains the rows that are
+ * currently in view and findElements() can therefore never see the whole list.
+ *
+ * The container is scrolled one step at a time. Each step is a single asynchronous script call that scrolls, waits for
+ * the list to stop mutating, and returns the rendered items along with their keys. Items are de-duplicated by key so each
+ * one is returned exactly once. The end of the list is reached when a step neither moves the scroll position nor changes
+ * the DOM.
+ *
+ * Create one through {@link AbstractWebElement#iterateVirtualList(Class, By, String)}.
+ *
+ * @param <T> the strongly typed element each item is wrapped in
+ */
+@Slf4j
+public class VirtualListIterator<T extends AbstractWebElement> implements Iterator<T> {
+
+    private static final String STEP_SCRIPT = "virtual-list-step.js";
+
+    private final AbstractWebElement container;
+    private final Constructor<T> constructor;
+    private final Map<String, String> itemLocator;
+    private final String keyAttribute;
+    private final Deque<T> pending = new ArrayDeque<>();
+    private final Set<String> seenKeys = new HashSet<>();
+
+    private double stepRatio = 0.8;
+    private long idleMillis = 150;
+    private long endGraceMillis = 1000;
+    private long maxStepMillis = 5000;
+    private int maxSteps = 1000;
+
+    private WebElement containerElement;
+    private int steps = 0;
+    private boolean exhausted = false;
+
+    VirtualListIterator(AbstractWebElement container, Class<T> elementClass, By itemBy, String keyAttribute) {
+        this.container = container;
+        this.itemLocator = JavascriptUtils.getScriptLocator(itemBy);
+        this.keyAttribute = keyAttribute;
+        try {
+            this.constructor = elementClass.getConstructor(WebElement.class);
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException("Could not instantiate Element properly: " + e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        // Keep stepping until a step renders something new or we run out of list
+        while (pending.isEmpty() && !exhausted) {
+            step();
+        }
+        return !pending.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more items in virtual list " + container);
+        }
+        return pending.poll();
+    }
+
+    /**
+     * Sets the fraction of the visible height to scroll on each step. Values below 1.0 overlap consecutive steps so no
+     * item can be skipped between two renders.
+     *
+     * @param stepRatio the fraction of the viewport to scroll
+     * @return this {@link VirtualListIterator}
+     */
+    public VirtualListIterator<T> stepRatio(double stepRatio) {
+        this.stepRatio = stepRatio;
+        return this;
+    }
+
+    /**
+     * Sets how long the list must go without DOM mutations before a step is considered settled.
+     *
+     * @param idle the idle window
+     * @return this {@link VirtualListIterator}
+     */
+    public VirtualListIterator<T> idleWindow(Duration idle) {
+        this.idleMillis = idle.toMillis();
+        return this;
+    }
+
+    /**
+     * Sets how long to wait for more items once the bottom of the list is reached, for lists that load more on demand.
+     *
+     * @param grace the end-of-list grace period
+     * @return this {@link VirtualListIterator}
+     */
+    public VirtualListIterator<T> endGracePeriod(Duration grace) {
+        this.endGraceMillis = grace.toMillis();
+        return this;
+    }
+
+    /**
+     * Sets the longest a single step may wait for the list to settle.
+     *
+     * @param maxStep the maximum time per step
+     * @return this {@link VirtualListIterator}
+     */
+    public VirtualListIterator<T> maxStepTime(Duration maxStep) {
+        this.maxStepMillis = maxStep.toMillis();
+        return this;
+    }
+
+    /**
+     * Sets an upper bound on the number of steps, guarding against lists that never stop growing.
+     *
+     * @param maxSteps the maximum amount of steps
+     * @return this {@link VirtualListIterator}
+     */
+    public VirtualListIterator<T> maxSteps(int maxSteps) {
+        this.maxSteps = maxSteps;
+        return this;
+    }
+
+    /**
+     * Performs a single step: scrolls (except on the very first step), waits for the list to settle and queues any item
+     * that hasn't been seen before.
+     */
+    private void step() {
+        if (steps >= maxSteps) {
+            log.warn(String.format("Stopped iterating virtual list %s after %d steps", container, steps));
+            exhausted = true;
+            return;
+        }
+        var result = executeStep(steps > 0);
+        steps++;
+
+        if (!(result instanceof Map)) {
+            throw new WebDriverWrapperException("Unexpected result while iterating virtual list " + container + ": " + result);
+        }
+        var stepResult = (Map<?, ?>) result;
+        for (var item : (List<?>) stepResult.get("items")) {
+            var pair = (List<?>) item;
+            var key = String.valueOf(pair.get(1));
+            if (seenKeys.add(key)) {
+                pending.add(newElement((WebElement) pair.get(0)));
+            }
+        }
+        exhausted = Boolean.TRUE.equals(stepResult.get("atEnd"));
+    }
+
+    private Object executeStep(boolean scroll) {
+        var script = JavascriptUtils.getScriptWithLocators(STEP_SCRIPT);
+        var budget = Duration.ofMillis(maxStepMillis);
+        try {
+            return getWebDriverWrapper().executeAsyncScript(budget, script, getContainerElement(), itemLocator,
+                    keyAttribute, scroll, stepRatio, idleMillis, endGraceMillis, maxStepMillis);
+        } catch (StaleElementReferenceException e) {
+            // The container itself was re-rendered, so locate it again and retry the step once
+            log.debug("Virtual list container went stale, locating it again: " + container);
+            containerElement = null;
+            return getWebDriverWrapper().executeAsyncScript(budget, script, getContainerElement(), itemLocator,
+                    keyAttribute, scroll, stepRatio, idleMillis, endGraceMillis, maxStepMillis);
+        }
+    }
+
+    private WebElement getContainerElement() {
+        // Resolve the container once per iteration rather than once per step
+        if (containerElement == null) {
+            containerElement = container.getWebElement();
+        }
+        return containerElement;
+    }
+
+    private T newElement(WebElement element) {
+        try {
+            return constructor.newInstance(element);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not instantiate Element properly: " + e);
+        }
+    }
+
+    private WebDriverWrapper getWebDriverWrapper() {
+        return container.getWebDriverWrapper();
+    }
+}
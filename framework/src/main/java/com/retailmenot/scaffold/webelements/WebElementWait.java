@@ -1,5 +1,7 @@
 package com.retailmenot.scaffold.webelements;
 
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
 import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.support.ui.ExpectedCondition;
@@ -14,6 +16,15 @@ public class WebElementWait {
     }
 
     public void waitUntilDisplayed() {
+        // If enabled, let the page tell us when the element shows up instead of polling for it
+        if (TestContext.baseContext().getSettings().isEnabled(ToggleSetting.IN_PAGE_WAITS_ENABLED)) {
+            var condition = element.getDisplayedCondition();
+            if (condition != null) {
+                driver.getAutomationWait().waitForInPageCondition(condition, element.getLocator());
+                return;
+            }
+        }
+
         // Do a custom condition here to handle if we're using a webelement instead of a by locator for this element
         driver.getAutomationWait().waitForCustomCondition(new ExpectedCondition<Boolean>() {
 
@@ -26,6 +37,6 @@ public class WebElementWait {
             public String toString() {
                 return element.toString();
             }
-        });
+        }, element.getLocator());
     }
 }
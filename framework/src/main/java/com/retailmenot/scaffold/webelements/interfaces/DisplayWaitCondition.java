@@ -4,6 +4,15 @@ import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
 
 // Use this interface to specify a blocking custom wait condition to happen
 public interface DisplayWaitCondition {
+    /**
+     * Called right before the action the condition will be waited for after, e.g. a click. Conditions that need to
+     * observe the page while the action happens can prepare for it here.
+     *
+     * @param driver the instance of the {@link WebDriverWrapper}
+     */
+    default void beforeAction(WebDriverWrapper driver) {
+    }
+
     /**
      * Waits for the custom condition set here before proceeding
      *
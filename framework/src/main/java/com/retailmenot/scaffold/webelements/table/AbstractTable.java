@@ -1,6 +1,7 @@
 package com.retailmenot.scaffold.webelements.table;
 
 import com.retailmenot.scaffold.webelements.AbstractWebElement;
+import com.retailmenot.scaffold.webelements.ElementRecipe;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
 
@@ -22,7 +23,9 @@ public abstract class AbstractTable extends AbstractWebElement {
         List<WebElement> headerElements = getWebElement().findElements(By.cssSelector("th"));
         List<TableHeader> headers = new LinkedList<TableHeader>();
         for (int i = 0; i < headerElements.size(); i++) {
-            headers.add(new TableHeader(headerElements.get(i), i));
+            var header = new TableHeader(headerElements.get(i), i);
+            header.setRecipe(new ElementRecipe(this, By.cssSelector("th"), i));
+            headers.add(header);
         }
         return headers;
     }
@@ -36,7 +39,9 @@ public abstract class AbstractTable extends AbstractWebElement {
         List<WebElement> rowElements = getWebElement().findElements(By.cssSelector("tbody tr"));
         List<TableRow> rows = new LinkedList<TableRow>();
         for (int i = 0; i < rowElements.size(); i++) {
-            rows.add(new TableRow(rowElements.get(i), i));
+            var row = new TableRow(rowElements.get(i), i);
+            row.setRecipe(new ElementRecipe(this, By.cssSelector("tbody tr"), i));
+            rows.add(row);
         }
         return rows;
     }
@@ -0,0 +1,156 @@
+package com.retailmenot.scaffold.webelements.waitconditions;
+
+import com.retailmenot.scaffold.exception.AutomationWaitException;
+import com.retailmenot.scaffold.util.JavascriptUtils;
+import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
+import com.retailmenot.scaffold.webelements.interfaces.DisplayWaitCondition;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DisplayWaitCondition} that waits for the page's network activity to settle: the document has loaded, no
+ * fetch or XMLHttpRequest call is in flight, no short timer is pending and nothing has happened for an idle window.
+ *
+ * A small tracker is injected into each document to count in-flight requests and pending timers. It is installed right
+ * before the click (see {@link DisplayWaitCondition#beforeAction(WebDriverWrapper)}) so the requests the click starts
+ * are seen, and again when waiting in case the click navigated to a new document. The whole wait is a single
+ * asynchronous script call.
+ *
+ * Use it for every click through the {@link com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting#WAIT_CONDITION}
+ * setting, or for a single element through AbstractClickable.setCustomWaitCondition().
+ */
+@Slf4j
+public class NetworkIdleWaitCondition implements DisplayWaitCondition {
+
+    private static final String TRACKER_SCRIPT = "network-tracker.js";
+    private static final String IDLE_SCRIPT = "network-idle.js";
+
+    private Duration idleWindow = Duration.ofMillis(500);
+    private Duration timeout = Duration.ofSeconds(10);
+    private long maxTrackedTimerMillis = 1000;
+    private boolean failOnTimeout = false;
+    private final List<String> ignoredUrlPatterns = new ArrayList<>();
+
+    /**
+     * Sets how long the page has to go without any network activity to count as idle.
+     *
+     * @param idleWindow the idle window
+     * @return this {@link NetworkIdleWaitCondition}
+     */
+    public NetworkIdleWaitCondition idleWindow(Duration idleWindow) {
+        this.idleWindow = idleWindow;
+        return this;
+    }
+
+    /**
+     * Sets the longest to wait for the page to become idle.
+     *
+     * @param timeout the timeout
+     * @return this {@link NetworkIdleWaitCondition}
+     */
+    public NetworkIdleWaitCondition timeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sets the longest timer delay that is still considered pending work. Longer timers are usually polling or analytics
+     * and are ignored, as are timers scheduled from a tracked timer's callback, since a timer that keeps rescheduling
+     * itself, e.g. a carousel or a spinner, would otherwise keep the page from ever becoming idle.
+     *
+     * @param maxTrackedTimer the longest tracked timer delay
+     * @return this {@link NetworkIdleWaitCondition}
+     */
+    public NetworkIdleWaitCondition maxTrackedTimer(Duration maxTrackedTimer) {
+        this.maxTrackedTimerMillis = maxTrackedTimer.toMillis();
+        return this;
+    }
+
+    /**
+     * Stops tracking timers altogether, only waiting on requests.
+     *
+     * @return this {@link NetworkIdleWaitCondition}
+     */
+    public NetworkIdleWaitCondition ignoreTimers() {
+        this.maxTrackedTimerMillis = -1;
+        return this;
+    }
+
+    /**
+     * Ignores requests whose URL matches the given javascript regular expression, e.g. long-polling or analytics calls
+     * that never settle.
+     *
+     * @param urlPattern the regular expression to match against request URLs
+     * @return this {@link NetworkIdleWaitCondition}
+     */
+    public NetworkIdleWaitCondition ignoring(String urlPattern) {
+        this.ignoredUrlPatterns.add(urlPattern);
+        return this;
+    }
+
+    /**
+     * Sets whether or not a page that never becomes idle fails the wait. By default the outstanding requests are logged
+     * and the test carries on.
+     *
+     * @param failOnTimeout true to throw an {@link AutomationWaitException} on timeout
+     * @return this {@link NetworkIdleWaitCondition}
+     */
+    public NetworkIdleWaitCondition failOnTimeout(boolean failOnTimeout) {
+        this.failOnTimeout = failOnTimeout;
+        return this;
+    }
+
+    @Override
+    public void beforeAction(WebDriverWrapper driver) {
+        try {
+            driver.getJavascriptExecutor().executeScript(JavascriptUtils.getScript(TRACKER_SCRIPT), maxTrackedTimerMillis);
+        } catch (WebDriverException e) {
+            log.debug("Could not install the network tracker before the action: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void waitUntilLoaded(WebDriverWrapper driver) {
+        Object result;
+        try {
+            var script = JavascriptUtils.getScript(TRACKER_SCRIPT) + JavascriptUtils.getScript(IDLE_SCRIPT);
+            result = driver.executeAsyncScript(timeout, script, maxTrackedTimerMillis, idleWindow.toMillis(),
+                    timeout.toMillis(), ignoredUrlPatterns);
+        } catch (ScriptTimeoutException e) {
+            var message = String.format("Network did not become idle within %d ms: %s", timeout.toMillis(), e.getMessage());
+            if (failOnTimeout) {
+                throw new AutomationWaitException(message);
+            }
+            log.warn(message);
+            return;
+        } catch (WebDriverException e) {
+            // Most likely the page navigated away mid-wait, which leaves nothing for us to wait on in this document
+            log.debug("Could not wait for the network to become idle: " + e.getMessage());
+            return;
+        }
+        if (!(result instanceof Map)) {
+            log.debug("Unexpected result waiting for the network to become idle: " + result);
+            return;
+        }
+        var outcome = (Map<?, ?>) result;
+        if (!Boolean.TRUE.equals(outcome.get("idle"))) {
+            var message = String.format("Network did not become idle within %d ms. Still loading: %s, pending: %s",
+                    timeout.toMillis(), outcome.get("loading"), outcome.get("pending"));
+            if (failOnTimeout) {
+                throw new AutomationWaitException(message);
+            }
+            log.warn(message);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("network idle for %d ms", idleWindow.toMillis());
+    }
+}
@@ -0,0 +1,126 @@
+package com.retailmenot.scaffold.webelements.waitconditions;
+
+/**
+ * One way of telling that a page is ready, e.g. Angular's testability API. A detector is made of two javascript function
+ * bodies evaluated inside the page:
+ *
+ * - the probe takes no arguments and returns whether the detector applies to the page, e.g. whether Angular is present
+ * - the wait gets a callback as its only argument, available as done, and calls it once the page is ready, or with
+ *   {error: message} if the page can't tell
+ *
+ * Detectors are registered with a {@link ReadinessDetectorRegistry}, which picks the first one that applies to a page.
+ */
+public class ReadinessDetector {
+
+    static final String DOCUMENT_READY = "document";
+
+    private final String name;
+    private final String probe;
+    private final String wait;
+
+    /**
+     * @param name  a unique name for the detector
+     * @param probe the body of a function returning whether the detector applies to the page
+     * @param wait  the body of a function calling done() once the page is ready
+     */
+    public ReadinessDetector(String name, String probe, String wait) {
+        this.name = name;
+        this.probe = probe;
+        this.wait = wait;
+    }
+
+    /**
+     * The fallback for pages without a more specific signal. Since every wait only starts once the document has loaded,
+     * there is nothing left to wait for.
+     *
+     * @return the {@link ReadinessDetector}
+     */
+    public static ReadinessDetector documentReady() {
+        return new ReadinessDetector(DOCUMENT_READY, "return true;", "done();");
+    }
+
+    /**
+     * Angular (2 and later), ready once every testability on the page reports it is stable: no pending macrotasks, HTTP
+     * requests or change detection.
+     *
+     * @return the {@link ReadinessDetector}
+     */
+    public static ReadinessDetector angular() {
+        return new ReadinessDetector("angular",
+                "return typeof window.getAllAngularTestabilities === 'function';",
+                "var testabilities = window.getAllAngularTestabilities();" +
+                "var remaining = testabilities.length;" +
+                "if (remaining === 0) { done(); return; }" +
+                "testabilities.forEach(function (testability) {" +
+                "    testability.whenStable(function () { if (--remaining === 0) { done(); } });" +
+                "});");
+    }
+
+    /**
+     * AngularJS (1.x), ready once $browser reports no outstanding requests.
+     *
+     * @return the {@link ReadinessDetector}
+     */
+    public static ReadinessDetector angularJs() {
+        var root = "(document.querySelector('[ng-app],[data-ng-app],.ng-scope') || document.body)";
+        return new ReadinessDetector("angularjs",
+                "return !!(window.angular && window.angular.element(" + root + ").injector());",
+                "window.angular.element(" + root + ").injector().get('$browser').notifyWhenNoOutstandingRequests(done);");
+    }
+
+    /**
+     * React, ready once its scheduler has nothing left to run. The scheduler runs work in MessageChannel tasks, so once a
+     * task posted after the pending work has run and the browser reports idle time, no render is outstanding.
+     *
+     * @return the {@link ReadinessDetector}
+     */
+    public static ReadinessDetector react() {
+        return new ReadinessDetector("react",
+                "var hook = window.__REACT_DEVTOOLS_GLOBAL_HOOK__;" +
+                "if (hook && hook.renderers && hook.renderers.size > 0) { return true; }" +
+                "return Array.prototype.some.call(document.querySelectorAll('body, body > *'), function (element) {" +
+                "    return Object.keys(element).some(function (key) {" +
+                "        return key.indexOf('__reactContainer') === 0 || key === '_reactRootContainer';" +
+                "    });" +
+                "});",
+                "var channel = new MessageChannel();" +
+                "channel.port1.onmessage = function () {" +
+                "    if (window.requestIdleCallback) { window.requestIdleCallback(function () { done(); }); }" +
+                "    else { requestAnimationFrame(function () { setTimeout(done, 0); }); }" +
+                "};" +
+                "channel.port2.postMessage(null);");
+    }
+
+    /**
+     * A readiness hook exposed by the application itself: a global function that returns a promise, or any other value,
+     * that resolves once the application is ready. A rejected promise or a thrown error is reported as the wait's error.
+     *
+     * @param globalFunctionName the name of the global function, e.g. "appReady"
+     * @return the {@link ReadinessDetector}
+     */
+    public static ReadinessDetector appHook(String globalFunctionName) {
+        var function = "window['" + globalFunctionName.replace("\\", "\\\\").replace("'", "\\'") + "']";
+        return new ReadinessDetector("hook:" + globalFunctionName,
+                "return typeof " + function + " === 'function';",
+                "new Promise(function (resolve) { resolve(" + function + "()); })" +
+                "    .then(function () { done(); })" +
+                "    .catch(function (e) { done({error: String(e)}); });");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getProbe() {
+        return probe;
+    }
+
+    public String getWait() {
+        return wait;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
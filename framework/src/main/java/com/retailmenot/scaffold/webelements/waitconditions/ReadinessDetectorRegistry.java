@@ -0,0 +1,100 @@
+package com.retailmenot.scaffold.webelements.waitconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An ordered set of {@link ReadinessDetector}s. The first detector whose probe applies to a page is used for it, so the
+ * most specific and cheapest signals come first: registered detectors, then Angular, AngularJS and React, and finally
+ * the document's own ready state, which applies to every page.
+ *
+ * Probing is done once per origin. The detector found is cached and used for every later wait on the same origin, unless
+ * it is the document fallback: a page probed before its framework has booted looks like a plain document, so origins
+ * using the fallback are probed again on every wait.
+ */
+public class ReadinessDetectorRegistry {
+
+    private final List<ReadinessDetector> registered = new CopyOnWriteArrayList<>();
+    private final List<ReadinessDetector> builtIn = List.of(
+            ReadinessDetector.angular(),
+            ReadinessDetector.angularJs(),
+            ReadinessDetector.react(),
+            ReadinessDetector.documentReady());
+    private final Map<String, String> detectorsByOrigin = new ConcurrentHashMap<>();
+    private volatile String detectorScript;
+
+    /**
+     * Registers a detector, giving it precedence over the built-in detectors and any detector registered before it.
+     * Clears the cached detectors, since the new one may apply to pages already probed.
+     *
+     * @param detector the {@link ReadinessDetector} to register
+     * @return this {@link ReadinessDetectorRegistry}
+     */
+    public ReadinessDetectorRegistry register(ReadinessDetector detector) {
+        registered.add(0, detector);
+        detectorScript = null;
+        clearCache();
+        return this;
+    }
+
+    /**
+     * @return the detectors in the order they are probed
+     */
+    public List<ReadinessDetector> getDetectors() {
+        var detectors = new ArrayList<>(registered);
+        detectors.addAll(builtIn);
+        return detectors;
+    }
+
+    /**
+     * @param origin the origin of a page, e.g. "https://www.example.com"
+     * @return the name of the detector used for the origin, or null if it hasn't been probed yet
+     */
+    public String getCachedDetector(String origin) {
+        return detectorsByOrigin.get(origin);
+    }
+
+    /**
+     * @return the name of the detector used for each origin probed so far
+     */
+    public Map<String, String> getCachedDetectors() {
+        return Map.copyOf(detectorsByOrigin);
+    }
+
+    void cacheDetector(String origin, String detectorName) {
+        if (ReadinessDetector.DOCUMENT_READY.equals(detectorName)) {
+            detectorsByOrigin.remove(origin);
+        } else {
+            detectorsByOrigin.put(origin, detectorName);
+        }
+    }
+
+    /**
+     * Forgets which detector was used for each origin, so every origin is probed again.
+     */
+    public void clearCache() {
+        detectorsByOrigin.clear();
+    }
+
+    /**
+     * Returns the javascript declaring the detectors, in order, as scaffoldDetectors.
+     *
+     * @return the script as a {@link String}
+     */
+    String getDetectorScript() {
+        var script = detectorScript;
+        if (script == null) {
+            var builder = new StringBuilder("var scaffoldDetectors = [\n");
+            for (var detector : getDetectors()) {
+                builder.append(String.format("    {name: '%s', probe: function () {%s}, wait: function (done) {%s}},\n",
+                        detector.getName().replace("\\", "\\\\").replace("'", "\\'"), detector.getProbe(), detector.getWait()));
+            }
+            script = builder.append("];\n").toString();
+            detectorScript = script;
+        }
+        return script;
+    }
+}
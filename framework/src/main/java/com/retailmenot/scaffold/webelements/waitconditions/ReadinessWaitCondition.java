@@ -0,0 +1,110 @@
+package com.retailmenot.scaffold.webelements.waitconditions;
+
+import com.retailmenot.scaffold.exception.AutomationWaitException;
+import com.retailmenot.scaffold.util.JavascriptUtils;
+import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
+import com.retailmenot.scaffold.webelements.interfaces.DisplayWaitCondition;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * A {@link DisplayWaitCondition} that waits for the page to be ready using the best signal the page offers, as picked
+ * by a {@link ReadinessDetectorRegistry}: Angular's testabilities, AngularJS's outstanding requests, React's scheduler,
+ * a hook exposed by the application, or simply the document having loaded.
+ *
+ * Each wait is a single asynchronous script call. The first wait on an origin probes for the detector to use, and later
+ * waits on the same origin go straight to waiting on it.
+ */
+@Slf4j
+public class ReadinessWaitCondition implements DisplayWaitCondition {
+
+    private static final String READINESS_SCRIPT = "readiness.js";
+
+    private final ReadinessDetectorRegistry registry;
+    private Duration timeout = Duration.ofSeconds(10);
+    private boolean failOnTimeout = false;
+
+    /**
+     * Creates a condition using the built-in detectors.
+     */
+    public ReadinessWaitCondition() {
+        this(new ReadinessDetectorRegistry());
+    }
+
+    /**
+     * Creates a condition using the detectors of the given registry.
+     *
+     * @param registry the {@link ReadinessDetectorRegistry} to pick detectors from
+     */
+    public ReadinessWaitCondition(ReadinessDetectorRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Sets the longest to wait for the page to become ready.
+     *
+     * @param timeout the timeout
+     * @return this {@link ReadinessWaitCondition}
+     */
+    public ReadinessWaitCondition timeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sets whether or not a page that never becomes ready fails the wait. By default it is logged and the test carries on.
+     *
+     * @param failOnTimeout true to throw an {@link AutomationWaitException} on timeout
+     * @return this {@link ReadinessWaitCondition}
+     */
+    public ReadinessWaitCondition failOnTimeout(boolean failOnTimeout) {
+        this.failOnTimeout = failOnTimeout;
+        return this;
+    }
+
+    public ReadinessDetectorRegistry getRegistry() {
+        return registry;
+    }
+
+    @Override
+    public void waitUntilLoaded(WebDriverWrapper driver) {
+        Object result;
+        try {
+            var script = registry.getDetectorScript() + JavascriptUtils.getScript(READINESS_SCRIPT);
+            result = driver.executeAsyncScript(timeout, script, registry.getCachedDetectors(), timeout.toMillis());
+        } catch (WebDriverException e) {
+            // Most likely the page navigated away mid-wait, which leaves nothing for us to wait on in this document
+            log.debug("Could not wait for the page to become ready: " + e.getMessage());
+            return;
+        }
+        if (!(result instanceof Map)) {
+            log.debug("Unexpected result waiting for the page to become ready: " + result);
+            return;
+        }
+
+        var outcome = (Map<?, ?>) result;
+        var origin = outcome.get("origin");
+        var detector = outcome.get("detector");
+        if (origin != null && detector != null && !detector.equals(registry.getCachedDetector(origin.toString()))) {
+            log.debug(String.format("Using the [%s] readiness detector for %s", detector, origin));
+            registry.cacheDetector(origin.toString(), detector.toString());
+        }
+
+        if (!Boolean.TRUE.equals(outcome.get("ready"))) {
+            var message = String.format("Page did not become ready within %d ms according to the [%s] readiness detector%s",
+                    timeout.toMillis(), detector, outcome.get("error") == null ? "" : ": " + outcome.get("error"));
+            if (failOnTimeout) {
+                throw new AutomationWaitException(message);
+            }
+            log.warn(message);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "page readiness";
+    }
+}
@@ -0,0 +1,41 @@
+// Scrolls an element into view, checks that it would receive a click and clicks it, all in a single round trip.
+// arguments: element
+// returns: 'clicked' if the element was clicked, otherwise why it wasn't ('not-clickable' or 'covered') so the caller can
+//          fall back to a native click and get Selenium's usual behavior and errors
+var element = arguments[0];
+element.scrollIntoView({block: 'center', inline: 'center'});
+
+var rect = element.getBoundingClientRect();
+if (rect.width === 0 || rect.height === 0 || element.disabled) {
+    return 'not-clickable';
+}
+
+// A native click lands on whatever is topmost at the element's center, so only click if that's the element (or one of
+// its children) rather than an overlay, a sticky header or a spinner
+var x = rect.left + rect.width / 2;
+var y = rect.top + rect.height / 2;
+var target = document.elementFromPoint(x, y);
+if (!target || (target !== element && !element.contains(target))) {
+    return 'covered';
+}
+
+// Fire the same sequence of events a user's click would
+var init = {bubbles: true, cancelable: true, composed: true, view: window, clientX: x, clientY: y, button: 0};
+var pointerEvents = typeof PointerEvent === 'function';
+if (pointerEvents) {
+    target.dispatchEvent(new PointerEvent('pointerdown', init));
+}
+target.dispatchEvent(new MouseEvent('mousedown', init));
+if (typeof element.focus === 'function') {
+    element.focus();
+}
+if (pointerEvents) {
+    target.dispatchEvent(new PointerEvent('pointerup', init));
+}
+target.dispatchEvent(new MouseEvent('mouseup', init));
+if (typeof target.click === 'function') {
+    target.click();
+} else {
+    target.dispatchEvent(new MouseEvent('click', init));
+}
+return 'clicked';
@@ -0,0 +1,81 @@
+// Shared condition helpers prepended (after locators.js) to scripts that evaluate InPageConditions inside the page. A
+// condition spec is the map produced by InPageCondition.toScriptSpec():
+//   {type: <condition>, element: <element>, locator: <locator>, parentLocator: <locator>, root: <element>, text: <text>,
+//    body: <function body>, args: <array>}
+var scaffoldIsShown = function (element) {
+    if (!element || !element.isConnected) {
+        return false;
+    }
+    // An element with no layout boxes is either display:none itself or has a display:none ancestor
+    if (element.getClientRects().length === 0) {
+        return false;
+    }
+    var style = window.getComputedStyle(element);
+    if (style.visibility === 'hidden' || style.visibility === 'collapse') {
+        return false;
+    }
+    for (var current = element; current && current.nodeType === 1; current = current.parentElement) {
+        if (Number(window.getComputedStyle(current).opacity) === 0) {
+            return false;
+        }
+    }
+    var rect = element.getBoundingClientRect();
+    return rect.width > 0 && rect.height > 0;
+};
+
+var scaffoldResolve = function (spec) {
+    if (spec.element) {
+        return spec.element;
+    }
+    var root = spec.root || document;
+    if (spec.parentLocator) {
+        root = scaffoldFind(document, spec.parentLocator);
+        if (!root) {
+            return null;
+        }
+    }
+    return scaffoldFind(root, spec.locator);
+};
+
+var scaffoldCompiled = {};
+
+var scaffoldConditions = {
+    present: function (spec) {
+        return scaffoldResolve(spec) !== null;
+    },
+    absent: function (spec) {
+        return scaffoldResolve(spec) === null;
+    },
+    displayed: function (spec) {
+        return scaffoldIsShown(scaffoldResolve(spec));
+    },
+    hidden: function (spec) {
+        return !scaffoldIsShown(scaffoldResolve(spec));
+    },
+    textContains: function (spec) {
+        var element = scaffoldResolve(spec);
+        return element !== null && (element.innerText || element.textContent || '').indexOf(spec.text) !== -1;
+    },
+    countAtLeast: function (spec) {
+        var root = spec.root || document;
+        if (spec.parentLocator) {
+            root = scaffoldFind(document, spec.parentLocator);
+        }
+        return root !== null && scaffoldFindAll(root, spec.locator).length >= spec.count;
+    },
+    script: function (spec) {
+        // Compiled once per script call. Pages with a strict Content-Security-Policy will refuse this, in which case the
+        // error is reported back and the caller falls back to polling
+        var compiled = scaffoldCompiled[spec.body] || (scaffoldCompiled[spec.body] = new Function(spec.body));
+        return !!compiled.apply(null, spec.args || []);
+    }
+};
+
+var scaffoldEvaluate = function (spec) {
+    var condition = scaffoldConditions[spec.type];
+    if (!condition) {
+        throw new Error('Unknown condition type: ' + spec.type);
+    }
+    return condition(spec);
+};
+
@@ -0,0 +1,15 @@
+// Lists every option of a select element along with its state in a single round trip.
+// arguments: select element
+var select = arguments[0];
+var options = [];
+for (var i = 0; i < select.options.length; i++) {
+    var option = select.options[i];
+    options.push({
+        index: option.index,
+        value: option.value,
+        text: option.text,
+        selected: option.selected,
+        disabled: option.disabled
+    });
+}
+return options;
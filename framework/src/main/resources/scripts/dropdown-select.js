@@ -0,0 +1,45 @@
+// Selects the matching option(s) of a select element in a single round trip, firing the same input and change events a
+// user selection would. Mirrors Selenium's Select: a single select stops at the first match, a multiple select selects
+// every match, and options that are already selected are left alone without firing events.
+// arguments: select element, mode ('text', 'value' or 'index'), target
+// returns: the number of matching options, or -1 if the only matches were disabled
+var select = arguments[0];
+var mode = arguments[1];
+var target = arguments[2];
+
+// Visible text is compared the way Selenium does it, with whitespace normalized on both sides
+var normalize = function (text) {
+    return String(text).replace(/\s+/g, ' ').trim();
+};
+
+var matches = function (option) {
+    if (mode === 'index') {
+        return option.index === Number(target);
+    } else if (mode === 'value') {
+        return option.value === target;
+    }
+    return normalize(option.text) === normalize(target);
+};
+
+var matched = 0;
+var disabled = 0;
+for (var i = 0; i < select.options.length; i++) {
+    var option = select.options[i];
+    if (!matches(option)) {
+        continue;
+    }
+    if (option.disabled) {
+        disabled++;
+        continue;
+    }
+    matched++;
+    if (!option.selected) {
+        option.selected = true;
+        select.dispatchEvent(new Event('input', {bubbles: true}));
+        select.dispatchEvent(new Event('change', {bubbles: true}));
+    }
+    if (!select.multiple) {
+        break;
+    }
+}
+return matched === 0 && disabled > 0 ? -1 : matched;
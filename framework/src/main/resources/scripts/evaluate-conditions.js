@@ -0,0 +1,10 @@
+// Evaluates several conditions at once. Must be prepended with the shared condition helpers.
+// arguments[0]: array of condition specs
+// returns: an array with, for each condition, true or false, or a description of the error it threw
+return arguments[0].map(function (spec) {
+    try {
+        return !!scaffoldEvaluate(spec);
+    } catch (e) {
+        return 'error: ' + e;
+    }
+});
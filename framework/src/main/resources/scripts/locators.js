@@ -0,0 +1,44 @@
+// Shared locator helpers prepended to scripts that need to resolve By locators inside the page. The locator argument is
+// the map produced by JavascriptUtils.getScriptLocator(By): {using: <strategy>, value: <selector>}
+var scaffoldFindAll = function (root, locator) {
+    root = root || document;
+    var value = locator.value;
+    var toArray = function (list) {
+        return Array.prototype.slice.call(list);
+    };
+    var quote = function (text) {
+        return '"' + String(text).replace(/\\/g, '\\\\').replace(/"/g, '\\"') + '"';
+    };
+    switch (locator.using) {
+        case 'css':
+            return toArray(root.querySelectorAll(value));
+        case 'id':
+            return toArray(root.querySelectorAll('[id=' + quote(value) + ']'));
+        case 'name':
+            return toArray(root.querySelectorAll('[name=' + quote(value) + ']'));
+        case 'className':
+            return toArray(root.getElementsByClassName(value));
+        case 'tagName':
+            return toArray(root.getElementsByTagName(value));
+        case 'linkText':
+        case 'partialLinkText':
+            return toArray(root.querySelectorAll('a')).filter(function (anchor) {
+                var text = (anchor.textContent || '').trim();
+                return locator.using === 'linkText' ? text === value : text.indexOf(value) !== -1;
+            });
+        case 'xpath':
+            var snapshot = (root.ownerDocument || root).evaluate(value, root, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);
+            var nodes = [];
+            for (var i = 0; i < snapshot.snapshotLength; i++) {
+                nodes.push(snapshot.snapshotItem(i));
+            }
+            return nodes;
+    }
+    throw new Error('Unsupported locator strategy: ' + locator.using);
+};
+
+var scaffoldFind = function (root, locator) {
+    var elements = scaffoldFindAll(root, locator);
+    return elements.length > 0 ? elements[0] : null;
+};
+
@@ -0,0 +1,43 @@
+// Waits until the document has loaded, no tracked request or timer is pending and nothing has happened for an idle
+// window. Must be prepended with network-tracker.js.
+// arguments: max tracked timer delay in ms, idle window in ms, timeout in ms, array of URL patterns to ignore, callback
+// calls back with: {idle: <boolean>, elapsed: <ms>, loading: <boolean>, pending: [<description>...]}
+var idleMillis = arguments[1];
+var timeoutMillis = arguments[2];
+var done = arguments[arguments.length - 1];
+scaffoldNetwork.ignored = (arguments[3] || []).map(function (pattern) {
+    return new RegExp(pattern);
+});
+
+var start = Date.now();
+var outstanding = function () {
+    var requests = [];
+    for (var id in scaffoldNetwork.pending) {
+        var request = scaffoldNetwork.pending[id];
+        var ignored = request.ignored || scaffoldNetwork.ignored.some(function (pattern) {
+            return pattern.test(request.url);
+        });
+        if (!ignored) {
+            requests.push(request);
+        }
+    }
+    return requests;
+};
+
+var check = function () {
+    var now = Date.now();
+    var loading = document.readyState !== 'complete';
+    var pending = outstanding();
+    if (!loading && pending.length === 0 && now - scaffoldNetwork.lastActivity >= idleMillis) {
+        done({idle: true, elapsed: now - start, loading: false, pending: []});
+    } else if (now - start >= timeoutMillis) {
+        done({
+            idle: false, elapsed: now - start, loading: loading, pending: pending.map(function (request) {
+                return request.kind + ' ' + request.url + ' (' + (now - request.start) + ' ms)';
+            })
+        });
+    } else {
+        scaffoldNetwork.setTimeout(check, 50);
+    }
+};
+check();
@@ -0,0 +1,128 @@
+// Installs a tracker of in-flight fetch and XHR requests and short pending timers into the current document, once per
+// document. Exposes the tracker as scaffoldNetwork to any script this one is prepended to.
+// arguments[0]: the longest timer delay in ms that is tracked, or a negative number to not track timers
+var scaffoldNetwork = (function (maxTimerMillis) {
+    if (window.__scaffoldNetwork) {
+        window.__scaffoldNetwork.maxTimerMillis = maxTimerMillis;
+        return window.__scaffoldNetwork;
+    }
+    var tracker = window.__scaffoldNetwork = {
+        pending: {},
+        nextId: 0,
+        lastActivity: Date.now(),
+        maxTimerMillis: maxTimerMillis,
+        ignored: [],
+        // Kept so the tracker's own scripts can schedule work without being tracked themselves
+        setTimeout: window.setTimeout.bind(window)
+    };
+
+    var isIgnored = function (url) {
+        return tracker.ignored.some(function (pattern) {
+            return pattern.test(url);
+        });
+    };
+    var begin = function (kind, url) {
+        var id = ++tracker.nextId;
+        var ignored = isIgnored(url);
+        tracker.pending[id] = {kind: kind, url: url, start: Date.now(), ignored: ignored};
+        if (!ignored) {
+            tracker.lastActivity = Date.now();
+        }
+        return id;
+    };
+    var end = function (id) {
+        var request = tracker.pending[id];
+        if (request) {
+            delete tracker.pending[id];
+            if (!request.ignored) {
+                tracker.lastActivity = Date.now();
+            }
+        }
+    };
+
+    if (window.fetch) {
+        var originalFetch = window.fetch;
+        window.fetch = function (input) {
+            var id = begin('fetch', String(input && input.url ? input.url : input));
+            var response;
+            try {
+                response = originalFetch.apply(this, arguments);
+            } catch (e) {
+                end(id);
+                throw e;
+            }
+            response.then(function () {
+                end(id);
+            }, function () {
+                end(id);
+            });
+            return response;
+        };
+    }
+
+    var originalOpen = XMLHttpRequest.prototype.open;
+    var originalSend = XMLHttpRequest.prototype.send;
+    XMLHttpRequest.prototype.open = function (method, url) {
+        this.__scaffoldUrl = String(url);
+        return originalOpen.apply(this, arguments);
+    };
+    XMLHttpRequest.prototype.send = function () {
+        var id = begin('xhr', this.__scaffoldUrl);
+        this.addEventListener('loadend', function () {
+            end(id);
+        });
+        try {
+            return originalSend.apply(this, arguments);
+        } catch (e) {
+            end(id);
+            throw e;
+        }
+    };
+
+    var originalSetTimeout = window.setTimeout;
+    var originalClearTimeout = window.clearTimeout;
+    var timers = {};
+    // Set while a tracked timer's callback runs
+    var inTrackedTimer = false;
+    window.setTimeout = function (callback, delay) {
+        // Long timers are usually polling or analytics rather than work the page is about to finish, and a timer
+        // scheduled by a tracked timer is a loop, e.g. a carousel or a spinner, that would keep the page busy forever
+        if (typeof callback !== 'function' || tracker.maxTimerMillis < 0 || (delay || 0) > tracker.maxTimerMillis
+            || inTrackedTimer) {
+            return originalSetTimeout.apply(window, arguments);
+        }
+        var args = Array.prototype.slice.call(arguments, 2);
+        var id = begin('timer', (delay || 0) + 'ms');
+        var handle = originalSetTimeout.call(window, function () {
+            delete timers[handle];
+            inTrackedTimer = true;
+            try {
+                callback.apply(window, args);
+            } finally {
+                inTrackedTimer = false;
+                end(id);
+            }
+        }, delay);
+        timers[handle] = id;
+        return handle;
+    };
+    window.clearTimeout = function (handle) {
+        if (timers[handle] !== undefined) {
+            end(timers[handle]);
+            delete timers[handle];
+        }
+        return originalClearTimeout.apply(window, arguments);
+    };
+
+    // Requests that started before the tracker was installed can't be seen, but their completion still counts as activity
+    if (window.PerformanceObserver) {
+        try {
+            new PerformanceObserver(function () {
+                tracker.lastActivity = Date.now();
+            }).observe({entryTypes: ['resource']});
+        } catch (e) {
+            // Resource timing isn't observable in this browser
+        }
+    }
+    return tracker;
+})(arguments[0]);
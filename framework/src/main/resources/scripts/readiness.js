@@ -0,0 +1,74 @@
+// Waits for the page to be ready according to the first applicable readiness detector. Must be prepended with the
+// declaration of scaffoldDetectors.
+// arguments: map of origin to cached detector name, timeout in ms, callback
+// calls back with: {origin: <origin>, detector: <name>, ready: <boolean>, error: <message or null>, elapsed: <ms>}
+var cachedDetectors = arguments[0] || {};
+var timeoutMillis = arguments[1];
+var done = arguments[arguments.length - 1];
+
+var start = Date.now();
+var origin = window.location.origin;
+var finished = false;
+var detector = null;
+var timer = null;
+
+var finish = function (ready, error) {
+    if (finished) {
+        return;
+    }
+    finished = true;
+    if (timer !== null) {
+        clearTimeout(timer);
+    }
+    done({origin: origin, detector: detector ? detector.name : null, ready: ready, error: error || null, elapsed: Date.now() - start});
+};
+
+var findDetector = function () {
+    var cached = cachedDetectors[origin];
+    var i;
+    for (i = 0; cached && i < scaffoldDetectors.length; i++) {
+        if (scaffoldDetectors[i].name === cached) {
+            return scaffoldDetectors[i];
+        }
+    }
+    for (i = 0; i < scaffoldDetectors.length; i++) {
+        try {
+            if (scaffoldDetectors[i].probe()) {
+                return scaffoldDetectors[i];
+            }
+        } catch (e) {
+            // A probe that fails doesn't apply to this page
+        }
+    }
+    return null;
+};
+
+var waitForDetector = function () {
+    detector = findDetector();
+    if (detector === null) {
+        finish(true);
+        return;
+    }
+    try {
+        detector.wait(function (result) {
+            if (result && result.error) {
+                finish(false, result.error);
+            } else {
+                finish(true);
+            }
+        });
+    } catch (e) {
+        finish(false, String(e));
+    }
+};
+
+timer = setTimeout(function () {
+    finish(false);
+}, timeoutMillis);
+
+// Frameworks bootstrap as the document loads, so only probe once it has
+if (document.readyState === 'complete') {
+    waitForDetector();
+} else {
+    window.addEventListener('load', waitForDetector);
+}
@@ -0,0 +1,4 @@
+// Records what a failure snapshot needs to know about the page in a single round trip.
+// arguments: whether to include the DOM
+// returns: [url, title, DOM or null]
+return [window.location.href, document.title, arguments[0] ? document.documentElement.outerHTML : null];
@@ -0,0 +1,61 @@
+// Advances a virtualized or infinite-scroll list by one step and reports the items rendered afterwards.
+// arguments: container, item locator, key attribute (null to key by text), scroll (boolean), step ratio,
+//            idle window in ms, end-of-list grace period in ms, maximum wait in ms, callback
+var container = arguments[0];
+var locator = arguments[1];
+var keyAttribute = arguments[2];
+var scroll = arguments[3];
+var stepRatio = arguments[4];
+var idleMillis = arguments[5];
+var endGraceMillis = arguments[6];
+var maxWaitMillis = arguments[7];
+var done = arguments[arguments.length - 1];
+
+// The container itself may not scroll (e.g. the list grows the page), in which case the document does the scrolling
+var scroller = container.scrollHeight > container.clientHeight ? container : (document.scrollingElement || document.documentElement);
+var viewport = scroller === container ? container.clientHeight : window.innerHeight;
+
+var collect = function (moved, mutated) {
+    var elements = scaffoldFindAll(container, locator);
+    var items = [];
+    for (var i = 0; i < elements.length; i++) {
+        var key = keyAttribute ? elements[i].getAttribute(keyAttribute) : null;
+        if (key === null || key === undefined) {
+            key = (elements[i].textContent || '').trim();
+        }
+        items.push([elements[i], key]);
+    }
+    done({items: items, atEnd: !moved && !mutated});
+};
+
+if (!scroll) {
+    collect(true, true);
+    return;
+}
+
+var before = scroller.scrollTop;
+scroller.scrollTop = before + Math.max(1, Math.floor(viewport * stepRatio));
+var moved = scroller.scrollTop !== before;
+
+// Wait for the list to go quiet rather than sleeping: the step is over once no mutation has been seen for the idle
+// window. When the scroll didn't move we are at the bottom, so give an infinite-scroll loader longer to append more items
+var mutated = false;
+var start = Date.now();
+var lastMutation = start;
+var quietWindow = moved ? idleMillis : endGraceMillis;
+var observer = new MutationObserver(function () {
+    mutated = true;
+    lastMutation = Date.now();
+});
+observer.observe(container, {childList: true, subtree: true, characterData: true});
+
+var check = function () {
+    var now = Date.now();
+    if (now - lastMutation >= (mutated ? idleMillis : quietWindow) || now - start >= maxWaitMillis) {
+        observer.disconnect();
+        collect(moved, mutated);
+    } else {
+        setTimeout(check, Math.min(idleMillis, 50));
+    }
+};
+check();
@@ -0,0 +1,59 @@
+// Blocks until a condition holds, re-evaluating it inside the page whenever the DOM mutates and once per animation frame
+// instead of being polled over the wire.
+// arguments: condition spec, timeout in ms, callback
+// calls back with: {satisfied: <boolean>, error: <message or null>, elapsed: <ms>}
+var spec = arguments[0];
+var timeoutMillis = arguments[1];
+var done = arguments[arguments.length - 1];
+
+var start = Date.now();
+var finished = false;
+var observer = null;
+var frame = null;
+var timer = null;
+
+var finish = function (satisfied, error) {
+    if (finished) {
+        return;
+    }
+    finished = true;
+    if (observer !== null) {
+        observer.disconnect();
+    }
+    if (frame !== null) {
+        cancelAnimationFrame(frame);
+    }
+    if (timer !== null) {
+        clearTimeout(timer);
+    }
+    done({satisfied: satisfied, error: error || null, elapsed: Date.now() - start});
+};
+
+var check = function () {
+    try {
+        if (scaffoldEvaluate(spec)) {
+            finish(true);
+        }
+    } catch (e) {
+        finish(false, String(e));
+    }
+};
+
+check();
+if (!finished) {
+    observer = new MutationObserver(check);
+    observer.observe(document.documentElement, {childList: true, subtree: true, attributes: true, characterData: true});
+    // Transitions and animations change what's displayed without mutating the DOM, so also check once per frame
+    var onFrame = function () {
+        check();
+        if (!finished) {
+            frame = requestAnimationFrame(onFrame);
+        }
+    };
+    frame = requestAnimationFrame(onFrame);
+    // Animation frames don't run in background tabs, so the timeout is enforced by a timer
+    timer = setTimeout(function () {
+        check();
+        finish(false);
+    }, timeoutMillis);
+}
@@ -0,0 +1,165 @@
+package com.retailmenot.scaffold.artifacts;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArtifactStoreTests {
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        var bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testBase64IsDecodedIntoTheStore(@TempDir Path directory) throws IOException {
+        try (var store = new ArtifactStore(directory)) {
+            var random = new Random(42);
+            // Every padding length, and a MIME-style payload with line breaks
+            for (var length = 0; length < 10; length++) {
+                var payload = new byte[length];
+                random.nextBytes(payload);
+                var ref = store.appendBase64("test", "payload" + length, "bin", Base64.getEncoder().encodeToString(payload));
+                assertArrayEquals(payload, bytes(store.read(ref)));
+            }
+            var payload = new byte[1000];
+            random.nextBytes(payload);
+            var ref = store.appendBase64("test", "mime", "bin", Base64.getMimeEncoder().encodeToString(payload));
+            assertArrayEquals(payload, store.open(ref).readAllBytes());
+        }
+    }
+
+    @Test
+    public void testTextIsEncodedAsUtf8(@TempDir Path directory) throws IOException {
+        try (var store = new ArtifactStore(directory)) {
+            var text = "<html>caf\u00e9 \u20ac \ud83d\ude00</html>";
+            var ref = store.appendText("test", "source", "html", text);
+
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length, ref.getLength());
+            var output = new ByteArrayOutputStream();
+            store.transferTo(ref, Channels.newChannel(output));
+            assertEquals(text, output.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testArtifactsRollOverToNewSegments(@TempDir Path directory) throws IOException {
+        try (var store = new ArtifactStore(directory, 100)) {
+            var first = store.append("test", "first", "bin", ByteBuffer.wrap(new byte[60]));
+            var second = store.append("test", "second", "bin", ByteBuffer.wrap(new byte[60]));
+            var large = store.append("test", "large", "bin", ByteBuffer.wrap(new byte[500]));
+
+            assertNotEquals(first.getSegment(), second.getSegment());
+            assertEquals(500, store.read(large).remaining(), "Artifacts larger than a segment should get their own");
+            assertEquals(3, store.getArtifacts("test").size());
+        }
+
+        var lines = Files.readAllLines(directory.resolve("index.jsonl"));
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).contains("\"name\":\"first\""));
+
+        try (var store = new ArtifactStore(directory, 100)) {
+            var ref = store.append("test", "later", "bin", ByteBuffer.wrap(new byte[10]));
+            assertEquals("segment-00003.dat", ref.getSegment(), "A new store should not write over earlier segments");
+        }
+    }
+
+    @Test
+    public void testConcurrentAppends(@TempDir Path directory) {
+        try (var store = new ArtifactStore(directory, 4096)) {
+            var futures = new ArrayList<CompletableFuture<Void>>();
+            for (var thread = 0; thread < 8; thread++) {
+                var testName = "test" + thread;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (var i = 0; i < 100; i++) {
+                        store.appendText(testName, "log" + i, "txt", testName + ":" + i);
+                    }
+                }));
+            }
+            futures.forEach(CompletableFuture::join);
+
+            for (var thread = 0; thread < 8; thread++) {
+                var artifacts = store.getArtifacts("test" + thread);
+                assertEquals(100, artifacts.size());
+                for (var i = 0; i < 100; i++) {
+                    assertEquals("test" + thread + ":" + i, new String(bytes(store.read(artifacts.get(i))), StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidBase64AndClosedStore(@TempDir Path directory) {
+        var store = new ArtifactStore(directory);
+        assertThrows(IllegalArgumentException.class, () -> store.appendBase64("test", "bad", "bin", "abc"));
+        assertThrows(IllegalArgumentException.class, () -> store.appendBase64("test", "bad", "bin", "ab!d"));
+        assertThrows(IllegalArgumentException.class, () -> store.appendBase64("test", "bad", "bin", "ab=d"));
+        var ref = store.appendText("test", "kept", "txt", "still readable");
+        assertEquals(0, ref.getOffset(), "Invalid payloads should not leave a gap in the segment");
+        store.close();
+
+        assertThrows(IllegalStateException.class, () -> store.appendText("test", "late", "txt", "too late"));
+        assertEquals("still readable", new String(bytes(store.read(ref)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testClosedStoreCanBeLoaded(@TempDir Path directory) throws IOException {
+        ArtifactRef ref;
+        try (var store = new ArtifactStore(directory)) {
+            store.appendText("test", "source", "html", "<html></html>");
+            ref = store.appendText("test", "log", "txt", "console output");
+        }
+        assertEquals(27, Files.size(directory.resolve(ref.getSegment())), "The segment should be truncated to the bytes written");
+
+        var loaded = ArtifactStore.load(directory);
+        var artifacts = loaded.getArtifacts("test");
+        assertEquals(2, artifacts.size());
+        assertEquals("console output", new String(bytes(loaded.read(artifacts.get(1))), StandardCharsets.UTF_8));
+        assertThrows(IllegalStateException.class, () -> loaded.appendText("test", "late", "txt", "read only"));
+    }
+
+    @Test
+    public void testCloseWaitsForAppendsInProgress(@TempDir Path directory) {
+        var store = new ArtifactStore(directory, 4096);
+        var appended = new ConcurrentLinkedQueue<ArtifactRef>();
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (var thread = 0; thread < 4; thread++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    while (true) {
+                        appended.add(store.appendText("test", "log", "txt", "line"));
+                    }
+                } catch (IllegalStateException closed) {
+                    // The store was closed, stop appending
+                }
+            }));
+        }
+        while (appended.size() < 100) {
+            Thread.onSpinWait();
+        }
+        store.close();
+        futures.forEach(CompletableFuture::join);
+
+        assertEquals(appended.size(), ArtifactStore.load(directory).getArtifacts("test").size(),
+                "Every append that returned should have made it into the index");
+    }
+}
@@ -0,0 +1,180 @@
+package com.retailmenot.scaffold.metrics;
+
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.environment.config.DesiredCapabilitiesConfigurationProperties;
+import com.retailmenot.scaffold.models.GridSessionResponse;
+import com.retailmenot.scaffold.models.enums.BrowserType;
+import com.retailmenot.scaffold.models.enums.RunType;
+import com.retailmenot.scaffold.webdriver.ScreenshotRemoteDriver;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
+import com.retailmenot.scaffold.webdriver.WebDriverManager;
+import com.retailmenot.scaffold.webelements.ButtonWebElement;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.By;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.DriverCommand;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static com.retailmenot.scaffold.util.AutomationUtils.getUniqueString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CommandMetricsTests extends BaseUnitTest {
+
+    /**
+     * Starts a stand-in for a Selenium Grid hub that opens a session and answers every command of it with an empty value.
+     */
+    private static HttpServer startRemoteEnd() throws Exception {
+        var server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            var value = exchange.getRequestURI().getPath().endsWith("/session") ? "{\"browserName\":\"chrome\"}" : "\"\"";
+            var body = ("{\"sessionId\":\"remote-session\",\"status\":0,\"value\":" + value + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private static String urlOf(HttpServer server) {
+        return "http://localhost:" + server.getAddress().getPort() + "/wd/hub";
+    }
+
+    @Test
+    public void testHistogramBucketsAndQuantiles() {
+        var histogram = new LatencyHistogram();
+        for (var i = 0; i < 90; i++) {
+            histogram.record(Duration.ofMillis(3).toNanos());
+        }
+        for (var i = 0; i < 10; i++) {
+            histogram.record(Duration.ofMillis(700).toNanos());
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(Duration.ofMillis(700).toNanos(), histogram.getMaxNanos());
+        // 3 ms falls in the bucket up to 4.096 ms, and 700 ms in the one up to 1.048576 s, capped at the slowest latency
+        assertEquals(4_096_000, histogram.getQuantileNanos(0.5));
+        assertEquals(Duration.ofMillis(700).toNanos(), histogram.getQuantileNanos(0.95));
+        assertEquals(0, new LatencyHistogram().getQuantileNanos(0.5));
+    }
+
+    @Test
+    public void testPrometheusExport(@TempDir Path directory) throws Exception {
+        var metrics = new CommandMetrics();
+        var recorder = metrics.recorderFor("GRID", "Chrome", "http://node-1:5555");
+        recorder.record(DriverCommand.FIND_ELEMENT, Duration.ofMillis(3).toNanos());
+        recorder.record(DriverCommand.FIND_ELEMENT, Duration.ofSeconds(60).toNanos());
+
+        var labels = "command=\"findElement\",run_type=\"GRID\",browser=\"Chrome\",node=\"http://node-1:5555\"";
+        var text = metrics.toPrometheusText();
+        assertTrue(text.contains("# TYPE scaffold_webdriver_command_seconds histogram"));
+        assertTrue(text.contains("scaffold_webdriver_command_seconds_bucket{" + labels + ",le=\"0.004096\"} 1\n"), text);
+        assertTrue(text.contains("scaffold_webdriver_command_seconds_bucket{" + labels + ",le=\"+Inf\"} 2\n"), text);
+        assertTrue(text.contains("scaffold_webdriver_command_seconds_count{" + labels + "} 2\n"), text);
+
+        var file = directory.resolve("command-latency.prom");
+        metrics.writePrometheus(file);
+        assertEquals(text, Files.readString(file));
+
+        var record = metrics.toRecords().get(0);
+        assertEquals("commandLatency", record.get("type"));
+        assertEquals("http://node-1:5555", record.get("node"));
+        assertEquals(2L, record.get("count"));
+    }
+
+    @Test
+    public void testWrapperCommandsAreTimed() {
+        var recorder = new CommandMetrics().recorderFor("UNIT", "Chrome", null);
+        webDriverWrapper.setCommandRecorder(recorder);
+        mockWebDriver.setElementToFind(mockElement1);
+
+        webDriverWrapper.findElement(By.id("login"));
+        webDriverWrapper.getJavascriptExecutor().executeScript("return 1;");
+        new ButtonWebElement(By.id("login")).click();
+
+        var histograms = recorder.getHistograms();
+        var found = histograms.get(DriverCommand.FIND_ELEMENT).getCount();
+        assertTrue(found >= 1);
+        assertEquals(1, histograms.get(DriverCommand.EXECUTE_SCRIPT).getCount());
+        assertEquals(1, histograms.get(DriverCommand.CLICK_ELEMENT).getCount());
+
+        webDriverWrapper.setCommandRecorder(null);
+        webDriverWrapper.findElement(By.id("login"));
+        assertEquals(found, histograms.get(DriverCommand.FIND_ELEMENT).getCount(), "Commands should no longer be timed");
+    }
+
+    @Test
+    public void testRemoteCommandsAreTimed() throws Exception {
+        var server = startRemoteEnd();
+        try {
+            var driver = new ScreenshotRemoteDriver(new URL(urlOf(server)), new ChromeOptions());
+            var recorder = new CommandMetrics().recorderFor("GRID", "Chrome", null);
+            driver.setCommandRecorder(recorder);
+
+            driver.getTitle();
+            driver.getCurrentUrl();
+            var histograms = recorder.getHistograms();
+            assertEquals(1, histograms.get(DriverCommand.GET_TITLE).getCount());
+            assertEquals(1, histograms.get(DriverCommand.GET_CURRENT_URL).getCount());
+
+            driver.setCommandRecorder(null);
+            driver.getTitle();
+            assertEquals(1, histograms.get(DriverCommand.GET_TITLE).getCount(), "Commands should no longer be timed");
+            driver.quit();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testGridNodeIsTheNodeLabel() throws Exception {
+        var server = startRemoteEnd();
+        try {
+            var proxyId = "http://node-" + getUniqueString() + ":5555";
+            var grid = new RestTemplate() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+                    var response = new GridSessionResponse();
+                    response.setProxyId(proxyId);
+                    return (T) response;
+                }
+            };
+            var gridCapabilities = new DesiredCapabilitiesConfigurationProperties();
+            gridCapabilities.setRunType(RunType.GRID);
+            gridCapabilities.setBrowserType(BrowserType.Chrome);
+            gridCapabilities.setRemoteUrl(urlOf(server));
+            var manager = new WebDriverManager(gridCapabilities, grid);
+            var testName = "Grid node test " + getUniqueString();
+            // Swap the mock context for one whose driver runs on the stand-in Grid
+            TestContext.baseContext().removeContext();
+            TestContext.baseContext().setContext(manager, testName);
+            TestContext.baseContext().overrideSetting(ToggleSetting.COMMAND_METRICS_ENABLED, true);
+
+            manager.initDriver(testName);
+            manager.getWebDriverWrapper().getTitle();
+            manager.closeDriver();
+
+            assertEquals(proxyId, manager.getGridNode());
+            var timed = TestContext.baseContext().getCommandMetrics().toRecords().stream()
+                    .filter(record -> proxyId.equals(record.get("node")))
+                    .anyMatch(record -> DriverCommand.GET_TITLE.equals(record.get("command")));
+            assertTrue(timed, "The commands of the session should be labelled with its Grid node");
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.retailmenot.scaffold.results;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailmenot.scaffold.models.Step;
+import com.retailmenot.scaffold.models.TestInformation;
+import com.retailmenot.scaffold.models.enums.StepType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonLinesResultWriterTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testEachTestIsWrittenAsOneLine(@TempDir Path directory) throws Exception {
+        var file = directory.resolve("results.jsonl");
+        var start = Instant.parse("2019-03-01T10:00:00Z");
+        try (var writer = new JsonLinesResultWriter(file)) {
+            writer.accept("Passing Test", new TestInformation().runHost("host-1").startTime(start)
+                    .endTime(start.plusMillis(1500)).screenShotUrl("file:///passing.png")
+                    .testSteps(List.of(new Step(StepType.NAVIGATE, "https://example.com", null, start, Duration.ofMillis(250)),
+                            new Step(StepType.SELECT, "By.id: country", "Canada", start.plusMillis(300), null))));
+            writer.accept("Failing Test", new TestInformation().exception(new IllegalStateException("broken")));
+        }
+
+        var lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+
+        var passing = objectMapper.readValue(lines.get(0), Map.class);
+        assertEquals("Passing Test", passing.get("test"));
+        assertEquals("passed", passing.get("status"));
+        assertEquals("host-1", passing.get("runHost"));
+        assertEquals("2019-03-01T10:00:00Z", passing.get("startTime"));
+        assertEquals(1500, passing.get("durationMillis"));
+        assertEquals("file:///passing.png", passing.get("screenShotUrl"));
+        assertEquals(List.of(), passing.get("artifacts"));
+        var steps = (List<Map<?, ?>>) passing.get("steps");
+        assertEquals(2, steps.size());
+        assertEquals("NAVIGATE", steps.get(0).get("type"));
+        assertEquals("https://example.com", steps.get(0).get("target"));
+        assertEquals("2019-03-01T10:00:00Z", steps.get(0).get("startTime"));
+        assertEquals(250, steps.get(0).get("durationMillis"));
+        assertEquals(true, steps.get(0).get("completed"));
+        assertEquals("Canada", steps.get(1).get("detail"));
+        assertNull(steps.get(1).get("durationMillis"));
+        assertEquals(false, steps.get(1).get("completed"));
+
+        var failing = objectMapper.readValue(lines.get(1), Map.class);
+        assertEquals("failed", failing.get("status"));
+        assertNull(failing.get("durationMillis"));
+        var exception = (Map<?, ?>) failing.get("exception");
+        assertEquals(IllegalStateException.class.getName(), exception.get("type"));
+        assertEquals("broken", exception.get("message"));
+        assertTrue(((String) exception.get("stackTrace")).contains("JsonLinesResultWriterTests"));
+    }
+
+    @Test
+    public void testResultsAreFlushedBeforeClosing(@TempDir Path directory) throws Exception {
+        var file = directory.resolve("results.jsonl");
+        try (var writer = new JsonLinesResultWriter(file)) {
+            writer.accept("Running Test", new TestInformation());
+
+            // A run that crashes now still leaves the line behind
+            var deadline = System.currentTimeMillis() + 5000;
+            while (Files.size(file) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            var lines = Files.readAllLines(file);
+            assertEquals(1, lines.size());
+            assertEquals("Running Test", objectMapper.readValue(lines.get(0), Map.class).get("test"));
+        }
+    }
+
+    @Test
+    public void testResultsWrittenAfterClosingAreRejected(@TempDir Path directory) throws Exception {
+        var file = directory.resolve("results.jsonl");
+        var writer = new JsonLinesResultWriter(file);
+        writer.accept("Early Test", new TestInformation());
+        writer.close();
+
+        assertThrows(IllegalStateException.class, () -> writer.accept("Late Test", new TestInformation()),
+                "A result the writer thread will never write should not be dropped silently");
+        assertEquals(1, Files.readAllLines(file).size());
+    }
+
+    @Test
+    public void testWritingAppendsToExistingResults(@TempDir Path directory) throws Exception {
+        var file = directory.resolve("results.jsonl");
+        try (var writer = new JsonLinesResultWriter(file)) {
+            writer.accept("First Run", new TestInformation());
+        }
+        try (var writer = new JsonLinesResultWriter(file)) {
+            writer.accept("Second Run", new TestInformation());
+        }
+        assertEquals(2, Files.readAllLines(file).size());
+    }
+}
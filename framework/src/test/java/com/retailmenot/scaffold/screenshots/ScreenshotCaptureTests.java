@@ -0,0 +1,44 @@
+package com.retailmenot.scaffold.screenshots;
+
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.environment.config.DesiredCapabilitiesConfigurationProperties;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.WebDriverManager;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+
+import static com.retailmenot.scaffold.util.AutomationUtils.getUniqueString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScreenshotCaptureTests extends BaseUnitTest {
+
+    @Test
+    public void testCapturedScreenshotIsWritten() {
+        var testName = TestContext.baseContext().getWebDriverContext().getTestName();
+        webDriverWrapper.captureScreenShot("after login").awaitFile();
+
+        var url = TestContext.baseContext().completeTest(testName).join().getScreenShotUrl();
+        assertTrue(url.startsWith(Paths.get("target/screenshots").toAbsolutePath().toUri().toString()), url);
+    }
+
+    @Test
+    public void testCapturedScreenshotIsUploaded() {
+        var uploading = new DesiredCapabilitiesConfigurationProperties();
+        uploading.setRunType(desiredCapabilities.getRunType());
+        uploading.setBrowserType(desiredCapabilities.getBrowserType());
+        uploading.setUploadScreenshots(true);
+        var manager = new WebDriverManager(uploading, seleniumGridRestTemplate);
+        var testName = "Screenshot upload test " + getUniqueString();
+        // Swap the mock context for one whose driver uploads its screenshots
+        TestContext.baseContext().removeContext();
+        TestContext.baseContext().setContext(manager, testName);
+        manager.initDriver(testName);
+
+        manager.getWebDriverWrapper().captureScreenShot("after login").awaitFile();
+
+        var url = TestContext.baseContext().completeTest(testName).join().getScreenShotUrl();
+        assertTrue(url.startsWith(Paths.get("target/screenshot-uploads").toAbsolutePath().toUri().toString()),
+                "The screenshot should have been uploaded to the configured sink: " + url);
+    }
+}
@@ -0,0 +1,160 @@
+package com.retailmenot.scaffold.screenshots;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScreenshotPipelineTests {
+
+    private static BufferedImage image(int split) {
+        var image = new BufferedImage(320, 200, BufferedImage.TYPE_INT_ARGB);
+        var graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 320, 200);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(0, 0, split, 200);
+        graphics.fillRect(0, 0, 320, split / 2);
+        graphics.dispose();
+        return image;
+    }
+
+    private static String encode(BufferedImage image) throws IOException {
+        return Base64.getEncoder().encodeToString(ScreenshotPipeline.encode(image, ImageFormat.PNG, 1));
+    }
+
+    private static String screenshot() throws IOException {
+        return encode(image(160));
+    }
+
+    @Test
+    public void testScreenshotIsReEncodedAndWritten(@TempDir Path directory) throws IOException {
+        try (var pipeline = new ScreenshotPipeline(directory, ImageFormat.JPEG, 0.7f, 1, 1)) {
+            var artifact = pipeline.submit("My test()", "after login", screenshot());
+            var file = artifact.awaitFile();
+
+            assertEquals(directory.resolve("My_test_").resolve("after_login-1.jpg"), file);
+            var image = ImageIO.read(file.toFile());
+            assertEquals(320, image.getWidth());
+            var pixel = new Color(image.getRGB(10, 10));
+            assertTrue(pixel.getBlue() > 200 && pixel.getRed() < 50, "The screenshot content should survive: " + pixel);
+            try (var files = Files.list(file.getParent())) {
+                assertTrue(files.noneMatch(path -> path.toString().endsWith(".part")),
+                        "No partially written files should be left behind");
+            }
+        }
+    }
+
+    @Test
+    public void testPngIsWrittenAsIs(@TempDir Path directory) throws IOException {
+        var screenshot = screenshot();
+        try (var pipeline = new ScreenshotPipeline(directory, ImageFormat.PNG, 1, 1, 1)) {
+            var file = pipeline.submit("test", "shot", screenshot).awaitFile();
+            assertArrayEquals(Base64.getDecoder().decode(screenshot), Files.readAllBytes(file));
+        }
+    }
+
+    @Test
+    public void testCloseWaitsForPendingScreenshots(@TempDir Path directory) throws IOException {
+        var screenshot = screenshot();
+        var pipeline = new ScreenshotPipeline(directory, ImageFormat.JPEG, 0.5f, 2, 1);
+        var artifacts = new ScreenshotArtifact[10];
+        for (var i = 0; i < artifacts.length; i++) {
+            artifacts[i] = pipeline.submit("test", "shot", screenshot);
+        }
+        pipeline.close();
+
+        for (var artifact : artifacts) {
+            assertTrue(artifact.isDone());
+            assertTrue(Files.exists(artifact.awaitFile()));
+        }
+        assertThrows(IllegalStateException.class, () -> pipeline.submit("test", "late", screenshot));
+    }
+
+    @Test
+    public void testInvalidScreenshotFailsTheArtifact(@TempDir Path directory) throws IOException {
+        try (var pipeline = new ScreenshotPipeline(directory, ImageFormat.JPEG, 0.5f, 1, 1)) {
+            var artifact = pipeline.submit("test", "broken", Base64.getEncoder().encodeToString("not an image".getBytes()));
+            assertThrows(CompletionException.class, artifact::awaitFile);
+        }
+    }
+
+    @Test
+    public void testWorkHandedToAClosedPoolFails() {
+        var pool = ScreenshotPipeline.newPool("test", 1);
+        pool.shutdown();
+
+        var result = ScreenshotPipeline.runOn(pool, () -> "never");
+        assertTrue(result.isCompletedExceptionally(), "Rejected work should fail rather than leave its caller waiting");
+        assertThrows(CompletionException.class, result::join);
+    }
+
+    @Test
+    public void testPerceptualHash() throws IOException {
+        var original = PerceptualHash.of(image(160));
+        var reEncoded = PerceptualHash.of(ImageIO.read(new ByteArrayInputStream(
+                ScreenshotPipeline.encode(image(160), ImageFormat.JPEG, 0.3f))));
+        var different = PerceptualHash.of(image(40));
+
+        assertTrue(original.distance(reEncoded) <= ScreenshotDeduplicator.SIMILAR_MAX_DISTANCE,
+                "Re-encoding should hardly change the hash: " + original.distance(reEncoded));
+        assertTrue(original.distance(different) > 20, "Different content should change the hash: " + original.distance(different));
+        assertEquals(64, original.toString().length());
+        assertEquals(original, PerceptualHash.fromString(original.toString()));
+    }
+
+    @Test
+    public void testNearIdenticalScreenshotsAreStoredOnceWhenMatchingSimilar(@TempDir Path directory) throws IOException {
+        var deduplicator = new ScreenshotDeduplicator(ScreenshotDeduplicator.SIMILAR_MAX_DISTANCE);
+        var nearlyTheSame = image(160);
+        nearlyTheSame.setRGB(300, 190, Color.RED.getRGB());
+        try (var pipeline = new ScreenshotPipeline(directory, ImageFormat.JPEG, 0.7f, 2, 1).deduplicateWith(deduplicator)) {
+            var first = pipeline.submit("first test", "login", screenshot()).awaitFile();
+            var second = pipeline.submit("second test", "login", screenshot()).awaitFile();
+            var third = pipeline.submit("third test", "login", encode(nearlyTheSame)).awaitFile();
+            var different = pipeline.submit("fourth test", "error", encode(image(40))).awaitFile();
+
+            assertEquals(first, second);
+            assertEquals(first, third);
+            assertNotEquals(first, different);
+            assertEquals(directory.resolve(ScreenshotPipeline.UNIQUE_DIRECTORY), first.getParent());
+            try (var files = Files.list(first.getParent())) {
+                assertEquals(2, files.count());
+            }
+            assertEquals(2, deduplicator.getStoredCount());
+            assertEquals(2, deduplicator.getDuplicateCount());
+        }
+    }
+
+    @Test
+    public void testOnlyIdenticalScreenshotsAreStoredOnceByDefault(@TempDir Path directory) throws IOException {
+        var deduplicator = new ScreenshotDeduplicator();
+        var nearlyTheSame = image(160);
+        nearlyTheSame.setRGB(300, 190, Color.RED.getRGB());
+        assertEquals(PerceptualHash.of(image(160)), PerceptualHash.of(nearlyTheSame), "The difference should be too small for the hash");
+        try (var pipeline = new ScreenshotPipeline(directory, ImageFormat.JPEG, 0.7f, 2, 1).deduplicateWith(deduplicator)) {
+            var first = pipeline.submit("first test", "error", screenshot()).awaitFile();
+            var second = pipeline.submit("second test", "error", screenshot()).awaitFile();
+            var third = pipeline.submit("third test", "error", encode(nearlyTheSame)).awaitFile();
+
+            assertEquals(first, second);
+            assertNotEquals(first, third, "A screenshot that differs only where the hash can't see should be stored too");
+            assertEquals(2, deduplicator.getStoredCount());
+            assertEquals(1, deduplicator.getDuplicateCount());
+        }
+    }
+}
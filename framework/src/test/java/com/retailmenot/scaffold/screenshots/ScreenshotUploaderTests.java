@@ -0,0 +1,167 @@
+package com.retailmenot.scaffold.screenshots;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScreenshotUploaderTests {
+
+    private HttpServer server;
+    private final Map<String, byte[]> received = new ConcurrentHashMap<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        // A local stand-in for the screenshot service
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/screenshots/", exchange -> {
+            requests.incrementAndGet();
+            var body = exchange.getRequestBody().readAllBytes();
+            if (failuresLeft.getAndDecrement() > 0) {
+                exchange.sendResponseHeaders(503, -1);
+            } else {
+                received.put(exchange.getRequestURI().getPath(), body);
+                exchange.getResponseHeaders().add("Location", "/view" + exchange.getRequestURI().getRawPath());
+                exchange.sendResponseHeaders(201, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/screenshots/run-1");
+    }
+
+    private static Path screenshot(Path directory, String name, String content) throws IOException {
+        Files.createDirectories(directory);
+        return Files.write(directory.resolve(name), content.getBytes());
+    }
+
+    @Test
+    public void testScreenshotsAreUploadedOverHttp(@TempDir Path temporary) throws IOException {
+        var directory = temporary.resolve("my test");
+        try (var uploader = new ScreenshotUploader(new HttpScreenshotSink(endpoint()), 16, 4, 3, Duration.ofMillis(10))) {
+            var futures = new ArrayList<CompletableFuture<String>>();
+            for (var i = 0; i < 10; i++) {
+                futures.add(uploader.upload(new ScreenshotUpload("my test", "shot", screenshot(directory, "shot-" + i + ".jpg", "image " + i))));
+            }
+
+            for (var i = 0; i < 10; i++) {
+                var url = futures.get(i).join();
+                assertEquals(endpoint().resolve("/view/screenshots/run-1/my%20test/shot-" + i + ".jpg").toString(), url);
+                assertArrayEquals(("image " + i).getBytes(), received.get("/screenshots/run-1/my test/shot-" + i + ".jpg"));
+            }
+        }
+    }
+
+    @Test
+    public void testFailedBatchesAreRetried(@TempDir Path directory) throws IOException {
+        failuresLeft.set(2);
+        var file = screenshot(directory, "shot.png", "image");
+        try (var uploader = new ScreenshotUploader(new HttpScreenshotSink(endpoint()), 16, 4, 3, Duration.ofMillis(10))) {
+            uploader.upload(new ScreenshotUpload("test", "shot", file)).join();
+        }
+        assertEquals(3, requests.get());
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void testUploadsFailOnceAttemptsRunOut(@TempDir Path directory) throws IOException {
+        failuresLeft.set(10);
+        var file = screenshot(directory, "shot.png", "image");
+        try (var uploader = new ScreenshotUploader(new HttpScreenshotSink(endpoint()), 16, 4, 2, Duration.ofMillis(10))) {
+            var upload = uploader.upload(new ScreenshotUpload("test", "shot", file));
+            assertThrows(CompletionException.class, upload::join);
+            assertEquals(2, requests.get());
+        }
+    }
+
+    @Test
+    public void testEachFileIsUploadedOnce(@TempDir Path directory) throws IOException {
+        var target = directory.resolve("uploads");
+        var file = screenshot(directory.resolve("screenshots").resolve("unique"), "abc.jpg", "image");
+        var batches = new AtomicInteger();
+        try (var uploader = new ScreenshotUploader(batch -> {
+            batches.incrementAndGet();
+            return new LocalDirectorySink(target).upload(batch);
+        })) {
+            var first = uploader.upload(new ScreenshotUpload("first test", "login", file));
+            var second = uploader.upload(new ScreenshotUpload("second test", "login", file));
+
+            assertEquals(target.resolve("unique").resolve("abc.jpg").toUri().toString(), first.join());
+            assertEquals(first.join(), second.join());
+            assertEquals(first.join(), uploader.upload(new ScreenshotUpload("third test", "login", file)).join(),
+                    "A file uploaded recently should not be uploaded again");
+            assertTrue(Files.exists(target.resolve("unique").resolve("abc.jpg")));
+            assertEquals(1, batches.get());
+        }
+    }
+
+    @Test
+    public void testScreenshotsNotYetQueuedFailWhenClosing(@TempDir Path directory) throws IOException {
+        var uploading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var uploader = new ScreenshotUploader(batch -> {
+            uploading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return List.of("uploaded");
+        }, 1, 1, 1, Duration.ofMillis(10));
+        try {
+            var artifacts = new ArrayList<CompletableFuture<String>>();
+            for (var i = 0; i < 4; i++) {
+                var file = CompletableFuture.completedFuture(screenshot(directory, "shot-" + i + ".png", "image " + i));
+                artifacts.add(uploader.upload(new ScreenshotArtifact("test", "shot", Instant.now(), file)));
+                if (i == 0) {
+                    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> uploading.await());
+                }
+            }
+
+            // The first screenshot holds up the sink and the second fills the queue, so the others can't be queued
+            Thread.currentThread().interrupt();
+            uploader.close();
+            assertTrue(Thread.interrupted());
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertThrows(CompletionException.class, artifacts.get(2)::join);
+                assertThrows(CompletionException.class, artifacts.get(3)::join);
+            });
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.retailmenot.scaffold.screenshots;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VisualComparatorTests {
+
+    private static BufferedImage page(int width, int height, Rectangle... boxes) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLACK);
+        for (var box : boxes) {
+            graphics.fill(box);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    @Test
+    public void testIdenticalImagesMatch() {
+        var comparison = new VisualComparator().compare(page(300, 200, new Rectangle(10, 10, 50, 50)),
+                page(300, 200, new Rectangle(10, 10, 50, 50)));
+
+        assertEquals(0, comparison.getDifferingPixels());
+        assertEquals(300 * 200, comparison.getComparedPixels());
+        assertTrue(comparison.matches(0));
+    }
+
+    @Test
+    public void testDifferencesAreMasked() {
+        var comparison = new VisualComparator().tileSize(32)
+                .compare(page(300, 200), page(300, 200, new Rectangle(100, 50, 20, 10)));
+
+        assertEquals(200, comparison.getDifferingPixels());
+        assertTrue(comparison.isDifferent(105, 55));
+        assertFalse(comparison.isDifferent(5, 5));
+        assertEquals(0xFFFF0000, comparison.getDiffMask().getRGB(105, 55));
+        assertFalse(comparison.matches(0.001));
+    }
+
+    @Test
+    public void testIgnoredRegionsAreNotCompared() {
+        var comparison = new VisualComparator()
+                .ignoring(new Rectangle(90, 40, 40, 30))
+                .compare(page(300, 200), page(300, 200, new Rectangle(100, 50, 20, 10)));
+
+        assertEquals(0, comparison.getDifferingPixels());
+        assertEquals(300 * 200 - 40 * 30, comparison.getComparedPixels());
+    }
+
+    @Test
+    public void testAntiAliasingTolerance() {
+        var baseline = page(300, 200, new Rectangle(100, 50, 40, 40));
+        var shifted = page(300, 200, new Rectangle(101, 50, 40, 40));
+
+        assertEquals(0, new VisualComparator().compare(baseline, shifted).getDifferingPixels(),
+                "A one pixel shift should be tolerated");
+        assertEquals(80, new VisualComparator().antiAliasingTolerance(false).compare(baseline, shifted).getDifferingPixels());
+    }
+
+    @Test
+    public void testComparisonStopsOnceTheBudgetIsExceeded() {
+        var comparison = new VisualComparator().tileSize(16).differenceBudget(100)
+                .compare(page(400, 400), page(400, 400, new Rectangle(0, 0, 400, 400)));
+
+        assertTrue(comparison.isBudgetExceeded());
+        assertTrue(comparison.getDifferingPixels() < 400 * 400, "Not every tile should have been compared");
+        assertFalse(comparison.matches(1));
+    }
+
+    @Test
+    public void testSizeDifferencesCount() {
+        var comparison = new VisualComparator().compare(page(300, 200), page(300, 210));
+        assertEquals(300 * 10, comparison.getDifferingPixels());
+    }
+
+    @Test
+    public void testMissingBaselineIsSaved(@TempDir Path directory) throws IOException {
+        var baseline = directory.resolve("baselines").resolve("home.png");
+        var screenshot = Base64.getEncoder().encodeToString(
+                ScreenshotPipeline.encode(page(300, 200, new Rectangle(10, 10, 50, 50)), ImageFormat.PNG, 1));
+        var comparator = new VisualComparator();
+
+        assertTrue(comparator.compare(baseline, screenshot).isNewBaseline());
+        assertTrue(Files.exists(baseline));
+
+        comparator.forgetBaseline(baseline);
+        var comparison = comparator.compare(baseline, screenshot);
+        assertFalse(comparison.isNewBaseline());
+        assertTrue(comparison.matches(0));
+    }
+
+    @Test
+    public void testOnlyRecentBaselinesAreCached(@TempDir Path directory) throws IOException {
+        var home = directory.resolve("home.png");
+        var cart = directory.resolve("cart.png");
+        var before = Base64.getEncoder().encodeToString(ScreenshotPipeline.encode(page(300, 200), ImageFormat.PNG, 1));
+        var comparator = new VisualComparator().cachedBaselines(1);
+        comparator.compare(home, before);
+        comparator.compare(cart, before);
+
+        // Home was dropped from the cache when cart was compared, so the updated file is read
+        var after = ScreenshotPipeline.encode(page(300, 200, new Rectangle(10, 10, 50, 50)), ImageFormat.PNG, 1);
+        Files.write(home, after);
+        assertEquals(50 * 50, comparator.compare(home, before).getDifferingPixels());
+    }
+}
@@ -0,0 +1,85 @@
+package com.retailmenot.scaffold.snapshots;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.results.JsonLinesResultWriter;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FailureSnapshotExtensionTests extends BaseUnitTest {
+
+    private SnapshotBuffer buffer;
+    private String testName;
+
+    /**
+     * An {@link ExtensionContext} for a test that ended with the given exception, or passed if it is null.
+     */
+    private static ExtensionContext finishedTest(Throwable exception) {
+        return (ExtensionContext) Proxy.newProxyInstance(ExtensionContext.class.getClassLoader(),
+                new Class<?>[]{ExtensionContext.class}, (proxy, method, arguments) -> {
+                    if (method.getName().equals("getExecutionException")) {
+                        return Optional.ofNullable(exception);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @BeforeEach
+    public void recordSnapshot() {
+        buffer = new SnapshotBuffer(5, SnapshotLevel.LOCATION);
+        TestContext.baseContext().getWebDriverContext().snapshots(buffer);
+        testName = TestContext.baseContext().getWebDriverContext().getTestName();
+        mockWebDriver.addScriptResult(Arrays.asList("https://example.com/cart", "Cart", null));
+        buffer.record(webDriverWrapper, "click", "checkout");
+    }
+
+    @Test
+    public void testFailingTestIsRecorded() {
+        var failure = new AssertionError("The cart should not be empty");
+        new FailureSnapshotExtension().afterTestExecution(finishedTest(failure));
+
+        assertSame(failure, TestContext.baseContext().getExceptionForTest(testName));
+        assertEquals(1, TestContext.baseContext().getArtifactsForTest(testName).size(),
+                "The timeline of the snapshots should have been persisted");
+        assertTrue(buffer.getSnapshots().isEmpty());
+    }
+
+    @Test
+    public void testPassingTestIsNotRecorded() {
+        new FailureSnapshotExtension().afterTestExecution(finishedTest(null));
+
+        assertNull(TestContext.baseContext().getExceptionForTest(testName));
+        assertTrue(TestContext.baseContext().getArtifactsForTest(testName).isEmpty());
+        assertTrue(buffer.getSnapshots().isEmpty());
+    }
+
+    @Test
+    public void testFailingTestIsWrittenAsFailed(@TempDir Path directory) throws Exception {
+        // A test failing in its body, not in its setup, is only known to have failed through the extension
+        new FailureSnapshotExtension().afterTestExecution(finishedTest(new AssertionError("The cart should not be empty")));
+
+        var file = directory.resolve("results.jsonl");
+        try (var writer = new JsonLinesResultWriter(file)) {
+            writer.accept(testName, TestContext.baseContext().completeTest(testName).join());
+        }
+
+        var result = new ObjectMapper().readValue(Files.readAllLines(file).get(0), Map.class);
+        assertEquals("failed", result.get("status"));
+        assertEquals(AssertionError.class.getName(), ((Map<?, ?>) result.get("exception")).get("type"));
+    }
+}
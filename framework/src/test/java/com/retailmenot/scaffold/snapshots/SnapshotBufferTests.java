@@ -0,0 +1,86 @@
+package com.retailmenot.scaffold.snapshots;
+
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.artifacts.ArtifactStore;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webelements.InputWebElement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.By;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnapshotBufferTests extends BaseUnitTest {
+
+    private static String gunzip(InputStream input) throws IOException {
+        try (var gzip = new GZIPInputStream(input)) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testOnlyTheMostRecentSnapshotsAreKept() {
+        var buffer = new SnapshotBuffer(3, SnapshotLevel.DOM);
+        for (var i = 1; i <= 5; i++) {
+            mockWebDriver.addScriptResult(Arrays.asList("https://example.com/" + i, "Page " + i, "<html>" + i + "</html>"));
+            buffer.record(webDriverWrapper, "click", "button " + i);
+        }
+
+        var snapshots = buffer.getSnapshots();
+        assertEquals(3, snapshots.size());
+        assertEquals("button 3", snapshots.get(0).getElement());
+        assertEquals("https://example.com/5", snapshots.get(2).getUrl());
+        assertEquals("Page 5", snapshots.get(2).getTitle());
+        assertEquals("<html>5</html>", snapshots.get(2).getDom());
+
+        buffer.clear();
+        assertTrue(buffer.getSnapshots().isEmpty());
+    }
+
+    @Test
+    public void testInteractionsRecordSnapshots() {
+        var buffer = new SnapshotBuffer(10, SnapshotLevel.LOCATION);
+        TestContext.baseContext().getWebDriverContext().snapshots(buffer);
+        mockWebDriver.setElementToFind(mockElement1);
+        mockWebDriver.addScriptResult(Arrays.asList("https://example.com/login", "Login", null));
+
+        new InputWebElement(By.cssSelector("input")).sendKeys("user");
+
+        var snapshots = buffer.getSnapshots();
+        assertEquals(1, snapshots.size());
+        assertEquals("sendKeys", snapshots.get(0).getAction());
+        assertEquals("Login", snapshots.get(0).getTitle());
+        assertFalse(snapshots.get(0).hasDom());
+        assertNull(snapshots.get(0).getDom());
+    }
+
+    @Test
+    public void testSnapshotsArePersistedToTheArtifactStore(@TempDir Path directory) throws IOException {
+        var buffer = new SnapshotBuffer(5, SnapshotLevel.DOM);
+        mockWebDriver.addScriptResult(Arrays.asList("https://example.com/cart", "Cart", "<html>cart</html>"));
+        buffer.record(webDriverWrapper, "click", "checkout");
+        mockWebDriver.addScriptResult(Arrays.asList("https://example.com/checkout", "Checkout", "<html>checkout</html>"));
+        buffer.record(webDriverWrapper, "sendKeys", "card number");
+
+        try (var store = new ArtifactStore(directory)) {
+            var refs = buffer.persist(store, "failing test");
+
+            assertEquals(3, refs.size());
+            var timeline = new String(store.open(refs.get(0)).readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(timeline.contains("1. ") && timeline.contains("click checkout on https://example.com/cart (Cart)"), timeline);
+            assertEquals("snapshot-2-sendKeys", refs.get(2).getName());
+            assertEquals("<html>checkout</html>", gunzip(store.open(refs.get(2))));
+            assertEquals(refs, store.getArtifacts("failing test"));
+        }
+    }
+}
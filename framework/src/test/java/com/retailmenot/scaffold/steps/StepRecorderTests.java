@@ -0,0 +1,81 @@
+package com.retailmenot.scaffold.steps;
+
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.models.enums.StepType;
+import com.retailmenot.scaffold.webelements.InputWebElement;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StepRecorderTests extends BaseUnitTest {
+
+    @Test
+    public void testOnlyTheMostRecentStepsAreKept() {
+        var recorder = new StepRecorder(3);
+        for (var i = 1; i <= 5; i++) {
+            recorder.finish(recorder.start(StepType.CLICK, "button " + i, null));
+        }
+
+        var steps = recorder.getSteps();
+        assertEquals(3, steps.size());
+        assertEquals("button 3", steps.get(0).getTarget());
+        assertEquals("button 5", steps.get(2).getTarget());
+        assertEquals(2, recorder.getDroppedCount());
+
+        var drained = recorder.drain();
+        assertEquals(3, drained.size());
+        assertEquals("button 3", drained.get(0).getTarget());
+        assertTrue(recorder.getSteps().isEmpty(), "Draining should clear the recorder");
+    }
+
+    @Test
+    public void testUnfinishedStepsAreReported() {
+        var recorder = new StepRecorder(4);
+        var overwritten = recorder.start(StepType.WAIT, "By.id: spinner", "invisible");
+        recorder.start(StepType.SELECT, "By.id: country", "Canada");
+        recorder.finish(recorder.start(StepType.NAVIGATE, "https://example.com", null));
+
+        var steps = recorder.getSteps();
+        assertFalse(steps.get(0).isCompleted());
+        assertNull(steps.get(0).getDuration());
+        assertEquals("Canada", steps.get(1).getDetail());
+        assertTrue(steps.get(2).isCompleted());
+        assertTrue(steps.get(0).toString().endsWith("did not finish"));
+
+        // Ending a step that is no longer held must not touch the step now in its slot
+        recorder.clear();
+        recorder.start(StepType.CLICK, "link", null);
+        recorder.finish(overwritten + 4);
+        assertFalse(recorder.getSteps().get(0).isCompleted());
+    }
+
+    @Test
+    public void testInteractionsAreRecorded() {
+        StepRecorder.current().clear();
+        mockWebDriver.setElementToFind(mockElement1);
+
+        webDriverWrapper.get("https://example.com/login");
+        var input = new InputWebElement(By.cssSelector("input"));
+        input.clear();
+        input.sendKeys("secret");
+        mockWebDriver.setElementToFind(null);
+        assertThrows(RuntimeException.class, () -> new InputWebElement(By.cssSelector("missing")).sendKeys("user"));
+
+        var steps = StepRecorder.current().getSteps();
+        assertEquals(StepType.NAVIGATE, steps.get(0).getType());
+        assertEquals("https://example.com/login", steps.get(0).getTarget());
+        assertEquals(StepType.CLEAR, steps.get(1).getType());
+        assertEquals(StepType.SEND_KEYS, steps.get(2).getType());
+        assertTrue(steps.get(2).isCompleted());
+        assertFalse(steps.get(2).toString().contains("secret"), "Typed keys should not be recorded");
+        var failed = steps.get(steps.size() - 1);
+        assertEquals(StepType.SEND_KEYS, failed.getType());
+        assertFalse(failed.isCompleted());
+        StepRecorder.current().clear();
+    }
+}
@@ -0,0 +1,140 @@
+package com.retailmenot.scaffold.util;
+
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.util.interfaces.PollingStrategy;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebElement;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AutomationWaitTests extends BaseUnitTest {
+
+    @Test
+    public void testInPageConditionSatisfied() {
+        var result = new HashMap<String, Object>();
+        result.put("satisfied", true);
+        mockWebDriver.addAsyncScriptResult(result);
+
+        // Nothing can be found on the mock page, so this only passes if the page's answer is trusted
+        assertDoesNotThrow(() -> webDriverWrapper.getAutomationWait().waitForInPageCondition(InPageCondition.displayed(By.id("element1"))));
+    }
+
+    @Test
+    public void testInPageConditionTimesOut() {
+        var result = new HashMap<String, Object>();
+        result.put("satisfied", false);
+        mockWebDriver.addAsyncScriptResult(result);
+
+        assertThrows(TimeoutException.class,
+                () -> webDriverWrapper.getAutomationWait().setCustomTimeout(1L).waitForInPageCondition(InPageCondition.present(By.id("element1"))));
+    }
+
+    @Test
+    public void testInPageConditionFallsBackToPolling() {
+        List<WebElement> elementList = new ArrayList<>();
+        elementList.add(mockElement1);
+        mockWebDriver.setElementsToFind(elementList);
+
+        // The mock driver doesn't run the script, so the condition has to be polled from the test side instead
+        assertDoesNotThrow(() -> webDriverWrapper.getAutomationWait().waitForInPageCondition(InPageCondition.present(By.id("element1"))));
+    }
+
+    @Test
+    public void testUntilIgnoresNotFound() {
+        var attempts = new AtomicInteger();
+        var spec = WaitSpec.of(Duration.ofSeconds(5)).withPolling(PollingStrategy.fixed(Duration.ofMillis(10)));
+
+        var result = webDriverWrapper.getAutomationWait().until(spec, driver -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new NoSuchElementException("not yet");
+            }
+            return "found";
+        });
+        assertEquals("found", result);
+        assertEquals(3, attempts.get(), "The condition should be evaluated until it stops throwing");
+    }
+
+    @Test
+    public void testUntilTimesOut() {
+        var spec = WaitSpec.of(Duration.ofMillis(100)).withPolling(PollingStrategy.fixed(Duration.ofMillis(10)));
+        assertThrows(TimeoutException.class, () -> webDriverWrapper.getAutomationWait().until(spec, driver -> false));
+    }
+
+    @Test
+    public void testUntilRethrowsUnexpectedExceptions() {
+        var spec = WaitSpec.of(Duration.ofSeconds(5));
+        assertThrows(IllegalStateException.class, () -> webDriverWrapper.getAutomationWait().until(spec, driver -> {
+            throw new IllegalStateException("broken condition");
+        }));
+    }
+
+    @Test
+    public void testPollingStrategies() {
+        var exponential = PollingStrategy.exponential(Duration.ofMillis(50), 2, Duration.ofMillis(300));
+        assertEquals(Duration.ofMillis(50), exponential.nextInterval(1, Duration.ZERO));
+        assertEquals(Duration.ofMillis(200), exponential.nextInterval(3, Duration.ZERO));
+        assertEquals(Duration.ofMillis(300), exponential.nextInterval(10, Duration.ZERO));
+
+        var adaptive = PollingStrategy.adaptive(Duration.ofMillis(50), Duration.ofSeconds(1));
+        assertEquals(Duration.ofMillis(50), adaptive.nextInterval(1, Duration.ofMillis(5)));
+        assertEquals(Duration.ofMillis(400), adaptive.nextInterval(1, Duration.ofMillis(400)));
+        assertEquals(Duration.ofSeconds(1), adaptive.nextInterval(1, Duration.ofSeconds(3)));
+    }
+
+    @Test
+    public void testSpecsAreImmutable() {
+        var spec = WaitSpec.defaults();
+        var modified = spec.withTimeout(Duration.ofSeconds(1)).ignoring(IllegalStateException.class);
+
+        assertEquals(Duration.ofSeconds(10), spec.getTimeout());
+        assertEquals(1, spec.getIgnoredExceptions().size());
+        assertEquals(2, modified.getIgnoredExceptions().size());
+    }
+
+    @Test
+    public void testCompositeConditionsAreEvaluatedTogether() {
+        mockWebDriver.addScriptResult(List.of(false, false));
+        mockWebDriver.addScriptResult(List.of(false, true));
+
+        assertEquals(1, webDriverWrapper.getAutomationWait().waitForAny(
+                InPageCondition.displayed(By.id("header")), InPageCondition.absent(By.id("spinner"))));
+
+        mockWebDriver.addScriptResult(List.of(true, true));
+        assertDoesNotThrow(() -> webDriverWrapper.getAutomationWait().waitForAll(
+                InPageCondition.displayed(By.id("header")), InPageCondition.absent(By.id("spinner"))));
+    }
+
+    @Test
+    public void testCompositeTimeoutReportsBlockingCondition() {
+        var spec = WaitSpec.of(Duration.ofMillis(200)).withPolling(PollingStrategy.fixed(Duration.ofMillis(20)));
+        var conditions = List.of(InPageCondition.absent(By.id("spinner")), InPageCondition.present(By.id("grid")));
+
+        // The mock driver doesn't run the script, so both conditions are evaluated from the test side
+        var exception = assertThrows(TimeoutException.class,
+                () -> webDriverWrapper.getAutomationWait().waitForConditions(spec, 2, conditions));
+        assertTrue(exception.getMessage().contains("[held] absent [By.id: spinner]"), exception.getMessage());
+        assertTrue(exception.getMessage().contains("[BLOCKING] present [By.id: grid]"), exception.getMessage());
+    }
+
+    @Test
+    public void testCompositeRequiredCountIsValidated() {
+        var wait = webDriverWrapper.getAutomationWait();
+        var conditions = List.of(InPageCondition.absent(By.id("spinner")), InPageCondition.present(By.id("grid")));
+
+        assertThrows(IllegalArgumentException.class, () -> wait.waitForConditions(WaitSpec.defaults(), 0, conditions));
+        assertThrows(IllegalArgumentException.class, () -> wait.waitForConditions(WaitSpec.defaults(), 3, conditions));
+        assertThrows(IllegalArgumentException.class, wait::waitForAny);
+    }
+}
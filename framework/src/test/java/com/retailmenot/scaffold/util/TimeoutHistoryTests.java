@@ -0,0 +1,80 @@
+package com.retailmenot.scaffold.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimeoutHistoryTests {
+
+    private static final Duration CEILING = Duration.ofSeconds(10);
+
+    @Test
+    public void testTimeoutFollowsHistory(@TempDir Path directory) throws IOException {
+        var history = new TimeoutHistory(directory.resolve("history.json"));
+        for (var i = 0; i < 20; i++) {
+            history.record("fast", Duration.ofMillis(100));
+            history.record("slow", Duration.ofSeconds(4));
+            history.record("very slow", Duration.ofSeconds(9));
+        }
+
+        assertEquals(Duration.ofSeconds(2), history.getTimeout("fast", CEILING), "Fast locators should get the minimum timeout");
+        assertEquals(Duration.ofSeconds(7), history.getTimeout("slow", CEILING), "The timeout should be the p95 plus a margin");
+        assertEquals(CEILING, history.getTimeout("very slow", CEILING), "The timeout should never exceed the ceiling");
+    }
+
+    @Test
+    public void testTooFewSamplesUseTheCeiling(@TempDir Path directory) throws IOException {
+        var history = new TimeoutHistory(directory.resolve("history.json"));
+        history.record("new", Duration.ofMillis(100));
+
+        assertEquals(CEILING, history.getTimeout("new", CEILING));
+        assertEquals(CEILING, history.getTimeout("unknown", CEILING));
+    }
+
+    @Test
+    public void testHistoryIsSavedAndLoaded(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("history.json");
+        var history = new TimeoutHistory(file);
+        for (var i = 0; i < 150; i++) {
+            history.record("slow", Duration.ofSeconds(i < 50 ? 1 : 4));
+        }
+        history.save();
+
+        var loaded = new TimeoutHistory(file);
+        assertEquals(Duration.ofSeconds(7), loaded.getTimeout("slow", CEILING),
+                "Only the most recent samples should be kept and they should survive a save");
+    }
+
+    @Test
+    public void testTimeoutFallsBackToTheCeiling(@TempDir Path directory) {
+        var history = new TimeoutHistory(directory.resolve("history.json"));
+        for (var i = 0; i < 20; i++) {
+            history.record("flaky", Duration.ofMillis(100));
+        }
+        history.recordTimeout("flaky");
+
+        assertEquals(CEILING, history.getTimeout("flaky", CEILING), "A timeout should give the next wait the full ceiling");
+    }
+
+    @Test
+    public void testUnusedLocatorsAreNotSaved(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("history.json");
+        Files.writeString(file, "{\"stale\":{\"lastUsed\":0,\"durations\":[100,100,100,100,100]},"
+                + "\"legacy\":[100,100,100,100,100]}");
+        var history = new TimeoutHistory(file);
+        assertEquals(Duration.ofSeconds(2), history.getTimeout("legacy", CEILING), "Histories without a time of use should load");
+        history.save();
+
+        var saved = Files.readString(file);
+        assertFalse(saved.contains("stale"), "Locators not waited on for a long time should be left out: " + saved);
+        assertTrue(saved.contains("legacy"), saved);
+    }
+}
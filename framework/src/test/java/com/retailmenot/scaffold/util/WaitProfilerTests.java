@@ -0,0 +1,86 @@
+package com.retailmenot.scaffold.util;
+
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WaitProfilerTests extends BaseUnitTest {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testWaitsAreAggregated() {
+        var profiler = new WaitProfiler();
+        profiler.record("test 1", "By.id: login", "displayed", WaitProfiler.Outcome.SATISFIED, ONE_SECOND);
+        profiler.record("test 1", "By.id: login", "displayed", WaitProfiler.Outcome.TIMED_OUT, 3 * ONE_SECOND);
+        profiler.record("test 2", "By.id: login", "displayed", WaitProfiler.Outcome.SATISFIED, ONE_SECOND);
+
+        var test = profiler.getTestStatistics("test 1");
+        assertEquals(2, test.getCount());
+        assertEquals(1, test.getTimeouts());
+        assertEquals(Duration.ofSeconds(4), test.getTotal());
+        assertEquals(Duration.ofSeconds(3), test.getMax());
+
+        var locator = profiler.getLocatorStatistics("By.id: login");
+        assertEquals(3, locator.getCount());
+        assertEquals(Duration.ofSeconds(5), locator.getTotal());
+    }
+
+    @Test
+    public void testTopWaitsAreSortedByTotalTime() {
+        var profiler = new WaitProfiler();
+        profiler.record("test", "fast", "displayed", WaitProfiler.Outcome.SATISFIED, ONE_SECOND);
+        profiler.record("test", "slow", "displayed", WaitProfiler.Outcome.SATISFIED, 5 * ONE_SECOND);
+        profiler.record("test", "medium", "displayed", WaitProfiler.Outcome.SATISFIED, 2 * ONE_SECOND);
+
+        var top = profiler.getTopWaits(2);
+        assertEquals(2, top.size());
+        assertTrue(top.get(0).getName().startsWith("slow"));
+        assertTrue(top.get(1).getName().startsWith("medium"));
+    }
+
+    @Test
+    public void testConcurrentRecording() {
+        var profiler = new WaitProfiler();
+        IntStream.range(0, 10_000).parallel().forEach(i ->
+                profiler.record("test " + (i % 4), "locator", "displayed", WaitProfiler.Outcome.SATISFIED, 1));
+
+        assertEquals(10_000, profiler.getLocatorStatistics("locator").getCount());
+        assertEquals(2_500, profiler.getTestStatistics("test 0").getCount());
+    }
+
+    @Test
+    public void testNestedWaitsAreRecordedOnce() {
+        var context = TestContext.baseContext();
+        context.overrideSetting(ToggleSetting.WAIT_PROFILING_ENABLED, true);
+        var testName = context.getWebDriverContext().getTestName();
+
+        WaitProfiler.profile("By.id: nested", "loaded", () ->
+                WaitProfiler.profile("By.id: nested", "displayed", () -> true));
+
+        assertEquals(1, context.getWaitProfiler().getTestStatistics(testName).getCount(),
+                "The inner wait is part of the outer one and should not be counted again");
+        assertEquals(1, context.getWaitProfiler().getLocatorStatistics("By.id: nested").getCount());
+    }
+
+    @Test
+    public void testCompletedTestIsDropped() {
+        var profiler = new WaitProfiler();
+        profiler.testStarted("test");
+        profiler.record("test", "locator", "displayed", WaitProfiler.Outcome.SATISFIED, ONE_SECOND);
+        profiler.testFinished("test");
+
+        profiler.testCompleted("test");
+        assertNull(profiler.getTestStatistics("test"));
+        assertEquals(Duration.ZERO, profiler.getTestDuration("test"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.retailmenot.scaffold.webdrivercontext;
+
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.exception.WebDriverContextException;
+import com.retailmenot.scaffold.webdriver.ContextHandle;
+import com.retailmenot.scaffold.webdriver.ContextPropagatingExecutor;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
+import com.retailmenot.scaffold.webelements.InputWebElement;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContextPropagationTests extends BaseUnitTest {
+
+    @Test
+    public void testWrappedWorkRunsWithTheTestsContext() throws Exception {
+        var testName = TestContext.baseContext().getWebDriverContext().getTestName();
+        TestContext.baseContext().overrideSetting(ToggleSetting.SCRIPTED_CLICK_ENABLED, true);
+        var handle = ContextHandle.capture();
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var seen = executor.submit(handle.wrap(() -> TestContext.baseContext().getWebDriverContext().getTestName())).get();
+            assertEquals(testName, seen);
+            var settings = CompletableFuture.supplyAsync(handle.wrapSupplier(() -> TestContext.baseContext().getSettings()), executor).get();
+            assertTrue(settings.isEnabled(ToggleSetting.SCRIPTED_CLICK_ENABLED), "Overrides should travel with the context");
+
+            // Once the work is done, the pooled thread no longer has the test's driver
+            var leftOver = executor.submit(() -> TestContext.baseContext().getWebDriverContext().getWebDriverManager()).get();
+            assertNull(leftOver);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(testName, TestContext.baseContext().getWebDriverContext().getTestName());
+    }
+
+    @Test
+    public void testElementsCanBeUsedFromParallelStreams() {
+        mockWebDriver.setElementToFind(mockElement1);
+        var handle = ContextHandle.capture();
+
+        var elements = List.of("first", "second", "third", "fourth").parallelStream()
+                .map(handle.wrapFunction(name -> new InputWebElement(By.name(name)).getWebElement()))
+                .collect(Collectors.toList());
+
+        elements.forEach(element -> assertSame(mockElement1, element));
+        assertSame(webDriverContextImpl, TestContext.baseContext().getWebDriverContext().getWebDriverManager());
+    }
+
+    @Test
+    public void testExecutorPropagatesTheSubmittingTestsContext() throws Exception {
+        var executor = new ContextPropagatingExecutor(Executors.newFixedThreadPool(2));
+        try {
+            var manager = CompletableFuture.supplyAsync(
+                    () -> TestContext.baseContext().getWebDriverContext().getWebDriverManager(), executor).get();
+            assertSame(webDriverContextImpl, manager);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCapturingWithoutATestFails() {
+        TestContext.baseContext().removeContext();
+        assertThrows(WebDriverContextException.class, ContextHandle::capture);
+    }
+}
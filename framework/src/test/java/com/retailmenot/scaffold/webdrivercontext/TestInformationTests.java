@@ -0,0 +1,113 @@
+package com.retailmenot.scaffold.webdrivercontext;
+
+import com.retailmenot.scaffold.models.TestInformation;
+import com.retailmenot.scaffold.util.AutomationUtils;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TestInformationTests {
+
+    // Consumers are shared by every test in the run, so each test only looks at its own test names
+    private static final Map<String, TestInformation> CONSUMED = new ConcurrentHashMap<>();
+    private static final Map<String, Thread> CONSUMING_THREADS = new ConcurrentHashMap<>();
+
+    static {
+        TestContext.baseContext().addTestInformationConsumer(CONSUMED::put);
+        TestContext.baseContext().addTestInformationConsumer((testName, information) -> CONSUMING_THREADS.put(testName, Thread.currentThread()));
+    }
+
+    @Test
+    public void testCompletedTestsAreConsumedAndReleased() {
+        var testName = "Completed Test " + AutomationUtils.getUniqueString();
+        var exception = new RuntimeException("failed");
+        TestContext.baseContext().addExceptionForTest(testName, exception);
+
+        var testInformation = TestContext.baseContext().completeTest(testName).join();
+
+        assertSame(exception, testInformation.getException());
+        assertSame(testInformation, CONSUMED.get(testName));
+        assertNull(TestContext.baseContext().getExceptionForTest(testName), "Completed tests should be released");
+    }
+
+    @Test
+    public void testCompletionWaitsForPendingWork() {
+        var testName = "Pending Test " + AutomationUtils.getUniqueString();
+        var upload = new CompletableFuture<String>();
+        TestContext.baseContext().trackPendingWork(testName,
+                upload.thenAccept(url -> TestContext.baseContext().setScreenShotUrlForTest(testName, url)));
+
+        var completion = TestContext.baseContext().completeTest(testName);
+        assertFalse(completion.isDone(), "Completion should wait for the upload");
+        assertFalse(CONSUMED.containsKey(testName));
+
+        upload.complete("https://screenshots.example.com/1.png");
+        assertEquals("https://screenshots.example.com/1.png", completion.join().getScreenShotUrl());
+        assertEquals("https://screenshots.example.com/1.png", CONSUMED.get(testName).getScreenShotUrl());
+    }
+
+    @Test
+    public void testConsumersDoNotRunOnTheThreadFinishingTheWork() {
+        var testName = "Consumer Thread Test " + AutomationUtils.getUniqueString();
+        var upload = new CompletableFuture<String>();
+        TestContext.baseContext().trackPendingWork(testName, upload);
+        var completion = TestContext.baseContext().completeTest(testName);
+
+        // Stands in for the uploader thread finishing the last screenshot of the test
+        upload.complete("https://screenshots.example.com/3.png");
+        completion.join();
+        assertNotSame(Thread.currentThread(), CONSUMING_THREADS.get(testName), "A slow consumer should not hold up the uploader");
+    }
+
+    @Test
+    public void testConcurrentAccessCreatesASingleEntry() {
+        var testName = "Concurrent Test " + AutomationUtils.getUniqueString();
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (var i = 0; i < 8; i++) {
+            var url = "url " + i;
+            futures.add(CompletableFuture.runAsync(() -> TestContext.baseContext().setScreenShotUrlForTest(testName, url)));
+        }
+        futures.forEach(CompletableFuture::join);
+        var exception = new RuntimeException();
+        TestContext.baseContext().addExceptionForTest(testName, exception);
+
+        var testInformation = TestContext.baseContext().completeTest(testName).join();
+        assertSame(exception, testInformation.getException(), "Every update should land on the same entry");
+    }
+
+    @Test
+    public void testUpdatesAfterCompletionAreIgnored() {
+        var testName = "Late Update Test " + AutomationUtils.getUniqueString();
+        TestContext.baseContext().completeTest(testName).join();
+
+        var lateUpload = new CompletableFuture<String>();
+        TestContext.baseContext().trackPendingWork(testName, lateUpload);
+        TestContext.baseContext().setScreenShotUrlForTest(testName, "https://screenshots.example.com/late.png");
+        TestContext.baseContext().addExceptionForTest(testName, new RuntimeException("late"));
+
+        assertNull(TestContext.baseContext().getScreenShotUrlForTest(testName), "A completed test should not be recreated");
+        assertNull(TestContext.baseContext().getExceptionForTest(testName));
+        assertNull(CONSUMED.get(testName).getScreenShotUrl(), "Reported information should not change");
+    }
+
+    @Test
+    public void testRestartedTestIsTrackedAgain() {
+        var testName = "Repeated Test " + AutomationUtils.getUniqueString();
+        TestContext.baseContext().completeTest(testName).join();
+
+        TestContext.baseContext().startTest(testName);
+        TestContext.baseContext().setScreenShotUrlForTest(testName, "https://screenshots.example.com/2.png");
+        assertEquals("https://screenshots.example.com/2.png", TestContext.baseContext().getScreenShotUrlForTest(testName));
+        TestContext.baseContext().completeTest(testName).join();
+    }
+}
@@ -0,0 +1,42 @@
+package com.retailmenot.scaffold.webdrivercontext;
+
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.exception.WebDriverContextException;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
+import com.retailmenot.scaffold.webdriver.interfaces.TestContextSetting;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSettingsTests extends BaseUnitTest {
+
+    @Test
+    public void testOverridesOnlyApplyToTheCurrentTest() {
+        TestContext.baseContext().overrideSetting(ToggleSetting.WAIT_FOR_DISPLAY_ENABLED, true);
+
+        assertTrue(TestContext.baseContext().getSettings().isEnabled(ToggleSetting.WAIT_FOR_DISPLAY_ENABLED));
+        assertTrue(TestContext.baseContext().getSetting(Boolean.class, TestContextSetting.WAIT_FOR_DISPLAY_ENABLED),
+                "Reading the setting by its key should see the override");
+        assertFalse(TestContext.baseContext().getSettings().isEnabled(ToggleSetting.IMPLICIT_SCROLLING_ENABLED));
+
+        // Another thread, with no test of its own, sees the settings of the run
+        var elsewhere = CompletableFuture.supplyAsync(() ->
+                TestContext.baseContext().getSettings().isEnabled(ToggleSetting.WAIT_FOR_DISPLAY_ENABLED)).join();
+        assertFalse(elsewhere);
+    }
+
+    @Test
+    public void testOverridesEndWithTheTest() {
+        TestContext.baseContext().overrideSetting(ToggleSetting.IMPLICIT_SCROLLING_ENABLED, true);
+        TestContext.baseContext().removeContext();
+
+        assertFalse(TestContext.baseContext().getSettings().isEnabled(ToggleSetting.IMPLICIT_SCROLLING_ENABLED));
+        assertThrows(WebDriverContextException.class,
+                () -> TestContext.baseContext().overrideSetting(ToggleSetting.IMPLICIT_SCROLLING_ENABLED, true));
+    }
+}
@@ -1,18 +1,25 @@
 package com.retailmenot.scaffold.webdriverwrapper;
 
 import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.webdriver.WebDriverWrapper;
 import com.retailmenot.scaffold.webelements.DivWebElement;
 import com.retailmenot.scaffold.webelements.LinkWebElement;
 import org.junit.jupiter.api.Test;
 import org.openqa.selenium.By;
 import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class WebDriverWrapperTests extends BaseUnitTest {
 
@@ -48,4 +55,76 @@ public class WebDriverWrapperTests extends BaseUnitTest {
     public void testFindElementDoesntExist() {
         assertThrows(NoSuchElementException.class, () -> mockWebDriver.findElement(By.id("elementDoesNotExist")));
     }
+
+    @Test
+    public void testFindElementsImmediately() {
+        assertTrue(webDriverWrapper.findElementsImmediately(mockWebDriver, By.id("elementDoesNotExist")).isEmpty(),
+                "An absent element should come back as an empty list rather than an exception");
+
+        List<WebElement> elementList = new ArrayList<>();
+        elementList.add(mockElement1);
+        mockWebDriver.setElementsToFind(elementList);
+        assertEquals(TEXT_NAME_1, webDriverWrapper.findElementsImmediately(mockWebDriver, By.id("element1")).get(0).getText());
+    }
+
+    @Test
+    public void testImplicitWaitIsRestored() {
+        webDriverWrapper.setImplicitWait(10, TimeUnit.SECONDS);
+        webDriverWrapper.findElementsImmediately(mockWebDriver, By.id("element1"));
+        assertEquals(10000, webDriverWrapper.getImplicitWaitInMillis(),
+                "The implicit wait should be restored after probing for elements");
+    }
+
+    @Test
+    public void testImplicitWaitSetThroughManageIsRestored() {
+        webDriverWrapper.manage().timeouts().implicitlyWait(3, TimeUnit.SECONDS);
+        webDriverWrapper.findElementsImmediately(mockWebDriver, By.id("element1"));
+        assertEquals(3000, mockWebDriver.manage().getImplicitWaitInMillis(),
+                "The implicit wait set through manage() should be restored after probing for elements");
+    }
+
+    @Test
+    public void testUnknownImplicitWaitIsRestoredToDefault() throws Exception {
+        // A wrapper that never sent an implicit wait, unlike the one initDriver() hands out
+        var constructor = WebDriverWrapper.class.getDeclaredConstructor(WebDriver.class);
+        constructor.setAccessible(true);
+        var wrapper = constructor.newInstance(mockWebDriver);
+
+        wrapper.findElementsImmediately(mockWebDriver, By.id("element1"));
+        assertEquals(10000, mockWebDriver.manage().getImplicitWaitInMillis(),
+                "The driver should not be left without an implicit wait");
+    }
+
+    @Test
+    public void testSynchronizeWindowsTracksNewWindow() {
+        webDriverWrapper.setRegisteredWindows(new LinkedList<>(List.of("baseWindow")));
+        webDriverWrapper.synchronizeWindows();
+        assertEquals(List.of("baseWindow", "childWindow"), webDriverWrapper.getRegisteredWindows(),
+                "The new window should be added after the existing one");
+    }
+
+    @Test
+    public void testSynchronizeWindowsDropsClosedWindow() {
+        webDriverWrapper.setRegisteredWindows(new LinkedList<>(List.of("childWindow", "popup", "baseWindow")));
+        webDriverWrapper.synchronizeWindows();
+        assertEquals(List.of("childWindow", "baseWindow"), webDriverWrapper.getRegisteredWindows(),
+                "The closed window should be dropped without reordering the others");
+    }
+
+    @Test
+    public void testWindowEventSourceIsUsed() {
+        var events = new AtomicInteger();
+        mockWebDriver.setWindowHandles(Set.of("baseWindow"));
+        webDriverWrapper.setRegisteredWindows(new LinkedList<>(List.of("baseWindow")));
+        webDriverWrapper.getWindowTracker().setEventSource(timeout -> {
+            // The popup opens while we're blocked on the event source
+            events.incrementAndGet();
+            mockWebDriver.setWindowHandles(Set.of("baseWindow", "popup"));
+            return true;
+        });
+
+        webDriverWrapper.synchronizeWindows();
+        assertEquals(1, events.get());
+        assertEquals("popup", webDriverWrapper.getRegisteredWindows().getLast());
+    }
 }
@@ -2,6 +2,9 @@ package com.retailmenot.scaffold.webelement;
 
 import com.retailmenot.scaffold.BaseUnitTest;
 import com.retailmenot.scaffold.models.unittests.MockWebElement;
+import com.retailmenot.scaffold.util.JavascriptUtils;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
 import com.retailmenot.scaffold.webelements.AbstractClickable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +15,8 @@ import static org.junit.Assert.assertTrue;
 
 public class AbstractClickableTests extends BaseUnitTest {
 
+    private static final String CLICK_SCRIPT = JavascriptUtils.getScript("click.js");
+
     private MockWebElement element = new MockWebElement();
     private AbstractClickable base;
 
@@ -38,4 +43,46 @@ public class AbstractClickableTests extends BaseUnitTest {
         base.click();
         assertTrue("The underlying element should have been clicked", element.getIsClicked());
     }
+
+    @Test
+    public void testClickIsNativeByDefault() {
+        mockWebDriver.setElementToFind(element);
+
+        base.click();
+        assertTrue("The underlying element should have been clicked natively", element.getIsClicked());
+        assertFalse("The click script should not have run", mockWebDriver.getExecutedScripts().contains(CLICK_SCRIPT));
+    }
+
+    @Test
+    public void testScriptedClick() {
+        TestContext.baseContext().overrideSetting(ToggleSetting.SCRIPTED_CLICK_ENABLED, true);
+        mockWebDriver.setElementToFind(element);
+        mockWebDriver.addScriptResult("clicked");
+
+        base.click();
+        assertTrue("The click script should have run", mockWebDriver.getExecutedScripts().contains(CLICK_SCRIPT));
+        assertFalse("The element was clicked by the script, so it should not be clicked natively", element.getIsClicked());
+    }
+
+    @Test
+    public void testScriptedClickFallsBackWhenNotClickable() {
+        TestContext.baseContext().overrideSetting(ToggleSetting.SCRIPTED_CLICK_ENABLED, true);
+        mockWebDriver.setElementToFind(element);
+        mockWebDriver.addScriptResult("not-clickable");
+
+        base.click();
+        assertTrue("The click script should have run", mockWebDriver.getExecutedScripts().contains(CLICK_SCRIPT));
+        assertTrue("The underlying element should have been clicked natively", element.getIsClicked());
+    }
+
+    @Test
+    public void testScriptedClickFallsBackWhenCovered() {
+        TestContext.baseContext().overrideSetting(ToggleSetting.SCRIPTED_CLICK_ENABLED, true);
+        mockWebDriver.setElementToFind(element);
+        mockWebDriver.addScriptResult("covered");
+
+        base.click();
+        assertTrue("The click script should have run", mockWebDriver.getExecutedScripts().contains(CLICK_SCRIPT));
+        assertTrue("The underlying element should have been clicked natively", element.getIsClicked());
+    }
 }
@@ -5,16 +5,23 @@ import com.retailmenot.scaffold.models.unittests.MockLogs;
 import com.retailmenot.scaffold.models.unittests.MockWebDriver;
 import com.retailmenot.scaffold.models.unittests.MockWebElement;
 import com.retailmenot.scaffold.util.AutomationUtils;
+import com.retailmenot.scaffold.webdriver.TestContext;
+import com.retailmenot.scaffold.webdriver.ToggleSetting;
 import com.retailmenot.scaffold.webelements.DivWebElement;
 import org.junit.jupiter.api.Test;
 import org.openqa.selenium.By;
 import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.logging.LogEntry;
 import org.openqa.selenium.logging.LogType;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -142,6 +149,65 @@ public class AbstractWebElementTests extends BaseUnitTest {
         assertFalse("The element should not exist", testAbstractWebElement.exists());
     }
 
+    @Test
+    public void testStaleElementIsLocatedAgain() {
+        var staleElement = new MockWebElement().text("stale element");
+        List<WebElement> list = new ArrayList<>();
+        list.add(staleElement);
+        mockWebDriver.setElementsToFind(list);
+        var elements = webDriverWrapper.findElements(DivWebElement.class, By.cssSelector(".row"));
+
+        // Simulate a re-render: the original reference goes stale and the page now holds a new element
+        staleElement.setStale(true);
+        List<WebElement> renderedList = new ArrayList<>();
+        renderedList.add(mockElement1);
+        mockWebDriver.setElementsToFind(renderedList);
+
+        assertEquals(TEXT_NAME_1, elements.get(0).getText(), "The stale element should have been located again");
+        assertTrue("The stale element should have been located again", elements.get(0).isDisplayed());
+    }
+
+    @Test
+    public void testStaleElementWithoutRecipeThrows() {
+        var staleElement = new MockWebElement();
+        staleElement.setStale(true);
+        var testElement = new TestableAbstractWebElement(staleElement);
+        assertThrows(StaleElementReferenceException.class, testElement::getTagName);
+    }
+
+    @Test
+    public void testStaleRawParentIsNotSearchedAgain() {
+        var searches = new AtomicInteger();
+        var parent = new MockWebElement() {
+            @Override
+            public WebElement findElement(By by) {
+                searches.incrementAndGet();
+                return super.findElement(by);
+            }
+        };
+        parent.setStale(true);
+        var testElement = new TestableAbstractWebElement(By.id("child"), parent);
+
+        assertThrows(StaleElementReferenceException.class, testElement::getTagName);
+        assertEquals(1, searches.get(), "A stale raw parent can't be located again, so the search shouldn't be retried");
+    }
+
+    @Test
+    public void testStreamVirtualListDeduplicatesItems() {
+        var mockElement3 = new MockWebElement().text("element 3");
+        mockWebDriver.addAsyncScriptResult(Map.of("items", List.of(List.of(mockElement1, "a"), List.of(mockElement2, "b")), "atEnd", false));
+        mockWebDriver.addAsyncScriptResult(Map.of("items", List.of(List.of(mockElement2, "b"), List.of(mockElement3, "c")), "atEnd", false));
+        mockWebDriver.addAsyncScriptResult(Map.of("items", List.of(List.of(mockElement3, "c")), "atEnd", true));
+
+        var container = new TestableAbstractWebElement(new MockWebElement());
+        var texts = container.streamVirtualList(DivWebElement.class, By.cssSelector(".row"), "data-id")
+                .map(DivWebElement::getText)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(TEXT_NAME_1, TEXT_NAME_2, "element 3"), texts,
+                "Every item should be returned exactly once, in the order it was rendered");
+    }
+
     /**
      * Test the mock log error created from {@link MockLogs}
      *
@@ -197,4 +263,18 @@ public class AbstractWebElementTests extends BaseUnitTest {
         assertEquals("This element was not properly initialized with a By locator or a base element. Please check your code", testAbstractWebElement.toString(),
                 "The element's toString should be correct: 'null, null' constructor");
     }
+
+    @Test
+    public void testAdaptiveTimeoutIsKeyedByLocator() {
+        TestContext.baseContext().overrideSetting(ToggleSetting.ADAPTIVE_TIMEOUTS_ENABLED, true);
+        mockWebDriver.setElementToFind(mockElement1);
+        var locator = By.id("adaptive " + AutomationUtils.getUniqueString());
+        var element = new DivWebElement(locator);
+        for (var i = 0; i < 5; i++) {
+            element.getWait().waitUntilDisplayed();
+        }
+
+        // Keyed by the locator rather than the found element, whose description changes with every session
+        assertEquals(Duration.ofSeconds(2), TestContext.baseContext().getTimeoutHistory().getTimeout(locator.toString(), Duration.ofSeconds(10)));
+    }
 }
@@ -5,8 +5,15 @@ import com.retailmenot.scaffold.models.unittests.MockWebElement;
 import com.retailmenot.scaffold.webelements.DropDownWebElement;
 import org.junit.jupiter.api.Test;
 import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DropDownWebElementTests extends BaseUnitTest {
 
@@ -39,4 +46,37 @@ public class DropDownWebElementTests extends BaseUnitTest {
         mockWebDriver.setElementToFind(mockElement1);
         assertEquals(TEXT_NAME_1, dropDown.getText());
     }
+
+    @Test
+    public void testGetOptions() {
+        mockWebDriver.setElementToFind(mockElement1);
+        mockWebDriver.addScriptResult(List.of(
+                Map.of("index", 0L, "value", "first", "text", "First", "selected", false, "disabled", false),
+                Map.of("index", 1L, "value", "second", "text", "Second", "selected", true, "disabled", false)));
+
+        var options = new DropDownWebElement(By.id("")).getOptions();
+        assertEquals(2, options.size());
+        assertEquals("second", options.get(1).getValue());
+        assertEquals("Second", options.get(1).getText());
+        assertTrue(options.get(1).isSelected(), "The second option should be selected");
+        assertFalse(options.get(0).isSelected(), "The first option should not be selected");
+    }
+
+    @Test
+    public void testSelectByValueNotFound() {
+        mockWebDriver.setElementToFind(mockElement1);
+        mockWebDriver.addScriptResult(0L);
+
+        var dropDown = new DropDownWebElement(By.id(""));
+        assertThrows(NoSuchElementException.class, () -> dropDown.selectByValue("missing"));
+    }
+
+    @Test
+    public void testSelectByVisibleTextBlankIsIgnored() {
+        mockWebDriver.setElementToFind(mockElement1);
+        // Nothing is queued, so selecting anything other than a blank value would fall back to Select and fail on the mock
+        new DropDownWebElement(By.id("")).selectByVisibleText(" ");
+        new DropDownWebElement(By.id("")).selectByVisibleText(null);
+        assertTrue(mockWebDriver.getExecutedScripts().isEmpty(), "Blank values should not select anything");
+    }
 }
@@ -0,0 +1,58 @@
+package com.retailmenot.scaffold.webelement;
+
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.exception.AutomationWaitException;
+import com.retailmenot.scaffold.webelements.waitconditions.NetworkIdleWaitCondition;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.ScriptTimeoutException;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NetworkIdleWaitConditionTests extends BaseUnitTest {
+
+    @Test
+    public void testIdlePage() {
+        var result = new HashMap<String, Object>();
+        result.put("idle", true);
+        mockWebDriver.addAsyncScriptResult(result);
+
+        assertDoesNotThrow(() -> new NetworkIdleWaitCondition().failOnTimeout(true).waitUntilLoaded(webDriverWrapper));
+    }
+
+    @Test
+    public void testBusyPageFailsWhenConfigured() {
+        var result = new HashMap<String, Object>();
+        result.put("idle", false);
+        result.put("loading", false);
+        result.put("pending", List.of("fetch /api/slow (10000 ms)"));
+        mockWebDriver.addAsyncScriptResult(result);
+
+        var exception = assertThrows(AutomationWaitException.class,
+                () -> new NetworkIdleWaitCondition().failOnTimeout(true).waitUntilLoaded(webDriverWrapper));
+        assertTrue(exception.getMessage().contains("/api/slow"), "The pending requests should be reported");
+    }
+
+    @Test
+    public void testBusyPageOnlyWarnsByDefault() {
+        var result = new HashMap<String, Object>();
+        result.put("idle", false);
+        mockWebDriver.addAsyncScriptResult(result);
+
+        assertDoesNotThrow(() -> new NetworkIdleWaitCondition().waitUntilLoaded(webDriverWrapper));
+    }
+
+    @Test
+    public void testScriptTimeoutFailsWhenConfigured() {
+        mockWebDriver.addAsyncScriptResult(new ScriptTimeoutException("script timed out"));
+        assertThrows(AutomationWaitException.class,
+                () -> new NetworkIdleWaitCondition().failOnTimeout(true).waitUntilLoaded(webDriverWrapper));
+
+        mockWebDriver.addAsyncScriptResult(new ScriptTimeoutException("script timed out"));
+        assertDoesNotThrow(() -> new NetworkIdleWaitCondition().waitUntilLoaded(webDriverWrapper));
+    }
+}
@@ -0,0 +1,74 @@
+package com.retailmenot.scaffold.webelement;
+
+import com.retailmenot.scaffold.BaseUnitTest;
+import com.retailmenot.scaffold.exception.AutomationWaitException;
+import com.retailmenot.scaffold.webelements.waitconditions.ReadinessDetector;
+import com.retailmenot.scaffold.webelements.waitconditions.ReadinessWaitCondition;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadinessWaitConditionTests extends BaseUnitTest {
+
+    private static final String ORIGIN = "https://www.example.com";
+
+    @Test
+    public void testDetectorIsCachedPerOrigin() {
+        var condition = new ReadinessWaitCondition();
+        assertNull(condition.getRegistry().getCachedDetector(ORIGIN));
+
+        mockWebDriver.addAsyncScriptResult(readinessResult("angular", true));
+        condition.waitUntilLoaded(webDriverWrapper);
+        assertEquals("angular", condition.getRegistry().getCachedDetector(ORIGIN));
+    }
+
+    @Test
+    public void testDocumentFallbackIsNotCached() {
+        var condition = new ReadinessWaitCondition();
+        mockWebDriver.addAsyncScriptResult(readinessResult("document", true));
+        condition.waitUntilLoaded(webDriverWrapper);
+        assertNull(condition.getRegistry().getCachedDetector(ORIGIN),
+                "The page may not have booted its framework yet, so it should be probed again next time");
+
+        mockWebDriver.addAsyncScriptResult(readinessResult("angular", true));
+        condition.waitUntilLoaded(webDriverWrapper);
+        assertEquals("angular", condition.getRegistry().getCachedDetector(ORIGIN));
+    }
+
+    @Test
+    public void testAppHookReportsRejection() {
+        var wait = ReadinessDetector.appHook("appReady").getWait();
+        assertTrue(wait.contains(".catch(function (e) { done({error: String(e)}); })"),
+                "A rejected hook should call back with the error rather than leave the wait to time out");
+    }
+
+    @Test
+    public void testRegisteredDetectorsComeFirst() {
+        var condition = new ReadinessWaitCondition();
+        condition.getRegistry().register(ReadinessDetector.appHook("appReady"));
+
+        var detectors = condition.getRegistry().getDetectors();
+        assertEquals("hook:appReady", detectors.get(0).getName());
+        assertEquals("document", detectors.get(detectors.size() - 1).getName(), "The document detector should always be the last resort");
+    }
+
+    @Test
+    public void testPageNeverReadyFailsWhenConfigured() {
+        mockWebDriver.addAsyncScriptResult(readinessResult("react", false));
+        assertThrows(AutomationWaitException.class,
+                () -> new ReadinessWaitCondition().failOnTimeout(true).waitUntilLoaded(webDriverWrapper));
+    }
+
+    private static HashMap<String, Object> readinessResult(String detector, boolean ready) {
+        var result = new HashMap<String, Object>();
+        result.put("origin", ORIGIN);
+        result.put("detector", detector);
+        result.put("ready", ready);
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package com.retailmenot.scaffold.models;
+
+import com.retailmenot.scaffold.models.enums.StepType;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A single step a test made: what was done, to what, when and for how long.
+ */
+public class Step {
+
+    private final StepType type;
+    private final String target;
+    private final String detail;
+    private final Instant startTime;
+    private final Duration duration;
+
+    public Step(StepType type, String target, String detail, Instant startTime, Duration duration) {
+        this.type = type;
+        this.target = target;
+        this.detail = detail;
+        this.startTime = startTime;
+        this.duration = duration;
+    }
+
+    public StepType getType() {
+        return type;
+    }
+
+    /**
+     * @return the element, URL or locator the step acted on, or null
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * @return what the step did to its target, e.g. the option selected or the condition waited for, or null
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return how long the step took, or null if it threw before finishing
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return whether or not the step finished without throwing
+     */
+    public boolean isCompleted() {
+        return duration != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s%s - %s", startTime, type, target, detail == null ? "" : " [" + detail + "]",
+                duration == null ? "did not finish" : duration.toMillis() + " ms");
+    }
+}
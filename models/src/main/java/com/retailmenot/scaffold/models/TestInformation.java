@@ -1,19 +1,23 @@
 package com.retailmenot.scaffold.models;
 
+import java.time.Instant;
 import java.util.List;
 
 public class TestInformation {
 
-    private String screenShotUrl;
-    private List<String> testSteps;
+    // Set asynchronously once the screen shot has been written or uploaded
+    private volatile String screenShotUrl;
+    private List<Step> testSteps;
     private Throwable exception;
     private String runHost;
+    private Instant startTime;
+    private Instant endTime;
 
     public String getScreenShotUrl() {
         return screenShotUrl;
     }
 
-    public List<String> getTestSteps() {
+    public List<Step> getTestSteps() {
         return testSteps;
     }
 
@@ -25,12 +29,20 @@ public class TestInformation {
         return runHost;
     }
 
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public Instant getEndTime() {
+        return endTime;
+    }
+
     public TestInformation screenShotUrl(String screenShotUrl) {
         this.screenShotUrl = screenShotUrl;
         return this;
     }
 
-    public TestInformation testSteps(List<String> testSteps) {
+    public TestInformation testSteps(List<Step> testSteps) {
         this.testSteps = testSteps;
         return this;
     }
@@ -44,4 +56,14 @@ public class TestInformation {
         this.runHost = runHost;
         return this;
     }
+
+    public TestInformation startTime(Instant startTime) {
+        this.startTime = startTime;
+        return this;
+    }
+
+    public TestInformation endTime(Instant endTime) {
+        this.endTime = endTime;
+        return this;
+    }
 }
@@ -0,0 +1,13 @@
+package com.retailmenot.scaffold.models.enums;
+
+/**
+ * The kinds of step a test's steps are recorded as.
+ */
+public enum StepType {
+    NAVIGATE,
+    CLICK,
+    SEND_KEYS,
+    CLEAR,
+    SELECT,
+    WAIT
+}
@@ -14,6 +14,17 @@ import static org.openqa.selenium.WebDriver.Window;
 
 public class MockOptions implements Options {
 
+    private long implicitWaitInMillis = -1;
+    private long scriptTimeoutInMillis = -1;
+
+    public long getImplicitWaitInMillis() {
+        return implicitWaitInMillis;
+    }
+
+    public long getScriptTimeoutInMillis() {
+        return scriptTimeoutInMillis;
+    }
+
     @Override
     public void addCookie(Cookie cookie) {
 
@@ -50,12 +61,14 @@ public class MockOptions implements Options {
 
             @Override
             public Timeouts implicitlyWait(long time, TimeUnit unit) {
-                return null;
+                implicitWaitInMillis = unit.toMillis(time);
+                return this;
             }
 
             @Override
             public Timeouts setScriptTimeout(long time, TimeUnit unit) {
-                return null;
+                scriptTimeoutInMillis = unit.toMillis(time);
+                return this;
             }
 
             @Override
@@ -6,8 +6,12 @@ import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
 import org.openqa.selenium.remote.RemoteWebDriver;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -19,6 +23,13 @@ public class MockWebDriver extends RemoteWebDriver implements WebDriver, Javascr
     private List<WebElement> elementsToFind;
     private String pageSource;
     private boolean throwExceptionOnJavascriptExecute = false;
+    private Deque<Object> scriptResults = new ArrayDeque<>();
+    private Deque<Object> asyncScriptResults = new ArrayDeque<>();
+    private List<String> executedScripts = new ArrayList<>();
+    private MockOptions options = new MockOptions();
+    private Set<String> windowHandles = Set.of("baseWindow", "childWindow");
+    // A 1x1 pixel PNG
+    private String screenshot = "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk+M9QDwADhgGAWjR9awAAAABJRU5ErkJggg==";
 
     @Override
     public void get(String url) {
@@ -67,10 +78,7 @@ public class MockWebDriver extends RemoteWebDriver implements WebDriver, Javascr
 
     @Override
     public Set<String> getWindowHandles() {
-        Set<String> handles = new HashSet<String>();
-        handles.add("baseWindow");
-        handles.add("childWindow");
-        return handles;
+        return new HashSet<>(windowHandles);
     }
 
     @Override
@@ -89,21 +97,30 @@ public class MockWebDriver extends RemoteWebDriver implements WebDriver, Javascr
     }
 
     @Override
-    public Options manage() {
-        return new MockOptions();
+    public MockOptions manage() {
+        return options;
     }
 
     @Override
     public Object executeScript(String script, Object... args) {
+        executedScripts.add(script);
         if (this.throwExceptionOnJavascriptExecute) {
             throw new RuntimeException("You asked for an exception, so here it is");
         }
-        return "";
+        // Hand back any queued results in order, falling back to an empty result once they run out
+        var result = scriptResults.poll();
+        return result == null ? "" : result;
     }
 
     @Override
     public Object executeAsyncScript(String script, Object... args) {
-        return "";
+        executedScripts.add(script);
+        // Hand back any queued results in order, throwing queued exceptions, falling back to an empty result once they run out
+        var result = asyncScriptResults.poll();
+        if (result instanceof RuntimeException) {
+            throw (RuntimeException) result;
+        }
+        return result == null ? "" : result;
     }
 
     public void setElementToFind(WebElement element) {
@@ -118,6 +135,31 @@ public class MockWebDriver extends RemoteWebDriver implements WebDriver, Javascr
         this.pageSource = pageSource;
     }
 
+    @Override
+    public <X> X getScreenshotAs(OutputType<X> target) {
+        return target.convertFromBase64Png(screenshot);
+    }
+
+    public void setScreenshot(String base64Png) {
+        this.screenshot = base64Png;
+    }
+
+    public void addScriptResult(Object result) {
+        this.scriptResults.add(result);
+    }
+
+    public void addAsyncScriptResult(Object result) {
+        this.asyncScriptResults.add(result);
+    }
+
+    public List<String> getExecutedScripts() {
+        return executedScripts;
+    }
+
+    public void setWindowHandles(Set<String> windowHandles) {
+        this.windowHandles = windowHandles;
+    }
+
     public void setThrowExceptionOnJavascriptExecute(boolean flag) {
         this.throwExceptionOnJavascriptExecute = flag;
     }
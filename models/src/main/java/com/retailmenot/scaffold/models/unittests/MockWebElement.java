@@ -22,23 +22,27 @@ public class MockWebElement implements WebElement {
     private boolean isDisplayed = true;
     private boolean throwExceptionEnabled = false;
     private boolean throwExceptionDisplayed = false;
+    private boolean isStale = false;
 
     private boolean isMouseOverNative = false;
     private boolean isMouseOverSynthetic = false;
 
     @Override
     public void clear() {
+        checkStale();
         this.text = "";
     }
 
     @Override
     public void click() {
+        checkStale();
         this.isClicked = true;
         this.isSelected = !this.isSelected;
     }
 
     @Override
     public WebElement findElement(By arg0) {
+        checkStale();
         if(elementToFind == null) {
             throw new NoSuchElementException("Could not find element");
         }
@@ -47,6 +51,7 @@ public class MockWebElement implements WebElement {
 
     @Override
     public List<WebElement> findElements(By arg0) {
+        checkStale();
         if(elementsToFind == null) {
             throw new NoSuchElementException("Could not find element");
         }
@@ -55,6 +60,7 @@ public class MockWebElement implements WebElement {
 
     @Override
     public String getAttribute(String arg0) {
+        checkStale();
         return attributes.get(arg0);
     }
 
@@ -80,16 +86,19 @@ public class MockWebElement implements WebElement {
 
     @Override
     public String getTagName() {
+        checkStale();
         return tagName;
     }
 
     @Override
     public String getText() {
+        checkStale();
         return this.text;
     }
 
     @Override
     public boolean isDisplayed() {
+        checkStale();
         if (this.throwExceptionDisplayed) {
             throw new NoSuchElementException("isDisplayed() exception");
         }
@@ -98,6 +107,7 @@ public class MockWebElement implements WebElement {
 
     @Override
     public boolean isEnabled() {
+        checkStale();
         if (this.throwExceptionEnabled) {
             throw new NoSuchElementException("isEnabled() exception");
         }
@@ -106,6 +116,7 @@ public class MockWebElement implements WebElement {
 
     @Override
     public boolean isSelected() {
+        checkStale();
         return isSelected;
     }
 
@@ -116,6 +127,7 @@ public class MockWebElement implements WebElement {
 
     @Override
     public void sendKeys(CharSequence... arg0) {
+        checkStale();
         this.text = StringUtils.join(arg0);
         this.setAttribute("value", StringUtils.join(arg0));
     }
@@ -176,6 +188,10 @@ public class MockWebElement implements WebElement {
         this.isMouseOverSynthetic = flag;
     }
 
+    public void setStale(boolean isStale) {
+        this.isStale = isStale;
+    }
+
     public void setEnabled(boolean isEnabled) {
         this.isEnabled = isEnabled;
     }
@@ -184,6 +200,12 @@ public class MockWebElement implements WebElement {
         return "MockWebElement: I Mock Thee!";
     }
 
+    private void checkStale() {
+        if (this.isStale) {
+            throw new StaleElementReferenceException("MockWebElement is stale");
+        }
+    }
+
     @Override
     public <X> X getScreenshotAs(OutputType<X> outputType) throws WebDriverException {
         return null;